@@ -0,0 +1,117 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * This class decodes the bits written by an AdaptiveHuffmanEncoder.
+ * It rebuilds the same codes as the encoder, from the letters decoded so far, so no codebook is needed.
+ * The decoder keeps its state from call to call: bits can be given piece by piece, for example from a window
+ * sliding over a stream, as long as every call starts where the previous one stopped.
+ *
+ * @author Bilal Ahmed
+ */
+public final class AdaptiveHuffmanDecoder {
+    /**
+     * The model holding the counts and the codes.
+     */
+    private final AdaptiveHuffmanModel model;
+    /**
+     * The number of letters decoded so far.
+     */
+    private long letters;
+
+    /**
+     * Constructor that initializes an AdaptiveHuffmanDecoder for an encoder using DEFAULT_MAX_INTERVAL.
+     */
+    public AdaptiveHuffmanDecoder() {
+        this(AdaptiveHuffmanEncoder.DEFAULT_MAX_INTERVAL);
+    }
+
+    /**
+     * Constructor that initializes the AdaptiveHuffmanDecoder object.
+     *
+     * @param maxInterval the largest number of letters between two rebuilds, the one the encoder used.
+     * @throws IllegalArgumentException when maxInterval is not positive.
+     */
+    public AdaptiveHuffmanDecoder(int maxInterval) {
+        this.model = new AdaptiveHuffmanModel(true, maxInterval);
+    }
+
+    /**
+     * Decodes packed bits into a string, after the letters decoded before.
+     * An incomplete code at the end is ignored.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(PackedBits bits) {
+        char[] text = new char[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bits.getBitLength() / 4))];
+        CharBuffer out = CharBuffer.wrap(text);
+        long position = 0;
+        while (true) {
+            position = decode(bits.getWords(), position, bits.getBitLength(), out);
+            if (out.hasRemaining()) {
+                return new String(text, 0, out.position());
+            }
+            int count = out.position();
+            text = Arrays.copyOf(text, (int) Math.min(Integer.MAX_VALUE - 8, text.length * 2L));
+            out = CharBuffer.wrap(text);
+            out.position(count);
+        }
+    }
+
+    /**
+     * Decodes a range of bits, after the letters decoded before.
+     * Stops when the output is full or the bits left do not hold a whole code.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded.
+     * @param toBit   the position after the last bit that can be decoded.
+     * @param out     the buffer the letters are written to.
+     * @return the position of the first bit not decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public long decode(long[] words, long fromBit, long toBit, CharBuffer out) {
+        long position = fromBit;
+        while (out.hasRemaining()) {
+            long result = model.decoder().decode(words, position, toBit);
+            if (result < 0) {
+                break;
+            }
+            int symbol = (int) (result >>> CanonicalDecoder.LENGTH_BITS);
+            int length = (int) (result & ((1 << CanonicalDecoder.LENGTH_BITS) - 1));
+            char c;
+            if (symbol == AdaptiveHuffmanModel.ESCAPE) {
+                if (position + length + AdaptiveHuffmanModel.LITERAL_BITS > toBit) {
+                    break;
+                }
+                c = (char) PackedBits.peek(words, position + length, AdaptiveHuffmanModel.LITERAL_BITS);
+                length += AdaptiveHuffmanModel.LITERAL_BITS;
+                symbol = model.symbolOf(c);
+                if (symbol == AdaptiveHuffmanModel.ESCAPE) {
+                    symbol = model.add(c);
+                }
+            } else {
+                c = model.letterOf(symbol);
+            }
+            out.put(c);
+            model.update(symbol);
+            position += length;
+            letters++;
+        }
+        return position;
+    }
+
+    /**
+     * Get the number of letters decoded so far.
+     *
+     * @return a long representing the number of letters.
+     */
+    public long getLetterCount() {
+        return letters;
+    }
+}
@@ -0,0 +1,97 @@
+//Bilal Ahmed
+
+package student;
+
+/**
+ * This class Huffman encodes text in a single pass, without a codebook known up front or sent along.
+ * The codes are rebuilt from the letters encoded so far, at the block boundaries of an AdaptiveHuffmanModel,
+ * and a letter without a code yet is written as the escape code followed by its 16 bits.
+ * The encoder keeps its state from call to call, so an unbounded stream can be encoded piece by piece,
+ * into a long array or a ByteBuffer through a BitWriter. An AdaptiveHuffmanDecoder with the same rebuild interval
+ * decodes the bits.
+ *
+ * @author Bilal Ahmed
+ */
+public final class AdaptiveHuffmanEncoder {
+    /**
+     * The largest number of letters between two rebuilds when none is given.
+     */
+    public static final int DEFAULT_MAX_INTERVAL = 1 << 12;
+
+    /**
+     * The model holding the counts and the codes.
+     */
+    private final AdaptiveHuffmanModel model;
+    /**
+     * The number of letters encoded so far.
+     */
+    private long letters;
+
+    /**
+     * Constructor that initializes an AdaptiveHuffmanEncoder rebuilding its codes at most every
+     * DEFAULT_MAX_INTERVAL letters.
+     */
+    public AdaptiveHuffmanEncoder() {
+        this(DEFAULT_MAX_INTERVAL);
+    }
+
+    /**
+     * Constructor that initializes the AdaptiveHuffmanEncoder object.
+     * Smaller intervals follow a drifting distribution more closely, larger ones rebuild less often.
+     *
+     * @param maxInterval the largest number of letters between two rebuilds, raised to the number of letters seen.
+     * @throws IllegalArgumentException when maxInterval is not positive.
+     */
+    public AdaptiveHuffmanEncoder(int maxInterval) {
+        this.model = new AdaptiveHuffmanModel(false, maxInterval);
+    }
+
+    /**
+     * Encodes the input string, after the letters encoded before.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     */
+    public void encode(CharSequence s, BitWriter out) {
+        encode(s, 0, s.length(), out);
+    }
+
+    /**
+     * Encodes part of the input string, after the letters encoded before.
+     * Each letter flushes at most one word into the BitWriter.
+     *
+     * @param s    the input string.
+     * @param from the index of the first letter to be encoded.
+     * @param to   the index after the last letter to be encoded.
+     * @param out  the BitWriter the codes are appended to.
+     */
+    public void encode(CharSequence s, int from, int to, BitWriter out) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            int symbol = model.symbolOf(c);
+            long entry = model.entry(symbol);
+            if (symbol == AdaptiveHuffmanModel.ESCAPE || entry == 0) {
+                long escape = model.entry(AdaptiveHuffmanModel.ESCAPE);
+                int length = (int) (escape & CompiledCodeBook.LENGTH_MASK);
+                out.write(((escape >>> CompiledCodeBook.LENGTH_BITS) << AdaptiveHuffmanModel.LITERAL_BITS) | c,
+                        length + AdaptiveHuffmanModel.LITERAL_BITS);
+                if (symbol == AdaptiveHuffmanModel.ESCAPE) {
+                    symbol = model.add(c);
+                }
+            } else {
+                out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+            }
+            model.update(symbol);
+        }
+        letters += to - from;
+    }
+
+    /**
+     * Get the number of letters encoded so far.
+     *
+     * @return a long representing the number of letters.
+     */
+    public long getLetterCount() {
+        return letters;
+    }
+}
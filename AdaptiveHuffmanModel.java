@@ -0,0 +1,200 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.Arrays;
+
+/**
+ * This class is the model shared by AdaptiveHuffmanEncoder and AdaptiveHuffmanDecoder.
+ * It counts every letter coded so far and rebuilds canonical codes from the counts at block boundaries,
+ * so the encoder and the decoder, which see the same letters in the same order, always hold the same codes.
+ * Symbol 0 is the escape, used for letters without a code yet: it is followed by the 16 bits of the letter.
+ * Other symbols are letters numbered in the order they were first seen. Counting a letter is O(1);
+ * blocks start short and double up to a maximum, and counts are halved once they grow large,
+ * so the codes follow a distribution that drifts. A block is never shorter than the number of symbols,
+ * which keeps the cost of rebuilding to O(log n) per letter for large alphabets.
+ *
+ * @author Bilal Ahmed
+ */
+final class AdaptiveHuffmanModel {
+    /**
+     * The symbol of the escape code.
+     */
+    static final int ESCAPE = 0;
+    /**
+     * The number of bits of a letter written after the escape code.
+     */
+    static final int LITERAL_BITS = Character.SIZE;
+    /**
+     * The longest code the model builds.
+     */
+    static final int MAX_CODE_LENGTH = 24;
+    /**
+     * The number of letters of the first block.
+     */
+    private static final int FIRST_INTERVAL = 16;
+    /**
+     * The total count above which every count is halved.
+     */
+    private static final long RESCALE_LIMIT = 1L << 20;
+
+    /**
+     * Whether the model builds decode tables instead of encode entries.
+     */
+    private final boolean decoding;
+    /**
+     * The largest number of letters between two rebuilds, unless there are more symbols than that.
+     */
+    private final int maxInterval;
+    /**
+     * The symbol of every letter, or ESCAPE for letters not seen yet.
+     */
+    private final int[] symbolOf = new int[HuffmanCodeBuilder.ALPHABET_SIZE];
+    /**
+     * The letter of every symbol.
+     */
+    private char[] letters = new char[16];
+    /**
+     * The count of every symbol.
+     */
+    private long[] counts = new long[16];
+    /**
+     * The number of symbols, escape included.
+     */
+    private int size = 1;
+    /**
+     * The sum of the counts.
+     */
+    private long total;
+    /**
+     * The number of letters of the current block.
+     */
+    private int interval = FIRST_INTERVAL;
+    /**
+     * The number of letters left before the next rebuild.
+     */
+    private int untilRebuild;
+    /**
+     * The code shifted above the code length of every symbol with a code, when encoding.
+     */
+    private long[] entries;
+    /**
+     * The decoder of the current codes, when decoding.
+     */
+    private CanonicalDecoder decoder;
+
+    /**
+     * Constructor that initializes the AdaptiveHuffmanModel object, where only the escape has a code.
+     *
+     * @param decoding    whether the model is used to decode.
+     * @param maxInterval the largest number of letters between two rebuilds.
+     * @throws IllegalArgumentException when maxInterval is not positive.
+     */
+    AdaptiveHuffmanModel(boolean decoding, int maxInterval) {
+        if (maxInterval < 1) {
+            throw new IllegalArgumentException("The rebuild interval must be positive.");
+        }
+        this.decoding = decoding;
+        this.maxInterval = maxInterval;
+        this.counts[ESCAPE] = 1;
+        this.total = 1;
+        rebuild();
+        this.interval = Math.min(FIRST_INTERVAL, maxInterval);
+        this.untilRebuild = interval;
+    }
+
+    /**
+     * Get the symbol of a letter.
+     *
+     * @param c the letter.
+     * @return the symbol of the letter, or ESCAPE when it was never seen.
+     */
+    int symbolOf(char c) {
+        return symbolOf[c];
+    }
+
+    /**
+     * Get the letter of a symbol.
+     *
+     * @param symbol the symbol, not ESCAPE.
+     * @return the letter.
+     */
+    char letterOf(int symbol) {
+        return letters[symbol];
+    }
+
+    /**
+     * Get the code of a symbol, for encoding.
+     *
+     * @param symbol the symbol.
+     * @return the code shifted above CompiledCodeBook.LENGTH_BITS bits holding its length,
+     * or 0 when the symbol was seen after the last rebuild.
+     */
+    long entry(int symbol) {
+        return symbol < entries.length ? entries[symbol] : 0;
+    }
+
+    /**
+     * Get the decoder of the current codes, for decoding.
+     *
+     * @return the CanonicalDecoder of the current codes.
+     */
+    CanonicalDecoder decoder() {
+        return decoder;
+    }
+
+    /**
+     * Gives a symbol to a letter seen for the first time.
+     *
+     * @param c the letter.
+     * @return the symbol of the letter.
+     */
+    int add(char c) {
+        if (size == letters.length) {
+            letters = Arrays.copyOf(letters, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        letters[size] = c;
+        symbolOf[c] = size;
+        return size++;
+    }
+
+    /**
+     * Counts a letter once it is coded, rebuilding the codes at the end of a block.
+     *
+     * @param symbol the symbol of the letter, not ESCAPE.
+     */
+    void update(int symbol) {
+        counts[symbol]++;
+        total++;
+        if (--untilRebuild == 0) {
+            if (total > RESCALE_LIMIT) {
+                total = 0;
+                for (int i = 0; i < size; i++) {
+                    counts[i] = (counts[i] + 1) / 2;
+                    total += counts[i];
+                }
+            }
+            rebuild();
+            interval = (int) Math.min(maxInterval, interval * 2L);
+            untilRebuild = Math.max(interval, size);
+        }
+    }
+
+    /**
+     * Builds the canonical codes of every symbol from the counts.
+     */
+    private void rebuild() {
+        int[] lengths = HuffmanCodeBuilder.codeLengths(Arrays.copyOf(counts, size), MAX_CODE_LENGTH);
+        if (decoding) {
+            decoder = new CanonicalDecoder(lengths);
+            return;
+        }
+        long[] codes = HuffmanCodeBuilder.canonicalCodes(lengths);
+        long[] built = new long[size];
+        for (int i = 0; i < size; i++) {
+            built[i] = (codes[i] << CompiledCodeBook.LENGTH_BITS) | lengths[i];
+        }
+        entries = built;
+    }
+}
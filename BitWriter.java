@@ -0,0 +1,226 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * This class packs codes into a 64-bit register and flushes whole words at a time.
+ * Words go either into a growing long array, or into a ByteBuffer given by the user (a byte array can be used
+ * through ByteBuffer.wrap). Bits are written most significant bit first, the same layout PackedBits uses.
+ * When bytes are produced, the last byte is padded with zeros and followed by a trailer byte
+ * holding the number of padding bits, so the exact bit length can be recovered by PackedBits.fromByteArray.
+ * A writer can be reset and reused, so encoding does not allocate once its buffer is large enough.
+ *
+ * @author Bilal Ahmed
+ */
+public final class BitWriter {
+    /**
+     * The longest code that can be written at once.
+     */
+    public static final int MAX_WRITE_BITS = 63;
+
+    /**
+     * The register holding the bits not flushed yet, in its lowest bits.
+     */
+    private long accumulator;
+    /**
+     * The number of bits held by the register, between 0 and 63.
+     */
+    private int pending;
+    /**
+     * The number of bits already flushed out of the register.
+     */
+    private long flushedBits;
+    /**
+     * The words flushed so far, or null when a ByteBuffer is used.
+     */
+    private long[] words;
+    /**
+     * The number of words flushed so far.
+     */
+    private int wordCount;
+    /**
+     * The ByteBuffer the words are flushed into, or null when the long array is used.
+     */
+    private ByteBuffer target;
+    /**
+     * Whether the words must be byte-swapped because the ByteBuffer is little-endian.
+     */
+    private boolean swap;
+
+    /**
+     * Constructor that initializes a BitWriter flushing into a growing long array.
+     */
+    public BitWriter() {
+        this(16);
+    }
+
+    /**
+     * Constructor that initializes a BitWriter flushing into a growing long array.
+     *
+     * @param initialWords the number of words the array starts with.
+     */
+    public BitWriter(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+        this.target = null;
+        this.swap = false;
+    }
+
+    /**
+     * Constructor that initializes a BitWriter flushing into a ByteBuffer.
+     * Words are written at the position of the buffer, which must have enough room for them.
+     *
+     * @param target the ByteBuffer the words are flushed into.
+     */
+    public BitWriter(ByteBuffer target) {
+        this.words = null;
+        this.target = target;
+        this.swap = target.order() == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * Continues flushing into another ByteBuffer, for example the next mapped region of a file.
+     * Bits held by the register are kept.
+     *
+     * @param target the ByteBuffer the next words are flushed into.
+     * @throws IllegalStateException when the writer flushes into a long array.
+     */
+    public void setTarget(ByteBuffer target) {
+        if (this.target == null) {
+            throw new IllegalStateException("The writer flushes into a long array.");
+        }
+        this.target = target;
+        this.swap = target.order() == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * Appends a code.
+     *
+     * @param code   the code, held in the lowest bits, with no bit set above its length.
+     * @param length the length of the code, between 0 and MAX_WRITE_BITS.
+     * @throws java.nio.BufferOverflowException when a word is flushed into a full ByteBuffer.
+     */
+    public void write(long code, int length) {
+        int free = Long.SIZE - pending;
+        if (length < free) {
+            accumulator = (accumulator << length) | code;
+            pending += length;
+        } else {
+            //The register is full: flush it and keep the bits that did not fit.
+            int rest = length - free;
+            flushWord((accumulator << free) | (code >>> rest));
+            accumulator = code;
+            pending = rest;
+        }
+    }
+
+    /**
+     * Appends a single bit.
+     *
+     * @param bit true to append a one, false to append a zero.
+     */
+    public void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Flushes a full register.
+     *
+     * @param word the 64 bits to be flushed.
+     */
+    private void flushWord(long word) {
+        if (target != null) {
+            target.putLong(swap ? Long.reverseBytes(word) : word);
+        } else {
+            if (wordCount == words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            words[wordCount++] = word;
+        }
+        flushedBits += Long.SIZE;
+    }
+
+    /**
+     * Moves the whole bytes held by the register into the ByteBuffer, leaving less than 8 bits in the register.
+     * Used to push out as much as possible without padding, for example when a stream is flushed.
+     *
+     * @throws IllegalStateException when the writer flushes into a long array.
+     */
+    public void flushBytes() {
+        if (target == null) {
+            throw new IllegalStateException("Bytes can only be flushed into a ByteBuffer.");
+        }
+        while (pending >= Byte.SIZE) {
+            pending -= Byte.SIZE;
+            target.put((byte) (accumulator >>> pending));
+            flushedBits += Byte.SIZE;
+        }
+    }
+
+    /**
+     * Pads the bits written to a whole byte and appends the trailer byte holding the number of padding bits.
+     * The ByteBuffer needs at most 9 more bytes of room. The writer is empty afterwards.
+     *
+     * @throws IllegalStateException when the writer flushes into a long array.
+     */
+    public void finish() {
+        flushBytes();
+        int padding = (Byte.SIZE - pending) & 7;
+        if (pending > 0) {
+            target.put((byte) (accumulator << padding));
+        }
+        target.put((byte) padding);
+        accumulator = 0;
+        pending = 0;
+        flushedBits = 0;
+    }
+
+    /**
+     * Empties the writer so it can be used again, keeping the long array it flushes into.
+     */
+    public void reset() {
+        accumulator = 0;
+        pending = 0;
+        flushedBits = 0;
+        wordCount = 0;
+    }
+
+    /**
+     * Get the number of bits written since the writer was created, reset or finished.
+     *
+     * @return a long representing the number of bits written.
+     */
+    public long getBitLength() {
+        return flushedBits + pending;
+    }
+
+    /**
+     * Copies the bits written into a PackedBits object.
+     *
+     * @return a PackedBits object holding the bits written.
+     * @throws IllegalStateException when the writer flushes into a ByteBuffer.
+     */
+    public PackedBits toPackedBits() {
+        if (target != null) {
+            throw new IllegalStateException("The bits were flushed into a ByteBuffer.");
+        }
+        long[] copy = Arrays.copyOf(words, wordCount + (pending > 0 ? 1 : 0));
+        if (pending > 0) {
+            copy[wordCount] = accumulator << (Long.SIZE - pending);
+        }
+        return new PackedBits(copy, getBitLength());
+    }
+
+    /**
+     * Copies the bits written into a byte array, padded to a whole byte and followed by the trailer byte.
+     *
+     * @return a byte array holding the bits written and the trailer.
+     * @throws IllegalStateException when the writer flushes into a ByteBuffer.
+     */
+    public byte[] toByteArray() {
+        return toPackedBits().toByteArray();
+    }
+}
@@ -0,0 +1,242 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class Huffman encodes and decodes bytes directly, over an alphabet of the 256 byte values.
+ * Binary payloads do not need to be turned into Strings first: codes are looked up by the unsigned value of each
+ * byte in a 256-entry array, and decoded bytes are written straight into a byte array or a ByteBuffer.
+ * The codec is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class ByteHuffmanCodec {
+    /**
+     * The number of byte values.
+     */
+    public static final int ALPHABET_SIZE = 256;
+
+    /**
+     * The codes of the byte values.
+     */
+    private final SymbolCodeBook codes;
+
+    /**
+     * Constructor that initializes the ByteHuffmanCodec object.
+     *
+     * @param codes the codes of the byte values.
+     */
+    private ByteHuffmanCodec(SymbolCodeBook codes) {
+        this.codes = codes;
+    }
+
+    /**
+     * Builds optimal codes from the count of each byte value.
+     *
+     * @param counts the count of each unsigned byte value, 256 of them.
+     * @return a ByteHuffmanCodec giving a code to every byte value with a count above zero.
+     * @throws IllegalArgumentException when there are not 256 counts, or none is above zero.
+     */
+    public static ByteHuffmanCodec fromCounts(long[] counts) {
+        if (counts.length != ALPHABET_SIZE) {
+            throw new IllegalArgumentException("There must be " + ALPHABET_SIZE + " counts.");
+        }
+        return new ByteHuffmanCodec(SymbolCodeBook.fromCounts(counts));
+    }
+
+    /**
+     * Builds optimal codes for the bytes of a sample.
+     *
+     * @param sample the bytes the codes are built for.
+     * @return a ByteHuffmanCodec giving a code to every byte value of the sample.
+     * @throws IllegalArgumentException when the sample is empty.
+     */
+    public static ByteHuffmanCodec fromSample(byte[] sample) {
+        return fromCounts(histogram(sample, 0, sample.length));
+    }
+
+    /**
+     * Builds canonical codes from saved code lengths, for example the ones getCodeLengths returned.
+     *
+     * @param lengths the code length of each unsigned byte value, 0 for values without a code.
+     * @return a ByteHuffmanCodec holding the canonical codes of the lengths.
+     * @throws IllegalArgumentException when there are not 256 lengths or they cannot be given prefix-free codes.
+     */
+    public static ByteHuffmanCodec fromCodeLengths(int[] lengths) {
+        if (lengths.length != ALPHABET_SIZE) {
+            throw new IllegalArgumentException("There must be " + ALPHABET_SIZE + " code lengths.");
+        }
+        return new ByteHuffmanCodec(new SymbolCodeBook(lengths.clone()));
+    }
+
+    /**
+     * Counts the byte values of part of an array.
+     *
+     * @param data   the bytes.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @return the count of each unsigned byte value.
+     */
+    public static long[] histogram(byte[] data, int offset, int length) {
+        long[] counts = new long[ALPHABET_SIZE];
+        for (int i = offset; i < offset + length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Encodes bytes into packed bits.
+     *
+     * @param data the bytes.
+     * @return a PackedBits object holding the encoded bytes.
+     * @throws IllegalArgumentException when a byte value has no code.
+     */
+    public PackedBits encode(byte[] data) {
+        BitWriter out = new BitWriter(Math.max(1, data.length / 8));
+        encode(data, 0, data.length, out);
+        return out.toPackedBits();
+    }
+
+    /**
+     * Encodes part of an array of bytes into a BitWriter.
+     *
+     * @param data   the bytes.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @param out    the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a byte value has no code.
+     */
+    public void encode(byte[] data, int offset, int length, BitWriter out) {
+        for (int i = offset; i < offset + length; i++) {
+            long entry = codes.entry(data[i] & 0xFF);
+            if (entry == 0) {
+                throw missingByte(data[i], i);
+            }
+            out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+        }
+    }
+
+    /**
+     * Encodes the bytes left in a buffer into a BitWriter, moving the buffer to its limit.
+     *
+     * @param data the buffer holding the bytes.
+     * @param out  the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a byte value has no code.
+     */
+    public void encode(ByteBuffer data, BitWriter out) {
+        int start = data.position();
+        int limit = data.limit();
+        for (int i = start; i < limit; i++) {
+            byte b = data.get(i);
+            long entry = codes.entry(b & 0xFF);
+            if (entry == 0) {
+                throw missingByte(b, i - start);
+            }
+            out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+        }
+        data.position(limit);
+    }
+
+    /**
+     * Decodes packed bits into bytes. An incomplete code at the end is ignored.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a byte array holding the decoded bytes.
+     * @throws IllegalArgumentException when the bits do not lead to any byte value.
+     */
+    public byte[] decode(PackedBits bits) {
+        byte[] data = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bits.getBitLength() / 4))];
+        ByteBuffer out = ByteBuffer.wrap(data);
+        long position = 0;
+        while (true) {
+            position = decode(bits.getWords(), position, bits.getBitLength(), out);
+            if (out.hasRemaining()) {
+                return Arrays.copyOf(data, out.position());
+            }
+            int count = out.position();
+            data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, data.length * 2L));
+            out = ByteBuffer.wrap(data);
+            out.position(count);
+        }
+    }
+
+    /**
+     * Decodes a range of bits into a buffer, without allocating.
+     * Stops when the buffer is full or the bits left do not hold a whole code.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded.
+     * @param toBit   the position after the last bit that can be decoded.
+     * @param out     the buffer the bytes are written to.
+     * @return the position of the first bit not decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any byte value.
+     */
+    public long decode(long[] words, long fromBit, long toBit, ByteBuffer out) {
+        CanonicalDecoder decoder = codes.decoder();
+        long position = fromBit;
+        while (out.hasRemaining()) {
+            long result = decoder.decode(words, position, toBit);
+            if (result < 0) {
+                break;
+            }
+            out.put((byte) (result >>> CanonicalDecoder.LENGTH_BITS));
+            position += result & ((1 << CanonicalDecoder.LENGTH_BITS) - 1);
+        }
+        return position;
+    }
+
+    /**
+     * Get the code length of a byte value.
+     *
+     * @param b the byte value, signed or unsigned.
+     * @return an int representing the number of bits of its code, or 0 when it has no code.
+     */
+    public int getCodeLength(int b) {
+        return (int) (codes.entry(b & 0xFF) & CompiledCodeBook.LENGTH_MASK);
+    }
+
+    /**
+     * Get the code of a byte value.
+     *
+     * @param b the byte value, signed or unsigned.
+     * @return a long holding the code in its lowest bits.
+     * @throws IllegalArgumentException when the byte value has no code.
+     */
+    public long getCode(int b) {
+        long entry = codes.entry(b & 0xFF);
+        if (entry == 0) {
+            throw missingByte((byte) b, -1);
+        }
+        return entry >>> CompiledCodeBook.LENGTH_BITS;
+    }
+
+    /**
+     * Get the code length of every byte value, which is enough to rebuild the codec with fromCodeLengths.
+     *
+     * @return an array of 256 code lengths, 0 for values without a code.
+     */
+    public int[] getCodeLengths() {
+        int[] lengths = new int[ALPHABET_SIZE];
+        for (int b = 0; b < ALPHABET_SIZE; b++) {
+            lengths[b] = getCodeLength(b);
+        }
+        return lengths;
+    }
+
+    /**
+     * Creates the exception thrown when a byte value has no code.
+     *
+     * @param b        the byte.
+     * @param position the position of the byte in the input, or -1 when there is no input.
+     * @return an IllegalArgumentException describing the byte.
+     */
+    private static IllegalArgumentException missingByte(byte b, long position) {
+        String where = position < 0 ? "" : " at index " + position;
+        return new IllegalArgumentException("Byte 0x" + String.format("%02X", b & 0xFF) + where
+                + " is not in the codebook.");
+    }
+}
@@ -0,0 +1,166 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.Arrays;
+
+/**
+ * This class decodes canonical codes given by their lengths, for symbols numbered by an int index.
+ * Codes up to the lookup width are decoded by a single table lookup; longer ones continue bit by bit with the
+ * canonical rule: the codes of a length are consecutive, so a code is found by subtracting the first code of its
+ * length. The table only grows with the lookup width and the number of symbols, not with the longest code,
+ * so a decoder is cheap enough to be rebuilt often, as adaptive coding does.
+ *
+ * @author Bilal Ahmed
+ */
+final class CanonicalDecoder {
+    /**
+     * The longest code a decoder can hold.
+     */
+    static final int MAX_CODE_LENGTH = 32;
+    /**
+     * The largest number of bits read by a table lookup.
+     */
+    static final int DEFAULT_LOOKUP_BITS = 10;
+    /**
+     * The number of bits of a result holding the code length.
+     */
+    static final int LENGTH_BITS = 8;
+
+    /**
+     * The number of bits read by a table lookup.
+     */
+    private final int lookupBits;
+    /**
+     * The length of the longest code.
+     */
+    private final int maxLength;
+    /**
+     * The symbol and length of every lookup, or 0 when the code is longer than the lookup.
+     */
+    private final long[] table;
+    /**
+     * The first code of each length.
+     */
+    private final long[] firstCode;
+    /**
+     * The number of codes of each length.
+     */
+    private final int[] lengthCount;
+    /**
+     * The index in sorted of the first symbol of each length.
+     */
+    private final int[] lengthOffset;
+    /**
+     * The symbols sorted by code length, then by index, which is the order of their codes.
+     */
+    private final int[] sorted;
+
+    /**
+     * Constructor that initializes the CanonicalDecoder object.
+     * Codes are the ones HuffmanCodeBuilder.canonicalCodes gives the symbols with a length, in index order.
+     *
+     * @param lengths the code length of each symbol, 0 for symbols without a code.
+     * @throws IllegalArgumentException when no symbol has a code or a length is out of range.
+     */
+    CanonicalDecoder(int[] lengths) {
+        int max = 0;
+        int present = 0;
+        for (int length : lengths) {
+            if (length < 0 || length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code length " + length + " is out of range.");
+            }
+            max = Math.max(max, length);
+            present += length > 0 ? 1 : 0;
+        }
+        if (present == 0) {
+            throw new IllegalArgumentException("No symbol has a code.");
+        }
+        this.maxLength = max;
+        this.lookupBits = Math.min(max, DEFAULT_LOOKUP_BITS);
+        this.lengthCount = new int[max + 1];
+        for (int length : lengths) {
+            if (length > 0) {
+                lengthCount[length]++;
+            }
+        }
+        this.lengthOffset = new int[max + 2];
+        this.firstCode = new long[max + 1];
+        long code = 0;
+        for (int length = 1; length <= max; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            firstCode[length] = code;
+            lengthOffset[length + 1] = lengthOffset[length] + lengthCount[length];
+        }
+        lengthCount[0] = 0;
+
+        this.sorted = new int[present];
+        int[] next = Arrays.copyOf(lengthOffset, max + 1);
+        this.table = new long[1 << lookupBits];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            int rank = next[length]++;
+            sorted[rank] = symbol;
+            if (length <= lookupBits) {
+                long symbolCode = firstCode[length] + rank - lengthOffset[length];
+                int shift = lookupBits - length;
+                int start = (int) (symbolCode << shift);
+                Arrays.fill(table, start, start + (1 << shift), ((long) symbol << LENGTH_BITS) | length);
+            }
+        }
+    }
+
+    /**
+     * Decodes the symbol whose code starts at a given position.
+     *
+     * @param words    the words holding the bits, most significant bit first.
+     * @param position the position of the first bit of the code.
+     * @param toBit    the position after the last bit that can be read.
+     * @return the symbol shifted above LENGTH_BITS bits holding the code length,
+     * or -1 when the bits end before the code does.
+     * @throws IllegalArgumentException when the bits do not lead to any symbol.
+     */
+    long decode(long[] words, long position, long toBit) {
+        long available = toBit - position;
+        if (available <= 0) {
+            return -1;
+        }
+        int length = 0;
+        long code = 0;
+        if (available >= lookupBits) {
+            int bits = PackedBits.peek(words, position, lookupBits);
+            long entry = table[bits];
+            if (entry != 0) {
+                return entry;
+            }
+            length = lookupBits;
+            code = bits;
+        }
+        while (true) {
+            if (++length > maxLength) {
+                throw new IllegalArgumentException("Bits at position " + position + " do not lead to any letter.");
+            }
+            if (length > available) {
+                return -1;
+            }
+            long bit = position + length - 1;
+            code = (code << 1) | ((words[(int) (bit >>> 6)] << (bit & 63)) >>> 63);
+            long rank = code - firstCode[length];
+            if (rank >= 0 && rank < lengthCount[length]) {
+                return ((long) sorted[lengthOffset[length] + (int) rank] << LENGTH_BITS) | length;
+            }
+        }
+    }
+
+    /**
+     * Get the length of the longest code.
+     *
+     * @return an int representing the number of bits of the longest code.
+     */
+    int getMaxCodeLength() {
+        return maxLength;
+    }
+}
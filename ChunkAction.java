@@ -0,0 +1,73 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * This class runs an action for every index of a range in a fork-join pool.
+ * The range is split in halves until a single index is left, so every chunk or block gets its own task.
+ *
+ * @author Bilal Ahmed
+ */
+final class ChunkAction extends RecursiveAction {
+    /**
+     * The serialization version, required of every RecursiveAction.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The first index of the range.
+     */
+    private final int from;
+    /**
+     * The index after the last one of the range.
+     */
+    private final int to;
+    /**
+     * The action run for each index.
+     */
+    private final IntConsumer action;
+
+    /**
+     * Constructor that initializes the ChunkAction object.
+     *
+     * @param from   the first index of the range.
+     * @param to     the index after the last one of the range.
+     * @param action the action run for each index.
+     */
+    ChunkAction(int from, int to, IntConsumer action) {
+        this.from = from;
+        this.to = to;
+        this.action = action;
+    }
+
+    /**
+     * Runs an action for every index between 0 and count in a pool, and waits for all of them.
+     * Everything written by the actions is visible to the caller once this method returns.
+     *
+     * @param pool   the pool the actions run in.
+     * @param count  the number of indices.
+     * @param action the action run for each index.
+     */
+    static void run(ForkJoinPool pool, int count, IntConsumer action) {
+        if (count > 0) {
+            pool.invoke(new ChunkAction(0, count, action));
+        }
+    }
+
+    /**
+     * Runs the action, splitting the range first when it holds more than one index.
+     */
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            action.accept(from);
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkAction(from, middle, action), new ChunkAction(middle, to, action));
+        }
+    }
+}
@@ -0,0 +1,310 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class saves and loads codebooks in a compact binary form.
+ * Only canonical codebooks are stored, the kind HuffmanCodeBuilder builds: their codes follow from the code
+ * lengths alone, so each letter takes its distance from the previous letter and its length, usually two bytes.
+ * Loading reads straight from a ByteBuffer, which may wrap a mapped file or a stream header, into the arrays
+ * of a CompiledCodeBook, without BinarySequence or HuffmanNode objects on the way.
+ *
+ * <p>Layout:
+ * <pre>
+ * int     magic "HUFC", big-endian
+ * byte    version
+ * varint  number of letters
+ * for each letter, in ascending order:
+ *   varint  distance from the previous letter minus one, or the letter itself for the first one
+ *   byte    code length
+ * </pre>
+ * Varints are unsigned, seven bits per byte, lowest bits first, the high bit set on every byte but the last.
+ *
+ * @author Bilal Ahmed
+ */
+public final class CodeBookSerializer {
+    /**
+     * The first four bytes of every serialized codebook, "HUFC".
+     */
+    static final int MAGIC = 0x48554643;
+    /**
+     * The version of the layout.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private CodeBookSerializer() {
+    }
+
+    /**
+     * Saves a codebook into a new byte array.
+     *
+     * @param book the canonical codebook.
+     * @return a byte array holding the codebook.
+     * @throws IllegalArgumentException when the codebook is not canonical.
+     */
+    public static byte[] write(CompiledCodeBook book) {
+        ByteBuffer buffer = ByteBuffer.allocate(serializedSize(book));
+        write(book, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Saves a codebook into a buffer, from its position.
+     *
+     * @param book the canonical codebook.
+     * @param out  the buffer, with at least serializedSize(book) bytes of room.
+     * @throws IllegalArgumentException        when the codebook is not canonical.
+     * @throws java.nio.BufferOverflowException when the buffer does not have enough room.
+     */
+    public static void write(CompiledCodeBook book, ByteBuffer out) {
+        if (!isCanonical(book)) {
+            throw new IllegalArgumentException("Only canonical codebooks can be saved, see canonicalize.");
+        }
+        out.putInt(MAGIC).put(VERSION);
+        writeCodes(book, out);
+    }
+
+    /**
+     * Computes the number of bytes a codebook is saved into.
+     *
+     * @param book the codebook.
+     * @return an int representing the number of bytes.
+     */
+    public static int serializedSize(CompiledCodeBook book) {
+        return Integer.BYTES + 1 + codesSize(book);
+    }
+
+    /**
+     * Loads a codebook from a byte array.
+     *
+     * @param data the bytes of the codebook.
+     * @return a CompiledCodeBook holding the codes.
+     * @throws IllegalArgumentException when the bytes are not a valid codebook.
+     */
+    public static CompiledCodeBook read(byte[] data) {
+        return read(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Loads a codebook from a buffer, from its position, which is left after the codebook.
+     *
+     * @param in the buffer holding the codebook.
+     * @return a CompiledCodeBook holding the codes.
+     * @throws IllegalArgumentException when the bytes are not a valid codebook.
+     */
+    public static CompiledCodeBook read(ByteBuffer in) {
+        try {
+            if (in.getInt() != MAGIC || in.get() != VERSION) {
+                throw new IllegalArgumentException("The bytes are not a serialized codebook.");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The codebook is truncated.", e);
+        }
+        return readCodes(in);
+    }
+
+    /**
+     * Loads a codebook from a buffer and builds its codec, decode table included.
+     * The tree can be obtained with getCodeBook().toCodeTree() when it is needed.
+     *
+     * @param in the buffer holding the codebook.
+     * @return a HuffmanCodec holding the codes.
+     * @throws IllegalArgumentException when the bytes are not a valid codebook.
+     */
+    public static HuffmanCodec readCodec(ByteBuffer in) {
+        return new HuffmanCodec(read(in));
+    }
+
+    /**
+     * Tells whether a codebook is canonical: codes of the same length follow each other in the order of their
+     * letters, and each length starts right after the codes of the length below, shifted by one bit.
+     *
+     * @param book the codebook.
+     * @return a boolean indicating whether the codes can be rebuilt from the lengths.
+     */
+    public static boolean isCanonical(CompiledCodeBook book) {
+        int[] lengths = lengths(book);
+        long[] canonical = HuffmanCodeBuilder.canonicalCodes(lengths);
+        for (int i = 0; i < lengths.length; i++) {
+            if (canonical[i] != book.getCodeAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the canonical codebook with the same letters and code lengths, which compresses exactly as well.
+     * Text encoded with the original codebook cannot be decoded by the canonical one unless both are equal.
+     *
+     * @param book the codebook.
+     * @return a canonical CompiledCodeBook.
+     * @throws IllegalArgumentException when the lengths cannot be given prefix-free codes.
+     */
+    public static CompiledCodeBook canonicalize(CompiledCodeBook book) {
+        int[] lengths = lengths(book);
+        char[] symbols = new char[lengths.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = book.getSymbol(i);
+        }
+        checkKraft(lengths);
+        return new CompiledCodeBook(symbols, HuffmanCodeBuilder.canonicalCodes(lengths), lengths);
+    }
+
+    /**
+     * Writes the letters and lengths of a codebook, without the magic and version.
+     *
+     * @param book the canonical codebook.
+     * @param out  the buffer the bytes are written to.
+     */
+    static void writeCodes(CompiledCodeBook book, ByteBuffer out) {
+        putVarint(out, book.getSymbolCount());
+        int previous = -1;
+        for (int i = 0; i < book.getSymbolCount(); i++) {
+            putVarint(out, book.getSymbol(i) - previous - 1);
+            out.put((byte) book.getLengthAt(i));
+            previous = book.getSymbol(i);
+        }
+    }
+
+    /**
+     * Computes the number of bytes written by writeCodes.
+     *
+     * @param book the codebook.
+     * @return an int representing the number of bytes.
+     */
+    static int codesSize(CompiledCodeBook book) {
+        int size = varintSize(book.getSymbolCount());
+        int previous = -1;
+        for (int i = 0; i < book.getSymbolCount(); i++) {
+            size += varintSize(book.getSymbol(i) - previous - 1) + 1;
+            previous = book.getSymbol(i);
+        }
+        return size;
+    }
+
+    /**
+     * Reads the letters and lengths written by writeCodes and rebuilds their canonical codes.
+     *
+     * @param in the buffer the bytes are read from.
+     * @return a CompiledCodeBook holding the codes.
+     * @throws IllegalArgumentException when the bytes are not valid.
+     */
+    static CompiledCodeBook readCodes(ByteBuffer in) {
+        try {
+            int count = getVarint(in);
+            if (count < 1 || count > HuffmanCodeBuilder.ALPHABET_SIZE) {
+                throw new IllegalArgumentException("Invalid number of letters " + count + ".");
+            }
+            char[] symbols = new char[count];
+            int[] lengths = new int[count];
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                //In long arithmetic, so a huge distance from an untrusted buffer cannot wrap back into range.
+                long letter = previous + 1L + getVarint(in);
+                if (letter > Character.MAX_VALUE) {
+                    throw new IllegalArgumentException("Letter " + letter + " is out of range.");
+                }
+                symbols[i] = (char) letter;
+                lengths[i] = in.get();
+                if (lengths[i] < 1 || lengths[i] > CompiledCodeBook.MAX_CODE_LENGTH) {
+                    throw new IllegalArgumentException("Invalid code length " + lengths[i] + ".");
+                }
+                previous = (int) letter;
+            }
+            checkKraft(lengths);
+            return new CompiledCodeBook(symbols, HuffmanCodeBuilder.canonicalCodes(lengths), lengths);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The codebook is truncated.", e);
+        }
+    }
+
+    /**
+     * Copies the code lengths of a codebook.
+     *
+     * @param book the codebook.
+     * @return the code length of each letter, in the order of the letters.
+     */
+    private static int[] lengths(CompiledCodeBook book) {
+        int[] lengths = new int[book.getSymbolCount()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = book.getLengthAt(i);
+        }
+        return lengths;
+    }
+
+    /**
+     * Checks that code lengths leave room for prefix-free codes, that is, the sum of 2^-length is at most one.
+     *
+     * @param lengths the code lengths, between 1 and MAX_CODE_LENGTH.
+     * @throws IllegalArgumentException when the lengths ask for more codes than there is room for.
+     */
+    static void checkKraft(int[] lengths) {
+        long room = 1L << CompiledCodeBook.MAX_CODE_LENGTH;
+        long used = 0;
+        for (int length : lengths) {
+            used += 1L << (CompiledCodeBook.MAX_CODE_LENGTH - length);
+            if (used > room) {
+                throw new IllegalArgumentException("The code lengths cannot be given prefix-free codes.");
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param out   the buffer the bytes are written to.
+     * @param value the value, at least zero.
+     */
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param in the buffer the bytes are read from.
+     * @return the value.
+     * @throws IllegalArgumentException when the varint does not fit in an int.
+     */
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = in.get();
+            if (shift == 28 && (b & 0x78) != 0) {
+                //The fifth byte only has room for bits 28 to 30, the others would be lost or make it negative.
+                break;
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint.");
+    }
+
+    /**
+     * Computes the number of bytes of an unsigned varint.
+     *
+     * @param value the value, at least zero.
+     * @return an int representing the number of bytes.
+     */
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
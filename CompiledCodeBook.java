@@ -0,0 +1,525 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.Arrays;
+
+/**
+ * This class is a compiled, read-only form of a HuffmanCodeBook.
+ * Each code is stored as a long holding its bits together with its length, in an array indexed by the letter,
+ * so encoding a letter costs one array load instead of a binary search over DataHolder objects.
+ * Alphabets spread over a small range of chars use a single flat array starting at the smallest letter.
+ * Sparse alphabets use a two-level array of 256-letter pages, where pages without letters are shared.
+ *
+ * @author Bilal Ahmed
+ */
+public final class CompiledCodeBook {
+    /**
+     * The longest code a compiled codebook can hold.
+     */
+    public static final int MAX_CODE_LENGTH = 57;
+    /**
+     * The number of bits of the literal following an escape code, enough for any char.
+     */
+    public static final int LITERAL_BITS = Character.SIZE;
+    /**
+     * The largest range of chars always stored in a single flat array.
+     */
+    private static final int DENSE_SPAN_LIMIT = 4096;
+    /**
+     * The number of bits of an entry holding the code length.
+     */
+    static final int LENGTH_BITS = 6;
+    /**
+     * Mask of the code length in an entry.
+     */
+    static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    /**
+     * The page used for every range of 256 chars without any letter.
+     */
+    private static final long[] EMPTY_PAGE = new long[256];
+
+    /**
+     * The letters of the codebook, in ascending order.
+     */
+    private final char[] symbols;
+    /**
+     * The code of each letter, in the order of symbols.
+     */
+    private final long[] codes;
+    /**
+     * The code length of each letter, in the order of symbols.
+     */
+    private final int[] lengths;
+    /**
+     * The smallest letter, which is the first index of the flat array.
+     */
+    private final char base;
+    /**
+     * The flat array of entries, or null when the pages are used.
+     */
+    private final long[] dense;
+    /**
+     * The pages of entries, or null when the flat array is used.
+     */
+    private final long[][] pages;
+    /**
+     * The fingerprint of the codes, or 0 when it was not computed yet.
+     */
+    private volatile long fingerprint;
+
+    /**
+     * Constructor that initializes the CompiledCodeBook object from a HuffmanCodeBook.
+     *
+     * @param book the HuffmanCodeBook that will be compiled.
+     * @throws IllegalArgumentException when the codebook is empty, holds a letter twice,
+     *                                  or holds a code that is empty or longer than MAX_CODE_LENGTH.
+     */
+    public CompiledCodeBook(HuffmanCodeBook book) {
+        int size = book.getLengthOfCodeBook();
+        char[] letters = new char[size];
+        long[] bits = new long[size];
+        int[] sizes = new int[size];
+        for (int index = 0; index < size; index++) {
+            char letter = book.getCharAtIndex(index);
+            long code = 0;
+            int length = 0;
+            for (Boolean bool : book.getBinarySequenceAtIndex(index)) {
+                if (++length > MAX_CODE_LENGTH) {
+                    throw new IllegalArgumentException("Code of '" + letter + "' is longer than "
+                            + MAX_CODE_LENGTH + " bits.");
+                }
+                code = (code << 1) | (bool ? 1 : 0);
+            }
+            letters[index] = letter;
+            bits[index] = code;
+            sizes[index] = length;
+        }
+        this.symbols = letters;
+        this.codes = bits;
+        this.lengths = sizes;
+        validate();
+        this.base = symbols[0];
+        this.dense = buildDense();
+        this.pages = dense == null ? buildPages() : null;
+    }
+
+    /**
+     * Constructor that initializes the CompiledCodeBook object from codes already in primitive form.
+     * The arrays are not copied.
+     *
+     * @param symbols the letters, in ascending order.
+     * @param codes   the code of each letter.
+     * @param lengths the code length of each letter.
+     * @throws IllegalArgumentException when the letters are not in ascending order or a code is invalid.
+     */
+    CompiledCodeBook(char[] symbols, long[] codes, int[] lengths) {
+        if (symbols.length != codes.length || symbols.length != lengths.length) {
+            throw new IllegalArgumentException("Letters, codes and lengths must have the same size.");
+        }
+        this.symbols = symbols;
+        this.codes = codes;
+        this.lengths = lengths;
+        validate();
+        this.base = symbols[0];
+        this.dense = buildDense();
+        this.pages = dense == null ? buildPages() : null;
+    }
+
+    /**
+     * Builds a CompiledCodeBook from codes in primitive form, given in any order.
+     * The arrays are copied and sorted once, so loading n letters costs O(n log n)
+     * and no DataHolder or BinarySequence is created.
+     *
+     * @param letters the letters.
+     * @param codes   the code of each letter, in its lowest bits.
+     * @param lengths the code length of each letter.
+     * @return a CompiledCodeBook holding the given codes.
+     * @throws IllegalArgumentException when the arrays do not have the same size, a letter appears twice,
+     *                                  or a code is invalid.
+     */
+    public static CompiledCodeBook of(char[] letters, long[] codes, int[] lengths) {
+        if (letters.length != codes.length || letters.length != lengths.length) {
+            throw new IllegalArgumentException("Letters, codes and lengths must have the same size.");
+        }
+        //Sorting the letters together with their index keeps the sort on primitives.
+        long[] keys = new long[letters.length];
+        for (int i = 0; i < letters.length; i++) {
+            keys[i] = ((long) letters[i] << Integer.SIZE) | i;
+        }
+        Arrays.sort(keys);
+        char[] sortedLetters = new char[keys.length];
+        long[] sortedCodes = new long[keys.length];
+        int[] sortedLengths = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int index = (int) keys[i];
+            sortedLetters[i] = letters[index];
+            sortedCodes[i] = codes[index];
+            sortedLengths[i] = lengths[index];
+        }
+        return new CompiledCodeBook(sortedLetters, sortedCodes, sortedLengths);
+    }
+
+    /**
+     * Checks that the letters are ascending and unique, and that every code has a valid length.
+     *
+     * @throws IllegalArgumentException when the letters or the codes are invalid.
+     */
+    private void validate() {
+        if (symbols.length == 0) {
+            throw new IllegalArgumentException("The codebook does not hold any letter.");
+        }
+        for (int i = 0; i < symbols.length; i++) {
+            if (i > 0 && symbols[i] <= symbols[i - 1]) {
+                throw new IllegalArgumentException("Letter '" + symbols[i] + "' is out of order or appears twice.");
+            }
+            if (lengths[i] < 1 || lengths[i] > MAX_CODE_LENGTH || (codes[i] >>> lengths[i]) != 0) {
+                throw new IllegalArgumentException("Code of '" + symbols[i] + "' must be between 1 and "
+                        + MAX_CODE_LENGTH + " bits long.");
+            }
+        }
+    }
+
+    /**
+     * Creates the flat array of entries, when the letters are close enough to each other.
+     *
+     * @return the flat array of entries, or null when the alphabet is too sparse.
+     */
+    private long[] buildDense() {
+        int span = symbols[symbols.length - 1] - symbols[0] + 1;
+        if (span > DENSE_SPAN_LIMIT && span > symbols.length * 16) {
+            return null;
+        }
+        long[] entries = new long[span];
+        for (int i = 0; i < symbols.length; i++) {
+            entries[symbols[i] - symbols[0]] = entry(i);
+        }
+        return entries;
+    }
+
+    /**
+     * Creates the pages of entries.
+     *
+     * @return the 256 pages of entries.
+     */
+    private long[][] buildPages() {
+        long[][] table = new long[256][];
+        Arrays.fill(table, EMPTY_PAGE);
+        for (int i = 0; i < symbols.length; i++) {
+            char c = symbols[i];
+            if (table[c >>> 8] == EMPTY_PAGE) {
+                table[c >>> 8] = new long[256];
+            }
+            table[c >>> 8][c & 0xFF] = entry(i);
+        }
+        return table;
+    }
+
+    /**
+     * Creates the entry of a letter.
+     *
+     * @param index the index of the letter.
+     * @return the code shifted above the code length.
+     */
+    private long entry(int index) {
+        return (codes[index] << LENGTH_BITS) | lengths[index];
+    }
+
+    /**
+     * Get the entry of a letter.
+     *
+     * @param c the letter.
+     * @return the code shifted above the code length, or 0 when the letter is not in the codebook.
+     */
+    long lookup(char c) {
+        if (dense != null) {
+            int index = (char) (c - base);
+            return index < dense.length ? dense[index] : 0;
+        }
+        return pages[c >>> 8][c & 0xFF];
+    }
+
+    /**
+     * Returns whether the codebook contains a given letter.
+     *
+     * @param c the character to be searched for.
+     * @return a boolean representing whether the letter was found or not.
+     */
+    public boolean contains(char c) {
+        return lookup(c) != 0;
+    }
+
+    /**
+     * Get the code of a letter.
+     *
+     * @param c the letter.
+     * @return a long holding the code in its lowest bits.
+     * @throws IllegalArgumentException when the letter is not in the codebook.
+     */
+    public long getCode(char c) {
+        long entry = lookup(c);
+        if (entry == 0) {
+            throw missingLetter(c, -1);
+        }
+        return entry >>> LENGTH_BITS;
+    }
+
+    /**
+     * Get the code length of a letter.
+     *
+     * @param c the letter.
+     * @return an int representing the code length, or 0 when the letter is not in the codebook.
+     */
+    public int getCodeLength(char c) {
+        return (int) (lookup(c) & LENGTH_MASK);
+    }
+
+    /**
+     * Computes the number of bits the encoded string will take.
+     *
+     * @param s the input string.
+     * @return a long representing the number of bits.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public long encodedLength(CharSequence s) {
+        long total = 0;
+        for (int i = 0; i < s.length(); i++) {
+            long entry = lookup(s.charAt(i));
+            if (entry == 0) {
+                throw missingLetter(s.charAt(i), i);
+            }
+            total += entry & LENGTH_MASK;
+        }
+        return total;
+    }
+
+    /**
+     * Computes the number of bits the string will take when encoded with an escape letter.
+     *
+     * @param s      the input string.
+     * @param escape the letter whose code announces a literal.
+     * @return a long representing the number of bits.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook.
+     */
+    public long encodedLength(CharSequence s, char escape) {
+        long escapeLength = escapeEntry(escape) & LENGTH_MASK;
+        long total = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            long entry = c == escape ? 0 : lookup(c);
+            total += entry == 0 ? escapeLength + LITERAL_BITS : entry & LENGTH_MASK;
+        }
+        return total;
+    }
+
+    /**
+     * Encodes the input string into packed bits.
+     *
+     * @param s the input string.
+     * @return a PackedBits object holding the encoded string.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public PackedBits encode(CharSequence s) {
+        BitWriter out = new BitWriter(Math.max(1, s.length() / 16));
+        encode(s, out);
+        return out.toPackedBits();
+    }
+
+    /**
+     * Encodes the input string into a BitWriter.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public void encode(CharSequence s, BitWriter out) {
+        encode(s, 0, s.length(), out);
+    }
+
+    /**
+     * Encodes part of the input string into a BitWriter.
+     *
+     * @param s    the input string.
+     * @param from the index of the first letter to be encoded.
+     * @param to   the index after the last letter to be encoded.
+     * @param out  the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public void encode(CharSequence s, int from, int to, BitWriter out) {
+        for (int i = from; i < to; i++) {
+            long entry = lookup(s.charAt(i));
+            if (entry == 0) {
+                throw missingLetter(s.charAt(i), i);
+            }
+            out.write(entry >>> LENGTH_BITS, (int) (entry & LENGTH_MASK));
+        }
+    }
+
+    /**
+     * Encodes part of the input string into a BitWriter, so any text can be encoded.
+     * A letter that is not in the codebook, or that is the escape letter itself, is written as the code of the
+     * escape letter followed by the LITERAL_BITS bits of the letter. Missing letters are found during the single
+     * pass over the string, so there is no need to call containsAll first.
+     *
+     * @param s      the input string.
+     * @param from   the index of the first letter to be encoded.
+     * @param to     the index after the last letter to be encoded.
+     * @param escape the letter whose code announces a literal.
+     * @param out    the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook.
+     */
+    public void encode(CharSequence s, int from, int to, char escape, BitWriter out) {
+        long escapeEntry = escapeEntry(escape);
+        long escapeCode = escapeEntry >>> LENGTH_BITS;
+        int escapeLength = (int) (escapeEntry & LENGTH_MASK);
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            long entry = c == escape ? 0 : lookup(c);
+            if (entry == 0) {
+                out.write(escapeCode, escapeLength);
+                out.write(c, LITERAL_BITS);
+            } else {
+                out.write(entry >>> LENGTH_BITS, (int) (entry & LENGTH_MASK));
+            }
+        }
+    }
+
+    /**
+     * Get the entry of the escape letter.
+     *
+     * @param escape the escape letter.
+     * @return the entry of the letter.
+     * @throws IllegalArgumentException when the letter is not in the codebook.
+     */
+    private long escapeEntry(char escape) {
+        long entry = lookup(escape);
+        if (entry == 0) {
+            throw new IllegalArgumentException("Escape letter U+" + String.format("%04X", (int) escape)
+                    + " is not in the codebook.");
+        }
+        return entry;
+    }
+
+    /**
+     * Creates the HuffmanCodeTree holding the codes of this codebook.
+     *
+     * @return a HuffmanCodeTree that decodes what this codebook encodes.
+     */
+    public HuffmanCodeTree toCodeTree() {
+        HuffmanCodeTree tree = new HuffmanCodeTree(new HuffmanNode());
+        for (int i = 0; i < symbols.length; i++) {
+            tree.put(codes[i], lengths[i], symbols[i]);
+        }
+        return tree;
+    }
+
+    /**
+     * Estimates the heap size of the codebook arrays, pages without letters counted once.
+     *
+     * @return a long representing the size in bytes.
+     */
+    long getFootprintBytes() {
+        long bytes = (long) symbols.length * (Character.BYTES + Long.BYTES + Integer.BYTES);
+        if (dense != null) {
+            return bytes + (long) dense.length * Long.BYTES;
+        }
+        bytes += (long) pages.length * Long.BYTES;
+        for (long[] page : pages) {
+            if (page != EMPTY_PAGE) {
+                bytes += (long) page.length * Long.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Get a 64-bit fingerprint of the letters, codes and code lengths, computed on the first call and kept.
+     * Codebooks holding the same codes have the same fingerprint.
+     *
+     * @return a long representing the fingerprint.
+     */
+    public long getFingerprint() {
+        long hash = fingerprint;
+        if (hash == 0) {
+            hash = 0x9E3779B97F4A7C15L;
+            for (int i = 0; i < symbols.length; i++) {
+                long value = ((long) symbols[i] << 48) ^ ((long) lengths[i] << 40) ^ codes[i];
+                hash = mix(hash ^ value) + i;
+            }
+            hash = mix(hash ^ symbols.length);
+            fingerprint = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Scrambles the bits of a long, the finalizer of the SplitMix64 generator.
+     *
+     * @param z the long to be scrambled.
+     * @return the scrambled long.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    ///////////////////////////////////////////////////////
+    // Iteration Methods below.
+    ///////////////////////////////////////////////////////
+
+    /**
+     * Get the number of letters of the codebook.
+     *
+     * @return an int representing the number of letters.
+     */
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * Get the letter at a given index, letters being in ascending order.
+     *
+     * @param index int representing the given index.
+     * @return a char representing the letter at the index.
+     * @throws IndexOutOfBoundsException when index is greater than the number of letters.
+     */
+    public char getSymbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * Get the code of the letter at a given index.
+     *
+     * @param index int representing the given index.
+     * @return a long holding the code in its lowest bits.
+     * @throws IndexOutOfBoundsException when index is greater than the number of letters.
+     */
+    public long getCodeAt(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Get the code length of the letter at a given index.
+     *
+     * @param index int representing the given index.
+     * @return an int representing the code length.
+     * @throws IndexOutOfBoundsException when index is greater than the number of letters.
+     */
+    public int getLengthAt(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Creates the exception thrown when a letter is not in the codebook.
+     *
+     * @param c        the missing letter.
+     * @param position the position of the letter in the input, or -1 when there is no input.
+     * @return an IllegalArgumentException describing the letter.
+     */
+    static IllegalArgumentException missingLetter(char c, long position) {
+        String where = position < 0 ? "" : " at index " + position;
+        return new IllegalArgumentException("Character '" + c + "' (U+" + String.format("%04X", (int) c) + ")"
+                + where + " is not in the codebook.");
+    }
+}
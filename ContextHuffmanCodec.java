@@ -0,0 +1,417 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+
+/**
+ * This class encodes each letter with a codebook chosen by the letter before it, an order-1 context model.
+ * In logs, JSON and most text the next letter depends strongly on the previous one, so codes tuned to each
+ * context are shorter than the codes of a single codebook for the whole text.
+ * The previous letter is mapped to a context class by one array index; training gives each of the most frequent
+ * previous letters a class of its own and puts every other letter in a shared class 0.
+ * A letter that is not in the codebook of its context is written as the escape code of that context followed by
+ * its code in an order-0 codebook for the whole text, which itself escapes to a 16-bit literal, so any text can be
+ * encoded. The first letter of a message is coded in the context of U+0000.
+ * The codec is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class ContextHuffmanCodec {
+    /**
+     * The default number of context classes.
+     */
+    public static final int DEFAULT_CONTEXT_CLASSES = 64;
+    /**
+     * The largest number of context classes, since a class is stored in a byte.
+     */
+    public static final int MAX_CONTEXT_CLASSES = 256;
+
+    /**
+     * The context class of each previous letter, indexed by the char.
+     */
+    private final byte[] contextOf;
+    /**
+     * The codebook of each context class.
+     */
+    private final CompiledCodeBook[] codeBooks;
+    /**
+     * The decode table of each context class, decoding the escape letter as a plain letter.
+     */
+    private final HuffmanDecodeTable[] tables;
+    /**
+     * The entry of the escape letter in the codebook of each context class.
+     */
+    private final long[] escapeEntries;
+    /**
+     * The order-0 codebook for letters missing from their context.
+     */
+    private final CompiledCodeBook fallback;
+    /**
+     * The decode table of the order-0 codebook, decoding the escape letter as the start of a literal.
+     */
+    private final HuffmanDecodeTable fallbackTable;
+    /**
+     * The entry of the escape letter in the order-0 codebook.
+     */
+    private final long fallbackEscape;
+    /**
+     * The escape letter of every codebook.
+     */
+    private final char escape;
+
+    /**
+     * Constructor that initializes the ContextHuffmanCodec object from codebooks built or loaded by the caller,
+     * for example with CodeBookSerializer.
+     *
+     * @param contextOf the context class of each previous letter, indexed by the char, 65536 entries.
+     * @param codeBooks the codebook of each context class, each holding the escape letter.
+     * @param fallback  the order-0 codebook, holding the escape letter.
+     * @param escape    the escape letter.
+     * @throws IllegalArgumentException when a class has no codebook, there are too many classes, or a codebook
+     *                                  lacks the escape letter.
+     */
+    public ContextHuffmanCodec(byte[] contextOf, CompiledCodeBook[] codeBooks, CompiledCodeBook fallback,
+                               char escape) {
+        if (contextOf.length != HuffmanCodeBuilder.ALPHABET_SIZE) {
+            throw new IllegalArgumentException("Context map must have " + HuffmanCodeBuilder.ALPHABET_SIZE
+                    + " entries.");
+        }
+        if (codeBooks.length < 1 || codeBooks.length > MAX_CONTEXT_CLASSES) {
+            throw new IllegalArgumentException("Context classes must be between 1 and " + MAX_CONTEXT_CLASSES + ".");
+        }
+        for (byte context : contextOf) {
+            if ((context & 0xFF) >= codeBooks.length) {
+                throw new IllegalArgumentException("Context class " + (context & 0xFF) + " has no codebook.");
+            }
+        }
+        this.contextOf = contextOf.clone();
+        this.codeBooks = codeBooks.clone();
+        this.tables = new HuffmanDecodeTable[codeBooks.length];
+        this.escapeEntries = new long[codeBooks.length];
+        for (int k = 0; k < codeBooks.length; k++) {
+            escapeEntries[k] = escapeEntry(codeBooks[k], escape);
+            tables[k] = new HuffmanDecodeTable(codeBooks[k].toCodeTree());
+        }
+        this.fallback = fallback;
+        this.fallbackEscape = escapeEntry(fallback, escape);
+        this.fallbackTable = new HuffmanDecodeTable(fallback.toCodeTree(), HuffmanDecodeTable.DEFAULT_LOOKUP_BITS,
+                escape);
+        this.escape = escape;
+    }
+
+    /**
+     * Builds a codec from a sample of text with DEFAULT_CONTEXT_CLASSES classes.
+     *
+     * @param sample the text the letter frequencies are counted from.
+     * @param escape the escape letter, a letter that does not appear in text such as U+FFFF.
+     * @return the ContextHuffmanCodec.
+     */
+    public static ContextHuffmanCodec train(CharSequence sample, char escape) {
+        return train(sample, DEFAULT_CONTEXT_CLASSES, escape);
+    }
+
+    /**
+     * Builds a codec from a sample of text. The classes - 1 most frequent letters of the sample each get a class
+     * for the letters that follow them, and every other letter shares class 0.
+     *
+     * @param sample  the text the letter frequencies are counted from.
+     * @param classes the number of context classes, between 1 and MAX_CONTEXT_CLASSES.
+     * @param escape  the escape letter, a letter that does not appear in text such as U+FFFF.
+     * @return the ContextHuffmanCodec.
+     * @throws IllegalArgumentException when the number of classes is out of range.
+     */
+    public static ContextHuffmanCodec train(CharSequence sample, int classes, char escape) {
+        if (classes < 1 || classes > MAX_CONTEXT_CLASSES) {
+            throw new IllegalArgumentException("Context classes must be between 1 and " + MAX_CONTEXT_CLASSES + ".");
+        }
+        long[] frequencies = new long[HuffmanCodeBuilder.ALPHABET_SIZE];
+        for (int i = 0; i < sample.length(); i++) {
+            frequencies[sample.charAt(i)]++;
+        }
+        //Letters of the sample get dense indexes, so the pair counts take letters * classes entries.
+        int[] index = new int[HuffmanCodeBuilder.ALPHABET_SIZE];
+        int letters = 0;
+        for (int c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] != 0) {
+                index[c] = letters++;
+            }
+        }
+        char[] letterOf = new char[letters];
+        for (int c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] != 0) {
+                letterOf[index[c]] = (char) c;
+            }
+        }
+        byte[] contextOf = new byte[HuffmanCodeBuilder.ALPHABET_SIZE];
+        long[] remaining = frequencies.clone();
+        for (int k = 1; k < classes; k++) {
+            int best = -1;
+            for (int c = 0; c < remaining.length; c++) {
+                if (remaining[c] != 0 && (best < 0 || remaining[c] > remaining[best])) {
+                    best = c;
+                }
+            }
+            if (best < 0) {
+                classes = k;
+                break;
+            }
+            remaining[best] = 0;
+            contextOf[best] = (byte) k;
+        }
+        long[][] pairs = new long[classes][letters];
+        char previous = 0;
+        for (int i = 0; i < sample.length(); i++) {
+            char c = sample.charAt(i);
+            pairs[contextOf[previous] & 0xFF][index[c]]++;
+            previous = c;
+        }
+        CompiledCodeBook[] codeBooks = new CompiledCodeBook[classes];
+        for (int k = 0; k < classes; k++) {
+            HuffmanCodeBuilder builder = new HuffmanCodeBuilder().setEscape(escape);
+            for (int j = 0; j < letters; j++) {
+                if (pairs[k][j] != 0 && letterOf[j] != escape) {
+                    builder.addFrequency(letterOf[j], pairs[k][j]);
+                }
+            }
+            codeBooks[k] = builder.buildCompiled();
+        }
+        frequencies[escape] = 0;
+        CompiledCodeBook fallback = new HuffmanCodeBuilder().addFrequencies(frequencies).setEscape(escape)
+                .buildCompiled();
+        return new ContextHuffmanCodec(contextOf, codeBooks, fallback, escape);
+    }
+
+    /**
+     * Encodes the input string into packed bits.
+     *
+     * @param s the input string.
+     * @return a PackedBits object holding the encoded string.
+     */
+    public PackedBits encode(CharSequence s) {
+        BitWriter out = new BitWriter(Math.max(1, s.length() / 16));
+        encode(s, out);
+        return out.toPackedBits();
+    }
+
+    /**
+     * Encodes the input string into a BitWriter owned by the caller.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     */
+    public void encode(CharSequence s, BitWriter out) {
+        char previous = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int context = contextOf[previous] & 0xFF;
+            long entry = c == escape ? 0 : codeBooks[context].lookup(c);
+            if (entry == 0) {
+                writeEntry(escapeEntries[context], out);
+                entry = c == escape ? 0 : fallback.lookup(c);
+                if (entry == 0) {
+                    writeEntry(fallbackEscape, out);
+                    out.write(c, CompiledCodeBook.LITERAL_BITS);
+                } else {
+                    writeEntry(entry, out);
+                }
+            } else {
+                writeEntry(entry, out);
+            }
+            previous = c;
+        }
+    }
+
+    /**
+     * Computes the number of bits the encoded string will take.
+     *
+     * @param s the input string.
+     * @return a long representing the number of bits.
+     */
+    public long encodedLength(CharSequence s) {
+        long total = 0;
+        char previous = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int context = contextOf[previous] & 0xFF;
+            long entry = c == escape ? 0 : codeBooks[context].lookup(c);
+            if (entry == 0) {
+                total += escapeEntries[context] & CompiledCodeBook.LENGTH_MASK;
+                entry = c == escape ? 0 : fallback.lookup(c);
+                total += entry == 0 ? (fallbackEscape & CompiledCodeBook.LENGTH_MASK) + CompiledCodeBook.LITERAL_BITS
+                        : entry & CompiledCodeBook.LENGTH_MASK;
+            } else {
+                total += entry & CompiledCodeBook.LENGTH_MASK;
+            }
+            previous = c;
+        }
+        return total;
+    }
+
+    /**
+     * Decodes packed bits into a string.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter, end inside a code, or hold more
+     *                                  letters than an array can.
+     */
+    public String decode(PackedBits bits) {
+        long length = bits.getBitLength();
+        char[] letters = new char[(int) Math.min(Integer.MAX_VALUE - 8, length / 4 + 16)];
+        int count;
+        while ((count = decode(bits.getWords(), 0, length, letters, 0, letters.length)) < 0) {
+            if (letters.length >= Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("The decoded string is too large for an array.");
+            }
+            letters = new char[(int) Math.min(Integer.MAX_VALUE - 8, letters.length * 2L)];
+        }
+        return new String(letters, 0, count);
+    }
+
+    /**
+     * Decodes a whole message held in a range of bits into a buffer owned by the caller, without allocating
+     * when the buffer is backed by an array.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit of the message.
+     * @param toBit   the position after the last bit of the message.
+     * @param out     the buffer the letters are written to.
+     * @return the number of letters written.
+     * @throws IllegalArgumentException when the bits do not lead to any letter, or end inside a code.
+     * @throws BufferOverflowException  when the buffer does not have room for every letter; it is left untouched.
+     */
+    public int decode(long[] words, long fromBit, long toBit, CharBuffer out) {
+        char[] dst = out.hasArray() ? out.array() : new char[out.remaining()];
+        int offset = out.hasArray() ? out.arrayOffset() + out.position() : 0;
+        int end = decode(words, fromBit, toBit, dst, offset, offset + out.remaining());
+        if (end < 0) {
+            throw new BufferOverflowException();
+        }
+        int count = end - offset;
+        if (out.hasArray()) {
+            out.position(out.position() + count);
+        } else {
+            out.put(dst, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of context classes.
+     *
+     * @return an int representing the number of classes.
+     */
+    public int getContextCount() {
+        return codeBooks.length;
+    }
+
+    /**
+     * Get the context class of a previous letter.
+     *
+     * @param previous the previous letter.
+     * @return an int representing the class.
+     */
+    public int getContext(char previous) {
+        return contextOf[previous] & 0xFF;
+    }
+
+    /**
+     * Get the codebook of a context class.
+     *
+     * @param context the context class.
+     * @return the CompiledCodeBook of the class.
+     * @throws IndexOutOfBoundsException when the class is out of range.
+     */
+    public CompiledCodeBook getCodeBook(int context) {
+        if (context < 0 || context >= codeBooks.length) {
+            throw new IndexOutOfBoundsException("Index " + context + " is out of bounds.");
+        }
+        return codeBooks[context];
+    }
+
+    /**
+     * Get the order-0 codebook for letters missing from their context.
+     *
+     * @return the fallback CompiledCodeBook.
+     */
+    public CompiledCodeBook getFallbackCodeBook() {
+        return fallback;
+    }
+
+    /**
+     * Get the escape letter of every codebook.
+     *
+     * @return the escape letter.
+     */
+    public char getEscape() {
+        return escape;
+    }
+
+    /**
+     * Decodes a whole message into an array, one letter at a time with the table of its context.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit of the message.
+     * @param toBit   the position after the last bit of the message.
+     * @param dst     the array the letters are written to.
+     * @param offset  the index of the first letter.
+     * @param limit   the index after the last letter that can be written.
+     * @return the index after the last letter written, or -1 when the array fills up before the end of the bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter, or end inside a code.
+     */
+    private int decode(long[] words, long fromBit, long toBit, char[] dst, int offset, int limit) {
+        long position = fromBit;
+        int o = offset;
+        char previous = 0;
+        while (position < toBit) {
+            if (o == limit) {
+                return -1;
+            }
+            long decoded = tables[contextOf[previous] & 0xFF].decodeFirst(words, position, toBit);
+            if (decoded < 0) {
+                throw new IllegalArgumentException("The message ends inside a code at bit " + position + ".");
+            }
+            char c = (char) decoded;
+            position += decoded >>> 16;
+            if (c == escape) {
+                decoded = fallbackTable.decodeOne(words, position, toBit);
+                if (decoded < 0) {
+                    throw new IllegalArgumentException("The message ends inside a code at bit " + position + ".");
+                }
+                c = (char) decoded;
+                position += decoded >>> 16;
+            }
+            dst[o++] = c;
+            previous = c;
+        }
+        return o;
+    }
+
+    /**
+     * Writes the code held by a codebook entry.
+     *
+     * @param entry the entry, the code above its length.
+     * @param out   the BitWriter the code is appended to.
+     */
+    private static void writeEntry(long entry, BitWriter out) {
+        out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+    }
+
+    /**
+     * Get the entry of the escape letter in a codebook.
+     *
+     * @param codeBook the codebook.
+     * @param escape   the escape letter.
+     * @return the entry of the letter.
+     * @throws IllegalArgumentException when the letter is not in the codebook.
+     */
+    private static long escapeEntry(CompiledCodeBook codeBook, char escape) {
+        long entry = codeBook.lookup(escape);
+        if (entry == 0) {
+            throw CompiledCodeBook.missingLetter(escape, -1);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,218 @@
+//Bilal Ahmed
+
+package student;
+
+import provided.BinarySequence;
+
+import java.util.Arrays;
+
+/**
+ * This class is a compact form of a HuffmanCodeTree, stored in two int arrays instead of HuffmanNode objects.
+ * Internal nodes are numbered breadth-first, the root being 0. For each internal node, zero[i] and one[i]
+ * hold the index of its children. A leaf is stored as the complement of its letter, so it is negative,
+ * and a missing child is stored as 0, since the root is nobody's child. Decoding only reads primitives
+ * that sit next to each other in memory.
+ *
+ * @author Bilal Ahmed
+ */
+public final class FlatHuffmanTree {
+    /**
+     * Size of an object header, with compressed class pointers on a 64-bit JVM.
+     */
+    private static final int OBJECT_HEADER_BYTES = 12;
+    /**
+     * Size of an array header, with compressed class pointers on a 64-bit JVM.
+     */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    /**
+     * Size of a reference, with compressed references on a 64-bit JVM.
+     */
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * The zero child of every internal node.
+     */
+    private final int[] zero;
+    /**
+     * The one child of every internal node.
+     */
+    private final int[] one;
+    /**
+     * The number of leaves.
+     */
+    private final int leafCount;
+
+    /**
+     * Constructor that initializes the FlatHuffmanTree object from a HuffmanCodeTree.
+     *
+     * @param tree the HuffmanCodeTree that will be flattened.
+     * @throws IllegalArgumentException when the tree does not hold any code.
+     */
+    public FlatHuffmanTree(HuffmanCodeTree tree) {
+        HuffmanNode root = tree.getRoot();
+        if (root == null || root.isLeaf()) {
+            throw new IllegalArgumentException("The tree does not hold any code.");
+        }
+        //The queue holds internal nodes in breadth-first order, which is also their index.
+        HuffmanNode[] queue = new HuffmanNode[16];
+        int[] zeros = new int[16];
+        int[] ones = new int[16];
+        int size = 1;
+        int leaves = 0;
+        queue[0] = root;
+        for (int head = 0; head < size; head++) {
+            if (size + 2 > queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+                zeros = Arrays.copyOf(zeros, queue.length);
+                ones = Arrays.copyOf(ones, queue.length);
+            }
+            HuffmanNode node = queue[head];
+            for (int bit = 0; bit < 2; bit++) {
+                HuffmanNode child = bit == 0 ? node.getZero() : node.getOne();
+                int link;
+                if (child == null) {
+                    link = 0;
+                } else if (child.isLeaf()) {
+                    link = ~child.getData();
+                    leaves++;
+                } else {
+                    link = size;
+                    queue[size++] = child;
+                }
+                if (bit == 0) {
+                    zeros[head] = link;
+                } else {
+                    ones[head] = link;
+                }
+            }
+        }
+        this.zero = Arrays.copyOf(zeros, size);
+        this.one = Arrays.copyOf(ones, size);
+        this.leafCount = leaves;
+    }
+
+    /**
+     * Decodes a BinarySequence into a string.
+     *
+     * @param s the BinarySequence that will be decoded.
+     * @return a String representing the decoded BinarySequence.
+     * @throws IllegalArgumentException when the sequence holds bits that do not lead to any letter.
+     */
+    public String decode(BinarySequence s) {
+        return decode(PackedBits.of(s));
+    }
+
+    /**
+     * Decodes packed bits into a string.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(PackedBits bits) {
+        return decode(bits.getWords(), bits.getBitLength());
+    }
+
+    /**
+     * Decodes the first bits of the given words into a string, one bit at a time.
+     * Like HuffmanCodeTree.decode, an incomplete code at the end is ignored.
+     *
+     * @param words     the words holding the bits, most significant bit first.
+     * @param bitLength the number of bits to be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(long[] words, long bitLength) {
+        char[] out = new char[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bitLength / 4))];
+        int count = 0;
+        int node = 0;
+        for (long position = 0; position < bitLength; position++) {
+            int next = (words[(int) (position >>> 6)] << (position & 63)) < 0 ? one[node] : zero[node];
+            if (next < 0) {
+                if (count == out.length) {
+                    out = Arrays.copyOf(out, (int) Math.min(Integer.MAX_VALUE - 8, out.length * 2L));
+                }
+                out[count++] = (char) ~next;
+                node = 0;
+            } else if (next == 0) {
+                throw new IllegalArgumentException("Bits at position " + position + " do not lead to any letter.");
+            } else {
+                node = next;
+            }
+        }
+        return new String(out, 0, count);
+    }
+
+    /**
+     * Get the number of internal nodes.
+     *
+     * @return an int representing the number of internal nodes.
+     */
+    public int getInternalNodeCount() {
+        return zero.length;
+    }
+
+    /**
+     * Get the number of leaves.
+     *
+     * @return an int representing the number of letters of the tree.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Computes the heap size of the two arrays, on a 64-bit JVM with compressed references.
+     *
+     * @return a long representing the size of the tree in bytes.
+     */
+    public long getFootprintBytes() {
+        return 2 * align(ARRAY_HEADER_BYTES + (long) Integer.BYTES * zero.length);
+    }
+
+    /**
+     * Computes the heap size of a tree made of HuffmanNode objects, on a 64-bit JVM with compressed references.
+     * Every node holds three references, and every leaf above 127 holds its own Character object,
+     * since smaller ones come from the Character cache.
+     *
+     * @param tree the HuffmanCodeTree to be measured.
+     * @return a long representing the size of the tree in bytes.
+     */
+    public static long estimateObjectFootprint(HuffmanCodeTree tree) {
+        long nodeBytes = align(OBJECT_HEADER_BYTES + 3L * REFERENCE_BYTES);
+        long characterBytes = align(OBJECT_HEADER_BYTES + Character.BYTES);
+        long total = 0;
+        HuffmanNode[] stack = new HuffmanNode[64];
+        int top = 0;
+        if (tree.getRoot() != null) {
+            stack[top++] = tree.getRoot();
+        }
+        while (top > 0) {
+            HuffmanNode node = stack[--top];
+            total += nodeBytes;
+            if (node.getData() != null && node.getData() > 127) {
+                total += characterBytes;
+            }
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (node.getZero() != null) {
+                stack[top++] = node.getZero();
+            }
+            if (node.getOne() != null) {
+                stack[top++] = node.getOne();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Rounds a size up to the 8-byte alignment of objects.
+     *
+     * @param bytes the size in bytes.
+     * @return the aligned size in bytes.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,389 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * This class encodes and decodes many small messages under one codebook in a single call.
+ * Messages are encoded one after the other into a single run of bits, with an array of offsets telling where each
+ * one starts, instead of one BinarySequence or PackedBits per message. The setup of an encode call, the lookup of
+ * the scratch writer and the allocation of the result are paid once per batch rather than once per message.
+ * Decoding writes every message into one char array with an array of end indexes. Messages encoded separately
+ * can be decoded together the same way.
+ * The codec is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanBatchCodec {
+    /**
+     * The codec giving the codes and the decode table.
+     */
+    private final HuffmanCodec codec;
+
+    /**
+     * Constructor that initializes the HuffmanBatchCodec object.
+     *
+     * @param codec the codec giving the codes.
+     */
+    public HuffmanBatchCodec(HuffmanCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Encodes a list of messages into one batch.
+     *
+     * @param messages the messages.
+     * @return an EncodedBatch holding the bits of every message.
+     * @throws IllegalArgumentException when a letter is not in the codebook and there is no escape.
+     */
+    public EncodedBatch encode(List<? extends CharSequence> messages) {
+        long[] offsets = new long[messages.size() + 1];
+        BitWriter out = new BitWriter(Math.max(1, messages.size()));
+        for (int i = 0; i < messages.size(); i++) {
+            offsets[i] = out.getBitLength();
+            codec.encode(messages.get(i), out);
+        }
+        offsets[messages.size()] = out.getBitLength();
+        return new EncodedBatch(out.toPackedBits(), offsets);
+    }
+
+    /**
+     * Decodes every message of a batch into strings.
+     *
+     * @param batch the batch.
+     * @return an array holding the decoded messages, in order.
+     * @throws IllegalArgumentException when the bits of a message do not lead to any letter, or end inside a code.
+     */
+    public String[] decode(EncodedBatch batch) {
+        return decodeAll(batch.bits.getBitLength(), batch.size(), (dst, ends) -> decode(batch, dst, ends));
+    }
+
+    /**
+     * Decodes messages held in separate PackedBits into strings, through one shared array of letters.
+     *
+     * @param messages the bits of each message.
+     * @return an array holding the decoded messages, in order.
+     * @throws IllegalArgumentException when the bits of a message do not lead to any letter, or end inside a code.
+     */
+    public String[] decode(List<PackedBits> messages) {
+        long bits = 0;
+        for (PackedBits message : messages) {
+            bits += message.getBitLength();
+        }
+        return decodeAll(bits, messages.size(), (dst, ends) -> decode(messages, dst, ends));
+    }
+
+    /**
+     * Decodes one message of a batch into a string, reading the bits shared with the rest of the batch.
+     *
+     * @param message the message.
+     * @return a String holding the decoded message.
+     * @throws IllegalArgumentException when the bits of the message do not lead to any letter, end inside a code,
+     *                                  or hold more letters than an array can.
+     */
+    public String decode(EncodedMessage message) {
+        long[] words = message.batch.bits.getWords();
+        long from = message.getFromBit();
+        long to = message.getToBit();
+        CharBuffer out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, (to - from) / 2)));
+        while (true) {
+            try {
+                decodeMessage(words, from, to, out, message.index);
+                return out.flip().toString();
+            } catch (BufferOverflowException e) {
+                if (out.capacity() >= Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("The decoded message is too large for an array.");
+                }
+                out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, out.capacity() * 2L));
+            }
+        }
+    }
+
+    /**
+     * Decodes every message of a batch into one array owned by the caller, without allocating.
+     * Message i is written from index ends[i - 1], or 0 for the first one, to index ends[i].
+     *
+     * @param batch the batch.
+     * @param dst   the array the letters are written to.
+     * @param ends  the array the end index of each message is written to, one entry per message.
+     * @return the number of letters written.
+     * @throws IllegalArgumentException  when the bits of a message do not lead to any letter, or end inside a code.
+     * @throws BufferOverflowException   when the array does not have room for every letter.
+     * @throws IndexOutOfBoundsException when ends has fewer entries than the batch has messages.
+     */
+    public int decode(EncodedBatch batch, char[] dst, int[] ends) {
+        if (ends.length < batch.size()) {
+            throw new IndexOutOfBoundsException("Index " + batch.size() + " is out of bounds.");
+        }
+        CharBuffer out = CharBuffer.wrap(dst);
+        long[] words = batch.bits.getWords();
+        for (int i = 0; i < batch.size(); i++) {
+            decodeMessage(words, batch.offsets[i], batch.offsets[i + 1], out, i);
+            ends[i] = out.position();
+        }
+        return out.position();
+    }
+
+    /**
+     * Decodes messages held in separate PackedBits into one array owned by the caller, without allocating.
+     * Message i is written from index ends[i - 1], or 0 for the first one, to index ends[i].
+     *
+     * @param messages the bits of each message.
+     * @param dst      the array the letters are written to.
+     * @param ends     the array the end index of each message is written to, one entry per message.
+     * @return the number of letters written.
+     * @throws IllegalArgumentException  when the bits of a message do not lead to any letter, or end inside a code.
+     * @throws BufferOverflowException   when the array does not have room for every letter.
+     * @throws IndexOutOfBoundsException when ends has fewer entries than there are messages.
+     */
+    public int decode(List<PackedBits> messages, char[] dst, int[] ends) {
+        if (ends.length < messages.size()) {
+            throw new IndexOutOfBoundsException("Index " + messages.size() + " is out of bounds.");
+        }
+        CharBuffer out = CharBuffer.wrap(dst);
+        for (int i = 0; i < messages.size(); i++) {
+            PackedBits message = messages.get(i);
+            decodeMessage(message.getWords(), 0, message.getBitLength(), out, i);
+            ends[i] = out.position();
+        }
+        return out.position();
+    }
+
+    /**
+     * Decodes the bits of one message, which must end on the last bit of a code.
+     *
+     * @param words the words holding the bits.
+     * @param from  the position of the first bit of the message.
+     * @param to    the position after the last bit of the message.
+     * @param out   the buffer the letters are written to.
+     * @param index the index of the message, for the error message.
+     * @throws IllegalArgumentException when the bits do not lead to any letter, or end inside a code.
+     * @throws BufferOverflowException  when the buffer does not have room for every letter.
+     */
+    private void decodeMessage(long[] words, long from, long to, CharBuffer out, int index) {
+        long position = codec.decode(words, from, to, out);
+        if (position != to) {
+            if (!out.hasRemaining()) {
+                throw new BufferOverflowException();
+            }
+            throw new IllegalArgumentException("Message " + index + " ends inside a code.");
+        }
+    }
+
+    /**
+     * Decodes messages into one array, grown until every letter fits, then cuts it into strings.
+     *
+     * @param bits    the number of bits of every message, which bounds the number of letters.
+     * @param count   the number of messages.
+     * @param decoder the decode call, given the array of letters and the array of end indexes.
+     * @return an array holding the decoded messages, in order.
+     * @throws IllegalArgumentException when the messages hold more letters than an array can.
+     */
+    private static String[] decodeAll(long bits, int count, BiConsumer<char[], int[]> decoder) {
+        char[] letters = new char[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bits / 2))];
+        int[] ends = new int[count];
+        while (true) {
+            try {
+                decoder.accept(letters, ends);
+                break;
+            } catch (BufferOverflowException e) {
+                if (letters.length >= Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("The decoded messages are too large for an array.");
+                }
+                letters = new char[(int) Math.min(Integer.MAX_VALUE - 8, letters.length * 2L)];
+            }
+        }
+        String[] messages = new String[count];
+        int start = 0;
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = new String(letters, start, ends[i] - start);
+            start = ends[i];
+        }
+        return messages;
+    }
+
+    /**
+     * Get the codec giving the codes.
+     *
+     * @return the HuffmanCodec.
+     */
+    public HuffmanCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * This class holds the bits of several messages encoded one after the other, and where each one starts.
+     *
+     * @author Bilal Ahmed
+     */
+    public static final class EncodedBatch {
+        /**
+         * The bits of every message.
+         */
+        private final PackedBits bits;
+        /**
+         * The bit offset of each message, followed by the offset after the last one.
+         */
+        private final long[] offsets;
+
+        /**
+         * Constructor that initializes the EncodedBatch object. Neither array is copied.
+         *
+         * @param bits    the bits of every message.
+         * @param offsets the bit offset of each message, followed by the offset after the last one.
+         * @throws IllegalArgumentException when the offsets do not go up from 0 to the number of bits.
+         */
+        public EncodedBatch(PackedBits bits, long[] offsets) {
+            if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != bits.getBitLength()) {
+                throw new IllegalArgumentException("Offsets must go from 0 to the number of bits.");
+            }
+            for (int i = 1; i < offsets.length; i++) {
+                if (offsets[i] < offsets[i - 1]) {
+                    throw new IllegalArgumentException("Offset " + i + " is before the offset of message "
+                            + (i - 1) + ".");
+                }
+            }
+            this.bits = bits;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Get the number of messages.
+         *
+         * @return an int representing the number of messages.
+         */
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Get the bits of every message.
+         *
+         * @return the PackedBits holding the batch.
+         */
+        public PackedBits getBits() {
+            return bits;
+        }
+
+        /**
+         * Get the bit offset of each message, followed by the offset after the last one.
+         * The returned array is the backing array, it is not copied.
+         *
+         * @return an array of size() + 1 offsets.
+         */
+        public long[] getOffsets() {
+            return offsets;
+        }
+
+        /**
+         * Copies the bits of one message.
+         *
+         * @param index the index of the message.
+         * @return a PackedBits object holding the message alone.
+         * @throws IndexOutOfBoundsException when the index is out of range.
+         */
+        public PackedBits getMessage(int index) {
+            return view(index).toPackedBits();
+        }
+
+        /**
+         * Gets one message without copying its bits.
+         *
+         * @param index the index of the message.
+         * @return an EncodedMessage sharing the bits of the batch.
+         * @throws IndexOutOfBoundsException when the index is out of range.
+         */
+        public EncodedMessage view(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+            }
+            return new EncodedMessage(this, index);
+        }
+    }
+
+    /**
+     * This class is one message of an EncodedBatch. It holds the batch and an index rather than a copy of the
+     * bits, so handing each message of a batch to its own caller costs one small object per message.
+     *
+     * @author Bilal Ahmed
+     */
+    public static final class EncodedMessage {
+        /**
+         * The batch holding the bits.
+         */
+        private final EncodedBatch batch;
+        /**
+         * The index of the message in the batch.
+         */
+        private final int index;
+
+        /**
+         * Constructor that initializes the EncodedMessage object.
+         *
+         * @param batch the batch holding the bits.
+         * @param index the index of the message in the batch.
+         */
+        private EncodedMessage(EncodedBatch batch, int index) {
+            this.batch = batch;
+            this.index = index;
+        }
+
+        /**
+         * Get the batch holding the bits, shared with the other messages of the batch.
+         *
+         * @return the EncodedBatch.
+         */
+        public EncodedBatch getBatch() {
+            return batch;
+        }
+
+        /**
+         * Get the index of the message in the batch.
+         *
+         * @return an int representing the index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get the position of the first bit of the message in the bits of the batch.
+         *
+         * @return a long representing the position.
+         */
+        public long getFromBit() {
+            return batch.offsets[index];
+        }
+
+        /**
+         * Get the position after the last bit of the message in the bits of the batch.
+         *
+         * @return a long representing the position.
+         */
+        public long getToBit() {
+            return batch.offsets[index + 1];
+        }
+
+        /**
+         * Get the number of bits of the message.
+         *
+         * @return a long representing the number of bits.
+         */
+        public long getBitLength() {
+            return getToBit() - getFromBit();
+        }
+
+        /**
+         * Copies the bits of the message, for a caller that needs them alone, for example to store them.
+         *
+         * @return a PackedBits object holding the message alone.
+         */
+        public PackedBits toPackedBits() {
+            return batch.bits.slice(getFromBit(), getToBit());
+        }
+    }
+}
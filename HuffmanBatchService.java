@@ -0,0 +1,490 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class encodes and decodes messages submitted by many threads, grouping them into batches.
+ * Requests go into a bounded queue; when it is full, submitting blocks, so callers producing faster than the
+ * workers can keep up are slowed down instead of growing the queue without limit. Each worker takes a request,
+ * drains whatever else is waiting up to the batch size, and encodes the whole group with one HuffmanBatchCodec
+ * call, so a burst of small messages costs one setup rather than one per message. Decode requests are grouped the
+ * same way. Each encoded message is a view of the batch it was encoded in, so its bits are not copied.
+ * On JDK 21 and later the workers run on virtual threads; on earlier JDKs they run on a fixed pool of daemon
+ * threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanBatchService implements AutoCloseable {
+    /**
+     * The default number of requests the queue holds before submitting blocks.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    /**
+     * The default largest number of requests handled in one batch.
+     */
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    /**
+     * The request a worker stops at when the service is closed. There is only one: each worker but the last puts it
+     * back for the next one.
+     */
+    private static final Request POISON = new Request(null, null, null);
+
+    /**
+     * The codec encoding each batch.
+     */
+    private final HuffmanBatchCodec batchCodec;
+    /**
+     * The queue of requests waiting for a worker.
+     */
+    private final BlockingQueue<Request> queue;
+    /**
+     * The largest number of requests handled in one batch.
+     */
+    private final int maxBatch;
+    /**
+     * The number of workers that have not stopped.
+     */
+    private final AtomicInteger live;
+    /**
+     * The executor running the workers.
+     */
+    private final ExecutorService executor;
+    /**
+     * Whether the executor was created by the service, and is shut down with it.
+     */
+    private final boolean ownsExecutor;
+    /**
+     * Whether close was called.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor that initializes a HuffmanBatchService object with the default queue and batch sizes and one
+     * worker per processor.
+     *
+     * @param codec the codec giving the codes.
+     */
+    public HuffmanBatchService(HuffmanCodec codec) {
+        this(codec, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor that initializes a HuffmanBatchService object running its workers on virtual threads when the
+     * JDK has them, or else on daemon threads.
+     *
+     * @param codec         the codec giving the codes.
+     * @param queueCapacity the number of requests the queue holds before submitting blocks.
+     * @param maxBatch      the largest number of requests handled in one batch.
+     * @param workers       the number of workers.
+     * @throws IllegalArgumentException when a size is under 1.
+     */
+    public HuffmanBatchService(HuffmanCodec codec, int queueCapacity, int maxBatch, int workers) {
+        this(codec, queueCapacity, maxBatch, workers, newExecutor(workers), true);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanBatchService object running its workers on an executor owned by the
+     * caller. The executor must be able to run every worker at once, and is not shut down by close.
+     *
+     * @param codec         the codec giving the codes.
+     * @param queueCapacity the number of requests the queue holds before submitting blocks.
+     * @param maxBatch      the largest number of requests handled in one batch.
+     * @param workers       the number of workers.
+     * @param executor      the executor running the workers.
+     * @throws IllegalArgumentException when a size is under 1.
+     */
+    public HuffmanBatchService(HuffmanCodec codec, int queueCapacity, int maxBatch, int workers,
+                               ExecutorService executor) {
+        this(codec, queueCapacity, maxBatch, workers, executor, false);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanBatchService object and starts the workers.
+     *
+     * @param codec         the codec giving the codes.
+     * @param queueCapacity the number of requests the queue holds before submitting blocks.
+     * @param maxBatch      the largest number of requests handled in one batch.
+     * @param workers       the number of workers.
+     * @param executor      the executor running the workers.
+     * @param ownsExecutor  whether the executor is shut down by close.
+     * @throws IllegalArgumentException when a size is under 1.
+     */
+    private HuffmanBatchService(HuffmanCodec codec, int queueCapacity, int maxBatch, int workers,
+                                ExecutorService executor, boolean ownsExecutor) {
+        if (queueCapacity < 1 || maxBatch < 1 || workers < 1) {
+            if (ownsExecutor) {
+                executor.shutdown();
+            }
+            throw new IllegalArgumentException("Queue capacity, batch size and workers must be at least 1.");
+        }
+        this.batchCodec = new HuffmanBatchCodec(codec);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.live = new AtomicInteger(workers);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Submits a message to be encoded, waiting while the queue is full.
+     *
+     * @param s the message.
+     * @return a future completed with the bits of the message, or with the exception that encoding threw.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     * @throws NullPointerException       when the message is null.
+     */
+    public CompletableFuture<HuffmanBatchCodec.EncodedMessage> encode(CharSequence s) throws InterruptedException {
+        Request request = new Request(Objects.requireNonNull(s, "s"), null, new CompletableFuture<>());
+        submit(request);
+        return request.cast();
+    }
+
+    /**
+     * Submits a message to be encoded, waiting at most the given time while the queue is full.
+     *
+     * @param s       the message.
+     * @param timeout the longest time to wait.
+     * @param unit    the unit of the timeout.
+     * @return a future completed with the bits of the message, or null when the queue stayed full.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     * @throws NullPointerException       when the message is null.
+     */
+    public CompletableFuture<HuffmanBatchCodec.EncodedMessage> tryEncode(CharSequence s, long timeout,
+                                                                         TimeUnit unit) throws InterruptedException {
+        Request request = new Request(Objects.requireNonNull(s, "s"), null, new CompletableFuture<>());
+        return trySubmit(request, timeout, unit) ? request.cast() : null;
+    }
+
+    /**
+     * Submits bits to be decoded, waiting while the queue is full.
+     *
+     * @param bits the bits of the message.
+     * @return a future completed with the message, or with the exception that decoding threw.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     * @throws NullPointerException       when the bits are null.
+     */
+    public CompletableFuture<String> decode(PackedBits bits) throws InterruptedException {
+        Request request = new Request(null, Objects.requireNonNull(bits, "bits"), new CompletableFuture<>());
+        submit(request);
+        return request.cast();
+    }
+
+    /**
+     * Submits bits to be decoded, waiting at most the given time while the queue is full.
+     *
+     * @param bits    the bits of the message.
+     * @param timeout the longest time to wait.
+     * @param unit    the unit of the timeout.
+     * @return a future completed with the message, or null when the queue stayed full.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     * @throws NullPointerException       when the bits are null.
+     */
+    public CompletableFuture<String> tryDecode(PackedBits bits, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Request request = new Request(null, Objects.requireNonNull(bits, "bits"), new CompletableFuture<>());
+        return trySubmit(request, timeout, unit) ? request.cast() : null;
+    }
+
+    /**
+     * Get the number of requests waiting for a worker.
+     *
+     * @return an int representing the number of requests queued.
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops taking requests, lets the workers finish the ones already queued, and shuts down the executor when
+     * the service created it. Requests submitted while close runs are either handled or rejected.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (live.get() > 0) {
+            putPoison();
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Puts a request in the queue, waiting while it is full.
+     *
+     * @param request the request.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     */
+    private void submit(Request request) throws InterruptedException {
+        checkOpen();
+        queue.put(request);
+        checkQueuedBeforeClose(request);
+    }
+
+    /**
+     * Puts a request in the queue, waiting at most the given time while it is full.
+     *
+     * @param request the request.
+     * @param timeout the longest time to wait.
+     * @param unit    the unit of the timeout.
+     * @return whether the request was queued.
+     * @throws InterruptedException       when the thread is interrupted while waiting.
+     * @throws RejectedExecutionException when the service is closed.
+     */
+    private boolean trySubmit(Request request, long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        if (!queue.offer(request, timeout, unit)) {
+            return false;
+        }
+        checkQueuedBeforeClose(request);
+        return true;
+    }
+
+    /**
+     * Checks that the service takes requests.
+     *
+     * @throws RejectedExecutionException when the service is closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new RejectedExecutionException("The service is closed.");
+        }
+    }
+
+    /**
+     * Takes back a request queued while the service was closing, unless a worker already took it, since the
+     * workers may have stopped.
+     *
+     * @param request the request just queued.
+     * @throws RejectedExecutionException when the request was taken back.
+     */
+    private void checkQueuedBeforeClose(Request request) {
+        if (closed && queue.remove(request)) {
+            throw new RejectedExecutionException("The service is closed.");
+        }
+    }
+
+    /**
+     * Runs a worker: takes batches of requests from the queue and handles them until the poison request is taken.
+     * The worker then puts the poison back for the others, or, when it is the last one, handles the requests left
+     * behind the poison before stopping.
+     */
+    private void work() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        boolean poisoned = false;
+        while (!poisoned) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            poisoned = handle(batch);
+        }
+        if (live.decrementAndGet() > 0) {
+            if (poisoned) {
+                putPoison();
+            }
+            return;
+        }
+        while (queue.drainTo(batch, maxBatch) > 0) {
+            handle(batch);
+        }
+    }
+
+    /**
+     * Handles a batch of requests, encodes together and decodes together, then clears it.
+     *
+     * @param batch the requests.
+     * @return whether the batch held the poison request.
+     */
+    private boolean handle(List<Request> batch) {
+        List<Request> encodes = new ArrayList<>(batch.size());
+        List<Request> decodes = new ArrayList<>(batch.size());
+        boolean poisoned = false;
+        for (Request request : batch) {
+            if (request == POISON) {
+                poisoned = true;
+            } else if (request.text != null) {
+                encodes.add(request);
+            } else {
+                decodes.add(request);
+            }
+        }
+        batch.clear();
+        encode(encodes);
+        decode(decodes);
+        return poisoned;
+    }
+
+    /**
+     * Puts the poison request in the queue, waiting for room even when the thread is interrupted, since a lost
+     * poison would leave the remaining workers waiting forever. The interrupt is kept for the caller.
+     */
+    private void putPoison() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(POISON);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encodes a group of messages in one batch and completes their futures with views of it. When the batch
+     * fails, each message is encoded alone so only the ones at fault fail.
+     *
+     * @param requests the encode requests.
+     */
+    private void encode(List<Request> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<CharSequence> messages = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            messages.add(request.text);
+        }
+        HuffmanBatchCodec.EncodedBatch encoded;
+        try {
+            encoded = batchCodec.encode(messages);
+        } catch (RuntimeException e) {
+            for (Request request : requests) {
+                try {
+                    request.future.complete(batchCodec.encode(List.of(request.text)).view(0));
+                } catch (RuntimeException failure) {
+                    request.future.completeExceptionally(failure);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).future.complete(encoded.view(i));
+        }
+    }
+
+    /**
+     * Decodes a group of messages through one array of letters and completes their futures. When the batch
+     * fails, each message is decoded alone so only the ones at fault fail.
+     *
+     * @param requests the decode requests.
+     */
+    private void decode(List<Request> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<PackedBits> messages = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            messages.add(request.bits);
+        }
+        String[] decoded;
+        try {
+            decoded = batchCodec.decode(messages);
+        } catch (RuntimeException e) {
+            for (Request request : requests) {
+                try {
+                    request.future.complete(batchCodec.getCodec().decode(request.bits));
+                } catch (RuntimeException failure) {
+                    request.future.completeExceptionally(failure);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).future.complete(decoded[i]);
+        }
+    }
+
+    /**
+     * Creates the executor running the workers: one virtual thread per task on JDK 21 and later, found by
+     * reflection so the class still compiles and runs on JDK 17 to 20, or else a fixed pool of daemon threads.
+     *
+     * @param workers the number of workers.
+     * @return the ExecutorService.
+     */
+    private static ExecutorService newExecutor(int workers) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(1, workers), task -> {
+                Thread thread = new Thread(task, "huffman-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * This class holds a request waiting in the queue: a message to encode or bits to decode, and the future
+     * completed with the result.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Request {
+        /**
+         * The message to encode, or null for a decode request.
+         */
+        private final CharSequence text;
+        /**
+         * The bits to decode, or null for an encode request.
+         */
+        private final PackedBits bits;
+        /**
+         * The future completed with the result.
+         */
+        private final CompletableFuture<Object> future;
+
+        /**
+         * Constructor that initializes the Request object.
+         *
+         * @param text   the message to encode, or null.
+         * @param bits   the bits to decode, or null.
+         * @param future the future completed with the result.
+         */
+        private Request(CharSequence text, PackedBits bits, CompletableFuture<Object> future) {
+            this.text = text;
+            this.bits = bits;
+            this.future = future;
+        }
+
+        /**
+         * Get the future as the type of its result.
+         *
+         * @param <T> the type of the result, EncodedMessage for an encode request and String for a decode one.
+         * @return the CompletableFuture.
+         */
+        @SuppressWarnings("unchecked")
+        private <T> CompletableFuture<T> cast() {
+            return (CompletableFuture<T>) (CompletableFuture<?>) future;
+        }
+    }
+}
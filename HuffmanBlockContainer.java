@@ -0,0 +1,396 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class reads and writes a framed container of Huffman encoded text.
+ * A plain Huffman stream can only be decoded from its first bit, because nothing marks where codes start.
+ * The container splits the text into blocks holding a fixed number of letters and keeps an index of the bit
+ * position and letter count of every block, so blocks can be decoded in parallel or on their own.
+ *
+ * <p>Layout, all numbers big-endian:
+ * <pre>
+ * int   magic "HUFB"
+ * byte  version
+ * int   letters per block
+ * long  number of letters
+ * codes, in the layout given by the version:
+ *   version 2: the letters and code lengths of a canonical codebook, as written by CodeBookSerializer
+ *   version 1: int number of codes, then for each code: char letter, byte length, long code
+ * int   number of blocks, then for each block: long bit position, int number of letters
+ * long  number of bits
+ * long  words of bits, most significant bit first
+ * </pre>
+ * Canonical codebooks, like the ones HuffmanCodeBuilder builds, are written as version 2,
+ * other codebooks as version 1. Both versions are read.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanBlockContainer {
+    /**
+     * The number of letters per block when none is given.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    /**
+     * The first four bytes of every container, "HUFB".
+     */
+    static final int MAGIC = 0x48554642;
+    /**
+     * The version of the layout storing canonical codebooks by their code lengths.
+     */
+    static final byte VERSION = 2;
+    /**
+     * The version of the layout storing every code in full.
+     */
+    static final byte EXPLICIT_CODES_VERSION = 1;
+
+    /**
+     * The codebook the text was encoded with.
+     */
+    private final CompiledCodeBook codeBook;
+    /**
+     * The table used to decode the blocks.
+     */
+    private final HuffmanDecodeTable decodeTable;
+    /**
+     * The number of letters of every block but the last one.
+     */
+    private final int blockSize;
+    /**
+     * The number of letters of the text.
+     */
+    private final long symbolCount;
+    /**
+     * The bit position of every block, followed by the total number of bits.
+     */
+    private final long[] blockOffsets;
+    /**
+     * The number of letters of every block.
+     */
+    private final int[] blockSymbols;
+    /**
+     * The encoded text.
+     */
+    private final long[] words;
+
+    /**
+     * Constructor that initializes the HuffmanBlockContainer object from its parsed parts.
+     *
+     * @param codeBook     the codebook the text was encoded with.
+     * @param blockSize    the number of letters of every block but the last one.
+     * @param symbolCount  the number of letters of the text.
+     * @param blockOffsets the bit position of every block, followed by the total number of bits.
+     * @param blockSymbols the number of letters of every block.
+     * @param words        the encoded text.
+     */
+    private HuffmanBlockContainer(CompiledCodeBook codeBook, int blockSize, long symbolCount,
+                                  long[] blockOffsets, int[] blockSymbols, long[] words) {
+        this.codeBook = codeBook;
+        this.decodeTable = new HuffmanDecodeTable(codeBook.toCodeTree());
+        this.blockSize = blockSize;
+        this.symbolCount = symbolCount;
+        this.blockOffsets = blockOffsets;
+        this.blockSymbols = blockSymbols;
+        this.words = words;
+    }
+
+    /**
+     * Encodes a text into a container with DEFAULT_BLOCK_SIZE letters per block.
+     *
+     * @param s    the input string.
+     * @param book the codebook used to encode the letters.
+     * @return a byte array holding the container.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public static byte[] write(CharSequence s, CompiledCodeBook book) {
+        return write(s, book, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Encodes a text into a container.
+     *
+     * @param s         the input string.
+     * @param book      the codebook used to encode the letters.
+     * @param blockSize the number of letters per block.
+     * @return a byte array holding the container.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook or blockSize is not positive.
+     */
+    public static byte[] write(CharSequence s, CompiledCodeBook book, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        int length = s.length();
+        int blocks = (int) ((length + (long) blockSize - 1) / blockSize);
+        long[] offsets = new long[blocks];
+        BitWriter out = new BitWriter(Math.max(1, length / 16));
+        for (int block = 0; block < blocks; block++) {
+            offsets[block] = out.getBitLength();
+            int from = block * blockSize;
+            book.encode(s, from, (int) Math.min(length, (long) from + blockSize), out);
+        }
+        PackedBits bits = out.toPackedBits();
+        long[] encoded = bits.getWords();
+
+        int codes = book.getSymbolCount();
+        boolean canonical = CodeBookSerializer.isCanonical(book);
+        long codesSize = canonical ? CodeBookSerializer.codesSize(book) : 4 + 11L * codes;
+        long size = 4 + 1 + 4 + 8 + codesSize + 4 + 12L * blocks + 8 + 8L * encoded.length;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The container is too large to be held in one array.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).put(canonical ? VERSION : EXPLICIT_CODES_VERSION).putInt(blockSize).putLong(length);
+        if (canonical) {
+            CodeBookSerializer.writeCodes(book, buffer);
+        } else {
+            buffer.putInt(codes);
+            for (int i = 0; i < codes; i++) {
+                buffer.putChar(book.getSymbol(i)).put((byte) book.getLengthAt(i)).putLong(book.getCodeAt(i));
+            }
+        }
+        buffer.putInt(blocks);
+        for (int block = 0; block < blocks; block++) {
+            buffer.putLong(offsets[block]).putInt((int) Math.min(blockSize, length - (long) block * blockSize));
+        }
+        buffer.putLong(bits.getBitLength());
+        buffer.asLongBuffer().put(encoded);
+        return buffer.array();
+    }
+
+    /**
+     * Reads a container.
+     *
+     * @param data the bytes of the container.
+     * @return a HuffmanBlockContainer that can decode the text.
+     * @throws IllegalArgumentException when the bytes are not a valid container.
+     */
+    public static HuffmanBlockContainer read(byte[] data) {
+        return read(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Reads a container, starting at the position of the buffer.
+     *
+     * @param buffer the buffer holding the container, in big-endian order.
+     * @return a HuffmanBlockContainer that can decode the text.
+     * @throws IllegalArgumentException when the bytes are not a valid container.
+     */
+    public static HuffmanBlockContainer read(ByteBuffer buffer) {
+        try {
+            int version = buffer.getInt() != MAGIC ? -1 : buffer.get();
+            if (version != VERSION && version != EXPLICIT_CODES_VERSION) {
+                throw new IllegalArgumentException("The bytes are not a Huffman block container.");
+            }
+            int blockSize = buffer.getInt();
+            long symbolCount = buffer.getLong();
+            if (blockSize < 1 || symbolCount < 0) {
+                throw new IllegalArgumentException("The container header is corrupt.");
+            }
+            CompiledCodeBook book = version == VERSION ? CodeBookSerializer.readCodes(buffer) : readCodes(buffer);
+
+            int blocks = buffer.getInt();
+            if (blocks != (symbolCount + blockSize - 1) / blockSize) {
+                throw new IllegalArgumentException("The container index is corrupt.");
+            }
+            long[] offsets = new long[blocks + 1];
+            int[] counts = new int[blocks];
+            for (int block = 0; block < blocks; block++) {
+                offsets[block] = buffer.getLong();
+                counts[block] = buffer.getInt();
+            }
+            long bitLength = buffer.getLong();
+            offsets[blocks] = bitLength;
+            for (int block = 0; block < blocks; block++) {
+                if (offsets[block] < 0 || offsets[block] > offsets[block + 1]
+                        || counts[block] != Math.min(blockSize, symbolCount - (long) block * blockSize)) {
+                    throw new IllegalArgumentException("The container index is corrupt.");
+                }
+            }
+            if (bitLength > (long) (buffer.remaining() / 8) * Long.SIZE) {
+                throw new IllegalArgumentException("The container is truncated.");
+            }
+            long[] encoded = new long[(int) ((bitLength + 63) >>> 6)];
+            buffer.asLongBuffer().get(encoded);
+            buffer.position(buffer.position() + 8 * encoded.length);
+            return new HuffmanBlockContainer(book, blockSize, symbolCount, offsets, counts, encoded);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The container is truncated.", e);
+        }
+    }
+
+    /**
+     * Reads the codes of a version 1 container, each stored in full.
+     *
+     * @param buffer the buffer holding the codes.
+     * @return a CompiledCodeBook holding the codes.
+     * @throws IllegalArgumentException when the codes are not valid.
+     */
+    private static CompiledCodeBook readCodes(ByteBuffer buffer) {
+        int codes = buffer.getInt();
+        if (codes < 1 || codes > HuffmanCodeBuilder.ALPHABET_SIZE) {
+            throw new IllegalArgumentException("The container header is corrupt.");
+        }
+        char[] symbols = new char[codes];
+        long[] bookCodes = new long[codes];
+        int[] lengths = new int[codes];
+        for (int i = 0; i < codes; i++) {
+            symbols[i] = buffer.getChar();
+            lengths[i] = buffer.get();
+            bookCodes[i] = buffer.getLong();
+        }
+        return new CompiledCodeBook(symbols, bookCodes, lengths);
+    }
+
+    /**
+     * Decodes the whole text, one block after the other.
+     *
+     * @return a String holding the text.
+     * @throws IllegalArgumentException when a block is corrupt.
+     */
+    public String decodeAll() {
+        char[] text = new char[checkedLength(symbolCount)];
+        for (int block = 0; block < blockSymbols.length; block++) {
+            decodeBlock(block, text, block * blockSize);
+        }
+        return new String(text);
+    }
+
+    /**
+     * Decodes the whole text, one task per block.
+     *
+     * @param pool the pool the blocks are decoded in.
+     * @return a String holding the text.
+     * @throws IllegalArgumentException when a block is corrupt.
+     */
+    public String decodeParallel(ForkJoinPool pool) {
+        char[] text = new char[checkedLength(symbolCount)];
+        ChunkAction.run(pool, blockSymbols.length, block -> decodeBlock(block, text, block * blockSize));
+        return new String(text);
+    }
+
+    /**
+     * Decodes a single block.
+     *
+     * @param block the index of the block.
+     * @return a String holding the letters of the block.
+     * @throws IndexOutOfBoundsException when the block does not exist.
+     * @throws IllegalArgumentException  when the block is corrupt.
+     */
+    public String decodeBlock(int block) {
+        char[] text = new char[blockSymbols[block]];
+        decodeBlock(block, text, 0);
+        return new String(text);
+    }
+
+    /**
+     * Get the letter at a given index, decoding only the block holding it.
+     *
+     * @param index the index of the letter in the text.
+     * @return a char representing the letter.
+     * @throws IndexOutOfBoundsException when index is greater than the number of letters.
+     * @throws IllegalArgumentException  when the block is corrupt.
+     */
+    public char charAt(long index) {
+        if (index >= symbolCount || index < 0) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+        }
+        return decodeBlock((int) (index / blockSize)).charAt((int) (index % blockSize));
+    }
+
+    /**
+     * Get the letters between two indices, decoding only the blocks holding them.
+     *
+     * @param from the index of the first letter.
+     * @param to   the index after the last letter.
+     * @return a String holding the letters.
+     * @throws IndexOutOfBoundsException when the indices are out of bounds.
+     * @throws IllegalArgumentException  when a block is corrupt.
+     */
+    public String substring(long from, long to) {
+        if (from < 0 || to > symbolCount || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " is out of bounds.");
+        }
+        if (from == to) {
+            return "";
+        }
+        int firstBlock = (int) (from / blockSize);
+        int lastBlock = (int) ((to - 1) / blockSize);
+        char[] text = new char[checkedLength((long) (lastBlock - firstBlock) * blockSize + blockSymbols[lastBlock])];
+        for (int block = firstBlock; block <= lastBlock; block++) {
+            decodeBlock(block, text, (block - firstBlock) * blockSize);
+        }
+        int start = (int) (from - (long) firstBlock * blockSize);
+        return new String(text, start, (int) (to - from));
+    }
+
+    /**
+     * Decodes a block into an array.
+     *
+     * @param block  the index of the block.
+     * @param text   the array the letters are written into.
+     * @param offset the index of the first letter of the block in the array.
+     * @throws IllegalArgumentException when the block does not hold the letters the index says it does.
+     */
+    private void decodeBlock(int block, char[] text, int offset) {
+        CharBuffer out = CharBuffer.wrap(text, offset, blockSymbols[block]);
+        long end = decodeTable.decode(words, blockOffsets[block], blockOffsets[block + 1], out);
+        if (out.position() - offset != blockSymbols[block] || end != blockOffsets[block + 1]) {
+            throw new IllegalArgumentException("Block " + block + " is corrupt.");
+        }
+    }
+
+    /**
+     * Checks that a number of letters fits in a single array.
+     *
+     * @param length the number of letters.
+     * @return the number of letters as an int.
+     * @throws IllegalStateException when the letters do not fit in an array.
+     */
+    private static int checkedLength(long length) {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(length + " letters do not fit in a String, decode a range instead.");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Get the codebook the text was encoded with.
+     *
+     * @return the CompiledCodeBook of the container.
+     */
+    public CompiledCodeBook getCodeBook() {
+        return codeBook;
+    }
+
+    /**
+     * Get the number of letters of the text.
+     *
+     * @return a long representing the number of letters.
+     */
+    public long getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Get the number of blocks.
+     *
+     * @return an int representing the number of blocks.
+     */
+    public int getBlockCount() {
+        return blockSymbols.length;
+    }
+
+    /**
+     * Get the number of letters of every block but the last one.
+     *
+     * @return an int representing the number of letters per block.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
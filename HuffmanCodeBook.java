@@ -4,6 +4,8 @@ package student;
 
 import provided.BinarySequence;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 
 /**
@@ -203,11 +205,35 @@ public class HuffmanCodeBook implements Iterable<DataHolder> {
          * Used when the array, representing the ArrayList, is full.
          */
         private void expandArray() {
-            T[] newArr = (T[]) new Comparable[dataArray.length * 2];
-            for (int i = 0; i < dataArray.length; i++) {
-                newArr[i] = dataArray[i];
+            ensureCapacity(dataArray.length * 2);
+        }
+
+        /**
+         * Function that expands the array so it can hold at least the given number of items.
+         *
+         * @param capacity the number of items the array must be able to hold.
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity > dataArray.length) {
+                T[] newArr = (T[]) new Comparable[Math.max(capacity, dataArray.length * 2)];
+                System.arraycopy(dataArray, 0, newArr, 0, size);
+                this.dataArray = newArr;
             }
-            this.dataArray = newArr;
+        }
+
+        /**
+         * Appends every given element, then sorts the list once.
+         * Loading n elements costs O(n log n) instead of the O(n²) of appending them one at a time.
+         * The sort is stable, so elements that compare equal keep the order append would give them.
+         *
+         * @param data the elements to be added to the list.
+         */
+        public void appendAll(T[] data) {
+            ensureCapacity(size + data.length);
+            System.arraycopy(data, 0, dataArray, size, data.length);
+            size += data.length;
+            //append moves an element in front of the ones it compares greater than, so sort in reverse order.
+            Arrays.sort(dataArray, 0, size, Collections.reverseOrder());
         }
 
         /**
@@ -271,6 +297,14 @@ public class HuffmanCodeBook implements Iterable<DataHolder> {
      * The ArrayList that will represent the Huffman Code book class.
      */
     private ArrayList<DataHolder> arrayList;
+    /**
+     * The listener told about every encode call, or null when the codebook is not instrumented.
+     */
+    private HuffmanMetricsListener listener;
+    /**
+     * The compiled form of the codebook, or null when it was changed since it was last compiled.
+     */
+    private CompiledCodeBook compiled;
 
     /**
      * Constructor that initializes the HuffmanCodeBook object.
@@ -287,6 +321,26 @@ public class HuffmanCodeBook implements Iterable<DataHolder> {
      */
     public void addSequence(char c, BinarySequence seq) {
         arrayList.append(new DataHolder(c, seq));
+        compiled = null;
+    }
+
+    /**
+     * Adds many characters and binary sequences into the codeBook at once, sorting the codeBook a single time.
+     *
+     * @param letters   the given characters.
+     * @param sequences the associated sequences, in the order of letters.
+     * @throws IllegalArgumentException when there are not as many letters as sequences.
+     */
+    public void addAll(char[] letters, BinarySequence[] sequences) {
+        if (letters.length != sequences.length) {
+            throw new IllegalArgumentException("Letters and sequences must have the same size.");
+        }
+        DataHolder[] data = new DataHolder[letters.length];
+        for (int i = 0; i < letters.length; i++) {
+            data[i] = new DataHolder(letters[i], sequences[i]);
+        }
+        arrayList.appendAll(data);
+        compiled = null;
     }
 
     /**
@@ -358,18 +412,124 @@ public class HuffmanCodeBook implements Iterable<DataHolder> {
 
     /**
      * Encodes the input string into a binary sequence.
+     * Missing letters are found while encoding, so there is no need to call containsAll first.
      *
      * @param s the input string.
      * @return am encoded string represented with a BinarySequence.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook, naming its position.
      */
     public BinarySequence encode(String s) {
+        if (listener != null) {
+            return encodeReporting(s);
+        }
         BinarySequence newSeq = new BinarySequence();
         for (int i = 0; i < s.length(); i++) {
-            newSeq.append(getSequence(s.charAt(i)));
+            BinarySequence seq = getSequence(s.charAt(i));
+            if (seq == null) {
+                throw CompiledCodeBook.missingLetter(s.charAt(i), i);
+            }
+            newSeq.append(seq);
         }
         return newSeq;
     }
 
+    /**
+     * Encodes the input string like encode, timing the call and telling the listener about it
+     * and about the letter missing from the codebook, if any.
+     *
+     * @param s the input string.
+     * @return am encoded string represented with a BinarySequence.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook, naming its position.
+     */
+    private BinarySequence encodeReporting(String s) {
+        long start = System.nanoTime();
+        BinarySequence newSeq = new BinarySequence();
+        for (int i = 0; i < s.length(); i++) {
+            BinarySequence seq = getSequence(s.charAt(i));
+            if (seq == null) {
+                listener.onMiss(s.charAt(i), i);
+                throw CompiledCodeBook.missingLetter(s.charAt(i), i);
+            }
+            newSeq.append(seq);
+        }
+        listener.onEncode(s, newSeq.size(), System.nanoTime() - start);
+        return newSeq;
+    }
+
+    /**
+     * Encodes any input string into a binary sequence, using an escape letter for the letters the codebook lacks.
+     * Such a letter, and the escape letter itself, is written as the sequence of the escape letter followed by
+     * the CompiledCodeBook.LITERAL_BITS bits of the letter. HuffmanCodeTree.decode with the same escape letter
+     * reverses it.
+     *
+     * @param s      the input string.
+     * @param escape the letter whose sequence announces a literal, usually one that never appears in text.
+     * @return am encoded string represented with a BinarySequence.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook.
+     */
+    public BinarySequence encode(String s, char escape) {
+        BinarySequence escapeSeq = getSequence(escape);
+        if (escapeSeq == null) {
+            throw new IllegalArgumentException("Escape letter U+" + String.format("%04X", (int) escape)
+                    + " is not in the codebook.");
+        }
+        long start = listener == null ? 0 : System.nanoTime();
+        BinarySequence newSeq = new BinarySequence();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            BinarySequence seq = c == escape ? null : getSequence(c);
+            if (seq == null) {
+                if (listener != null && c != escape) {
+                    listener.onMiss(c, i);
+                }
+                newSeq.append(escapeSeq);
+                for (int bit = CompiledCodeBook.LITERAL_BITS - 1; bit >= 0; bit--) {
+                    newSeq.append(((c >>> bit) & 1) == 1);
+                }
+            } else {
+                newSeq.append(seq);
+            }
+        }
+        if (listener != null) {
+            listener.onEncode(s, newSeq.size(), System.nanoTime() - start);
+        }
+        return newSeq;
+    }
+
+    /**
+     * Sets the listener told about every encode call.
+     * The listener is not synchronized, so it should be set before the codebook is shared between threads.
+     *
+     * @param listener the listener, or null to stop reporting.
+     */
+    public void setMetricsListener(HuffmanMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the listener told about every encode call.
+     *
+     * @return the listener, or null when there is none.
+     */
+    public HuffmanMetricsListener getMetricsListener() {
+        return listener;
+    }
+
+    /**
+     * Compiles the codebook into a read-only form that looks up a letter with a single array load.
+     * Later changes to this codebook are not seen by the compiled form. The compiled form is kept and returned
+     * again until a letter is added, so a BinarySequence must not be changed once it is in the codebook.
+     *
+     * @return a CompiledCodeBook holding the same codes.
+     * @see CompiledCodeBook
+     */
+    public CompiledCodeBook compile() {
+        if (compiled == null) {
+            compiled = new CompiledCodeBook(this);
+        }
+        return compiled;
+    }
+
     ///////////////////////////////////////////////////////
     // Iteration Methods below.
     ///////////////////////////////////////////////////////
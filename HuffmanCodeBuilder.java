@@ -0,0 +1,450 @@
+//Bilal Ahmed
+
+package student;
+
+import provided.BinarySequence;
+
+import java.util.Arrays;
+
+/**
+ * This class builds an optimal codebook, and its matching tree, from letter frequencies.
+ * Frequencies are given one by one, as a histogram indexed by char, or counted from a sample of text.
+ * Code lengths come from Huffman's algorithm over a primitive min-heap. When they exceed the maximum code length,
+ * they are recomputed with the package-merge algorithm, which gives the best lengths under that limit.
+ * Codes are then assigned in canonical order: shorter codes first, and letters of equal length in ascending order.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanCodeBuilder {
+    /**
+     * The number of chars, which is the size of the histogram.
+     */
+    static final int ALPHABET_SIZE = 1 << Character.SIZE;
+
+    /**
+     * The frequency of each char.
+     */
+    private final long[] frequencies;
+    /**
+     * The longest code the builder may assign.
+     */
+    private int maxCodeLength;
+    /**
+     * The letter always given a code so it can announce literals, or -1 for none.
+     */
+    private int escape = -1;
+
+    /**
+     * Constructor that initializes the HuffmanCodeBuilder object, with no frequencies and the longest code
+     * a CompiledCodeBook can hold as the maximum code length.
+     */
+    public HuffmanCodeBuilder() {
+        this.frequencies = new long[ALPHABET_SIZE];
+        this.maxCodeLength = CompiledCodeBook.MAX_CODE_LENGTH;
+    }
+
+    /**
+     * Adds occurrences of a letter.
+     *
+     * @param c     the letter.
+     * @param count the number of occurrences to be added.
+     * @return this builder.
+     * @throws IllegalArgumentException when count is negative.
+     */
+    public HuffmanCodeBuilder addFrequency(char c, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Frequency of '" + c + "' cannot be negative.");
+        }
+        frequencies[c] = Math.addExact(frequencies[c], count);
+        return this;
+    }
+
+    /**
+     * Adds a histogram of letter occurrences.
+     *
+     * @param histogram the number of occurrences of each char, indexed by the char.
+     * @return this builder.
+     * @throws IllegalArgumentException when the histogram is larger than the alphabet or holds a negative count.
+     */
+    public HuffmanCodeBuilder addFrequencies(long[] histogram) {
+        if (histogram.length > ALPHABET_SIZE) {
+            throw new IllegalArgumentException("Histogram has more than " + ALPHABET_SIZE + " entries.");
+        }
+        for (int c = 0; c < histogram.length; c++) {
+            if (histogram[c] != 0) {
+                addFrequency((char) c, histogram[c]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Counts the letters of a sample of text.
+     *
+     * @param sample the text to be counted.
+     * @return this builder.
+     */
+    public HuffmanCodeBuilder addSample(CharSequence sample) {
+        for (int i = 0; i < sample.length(); i++) {
+            frequencies[sample.charAt(i)]++;
+        }
+        return this;
+    }
+
+    /**
+     * Set the longest code the builder may assign.
+     *
+     * @param maxCodeLength the maximum code length, between 1 and CompiledCodeBook.MAX_CODE_LENGTH.
+     * @return this builder.
+     * @throws IllegalArgumentException when the length is out of range.
+     */
+    public HuffmanCodeBuilder setMaxCodeLength(int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > CompiledCodeBook.MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length must be between 1 and "
+                    + CompiledCodeBook.MAX_CODE_LENGTH + ".");
+        }
+        this.maxCodeLength = maxCodeLength;
+        return this;
+    }
+
+    /**
+     * Set a letter that always gets a code, even when it was never counted, so it can be used as an escape letter
+     * by CompiledCodeBook, HuffmanCodeBook, HuffmanCodeTree and HuffmanCodec to carry letters the codebook lacks.
+     * A letter that never appears in text, such as U+FFFF, is the usual choice.
+     *
+     * @param escape the escape letter.
+     * @return this builder.
+     */
+    public HuffmanCodeBuilder setEscape(char escape) {
+        this.escape = escape;
+        return this;
+    }
+
+    /**
+     * Builds the codebook.
+     *
+     * @return a HuffmanCodeBook holding a canonical code for every letter with a frequency above zero.
+     * @throws IllegalArgumentException when no letter has a frequency, or when the letters cannot fit
+     *                                  in codes of the maximum length.
+     */
+    public HuffmanCodeBook build() {
+        CompiledCodeBook compiled = buildCompiled();
+        HuffmanCodeBook book = new HuffmanCodeBook();
+        for (int i = 0; i < compiled.getSymbolCount(); i++) {
+            book.addSequence(compiled.getSymbol(i), toSequence(compiled.getCodeAt(i), compiled.getLengthAt(i)));
+        }
+        return book;
+    }
+
+    /**
+     * Builds the tree matching the codebook.
+     *
+     * @return a HuffmanCodeTree holding a canonical code for every letter with a frequency above zero.
+     * @throws IllegalArgumentException when no letter has a frequency, or when the letters cannot fit
+     *                                  in codes of the maximum length.
+     */
+    public HuffmanCodeTree buildTree() {
+        return buildCompiled().toCodeTree();
+    }
+
+    /**
+     * Builds the codebook in its compiled form.
+     *
+     * @return a CompiledCodeBook holding a canonical code for every letter with a frequency above zero.
+     * @throws IllegalArgumentException when no letter has a frequency, or when the letters cannot fit
+     *                                  in codes of the maximum length.
+     */
+    public CompiledCodeBook buildCompiled() {
+        int count = 0;
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            if (frequencies[c] > 0 || c == escape) {
+                count++;
+            }
+        }
+        char[] symbols = new char[count];
+        long[] weights = new long[count];
+        int index = 0;
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            if (frequencies[c] > 0 || c == escape) {
+                symbols[index] = (char) c;
+                weights[index++] = Math.max(1, frequencies[c]);
+            }
+        }
+        int[] lengths = codeLengths(weights, maxCodeLength);
+        return new CompiledCodeBook(symbols, canonicalCodes(lengths), lengths);
+    }
+
+    /**
+     * Converts a code into a BinarySequence.
+     *
+     * @param code   the code, held in the lowest bits.
+     * @param length the number of bits of the code.
+     * @return a BinarySequence holding the bits of the code.
+     */
+    static BinarySequence toSequence(long code, int length) {
+        BinarySequence seq = new BinarySequence();
+        for (int bit = length - 1; bit >= 0; bit--) {
+            seq.append(((code >>> bit) & 1) == 1);
+        }
+        return seq;
+    }
+
+    ///////////////////////////////////////////////////////
+    // Code length computation below.
+    ///////////////////////////////////////////////////////
+
+    /**
+     * Computes optimal code lengths for the given weights, none of them longer than maxLength.
+     *
+     * @param weights   the weight of each symbol, all above zero.
+     * @param maxLength the longest code allowed.
+     * @return the code length of each symbol.
+     * @throws IllegalArgumentException when there are no weights or too many symbols for maxLength.
+     */
+    static int[] codeLengths(long[] weights, int maxLength) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("There are no letters to build codes for.");
+        }
+        if (maxLength < Long.SIZE - 1 && n > (1L << maxLength)) {
+            throw new IllegalArgumentException(n + " letters cannot have codes of at most " + maxLength + " bits.");
+        }
+        if (n == 1) {
+            //A single letter still needs one bit per occurrence.
+            return new int[]{1};
+        }
+        int[] lengths = huffmanLengths(weights);
+        for (int length : lengths) {
+            if (length > maxLength) {
+                return packageMergeLengths(weights, maxLength);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Computes code lengths with Huffman's algorithm.
+     * Leaves are nodes 0 to n - 1, internal nodes are numbered in the order they are created.
+     *
+     * @param weights the weight of each symbol, at least two of them.
+     * @return the code length of each symbol.
+     */
+    private static int[] huffmanLengths(long[] weights) {
+        int n = weights.length;
+        int total = 2 * n - 1;
+        long[] nodeWeights = new long[total];
+        int[] parents = new int[total];
+        System.arraycopy(weights, 0, nodeWeights, 0, n);
+
+        MinHeap heap = new MinHeap(nodeWeights, n);
+        for (int i = 0; i < n; i++) {
+            heap.push(i);
+        }
+        for (int next = n; next < total; next++) {
+            int first = heap.pop();
+            int second = heap.pop();
+            nodeWeights[next] = Math.addExact(nodeWeights[first], nodeWeights[second]);
+            parents[first] = next;
+            parents[second] = next;
+            heap.push(next);
+        }
+
+        //Parents are created after their children, so one backward pass gives every depth.
+        int[] depths = new int[total];
+        for (int node = total - 2; node >= 0; node--) {
+            depths[node] = depths[parents[node]] + 1;
+        }
+        int[] lengths = new int[n];
+        System.arraycopy(depths, 0, lengths, 0, n);
+        return lengths;
+    }
+
+    /**
+     * Computes length-limited code lengths with the package-merge algorithm.
+     * Each level holds the symbols sorted by weight merged with the packages made by pairing the items
+     * of the level below it. Only the first 2n - 2 items of each level can ever be selected.
+     *
+     * @param weights   the weight of each symbol, at least two of them.
+     * @param maxLength the longest code allowed, with 2 to the maxLength at least the number of symbols.
+     * @return the code length of each symbol.
+     */
+    private static int[] packageMergeLengths(long[] weights, int maxLength) {
+        int n = weights.length;
+        int limit = 2 * n - 2;
+
+        //Sort the symbols by weight by popping them off the heap.
+        int[] order = new int[n];
+        long[] sorted = new long[n];
+        MinHeap heap = new MinHeap(weights, n);
+        for (int i = 0; i < n; i++) {
+            heap.push(i);
+        }
+        for (int i = 0; i < n; i++) {
+            order[i] = heap.pop();
+            sorted[i] = weights[order[i]];
+        }
+
+        //leafFlags[level][i] tells whether item i of the level is a symbol or a package.
+        boolean[][] leafFlags = new boolean[maxLength + 1][];
+        long[] below = sorted;
+        int belowSize = n;
+        leafFlags[maxLength] = new boolean[n];
+        Arrays.fill(leafFlags[maxLength], true);
+        for (int level = maxLength - 1; level >= 1; level--) {
+            int packages = belowSize / 2;
+            int size = Math.min(limit, n + packages);
+            long[] items = new long[size];
+            boolean[] flags = new boolean[size];
+            int leaf = 0;
+            int pack = 0;
+            for (int i = 0; i < size; i++) {
+                long packWeight = pack < packages
+                        ? Math.addExact(below[2 * pack], below[2 * pack + 1]) : Long.MAX_VALUE;
+                if (leaf < n && sorted[leaf] <= packWeight) {
+                    items[i] = sorted[leaf++];
+                    flags[i] = true;
+                } else {
+                    items[i] = packWeight;
+                    pack++;
+                }
+            }
+            leafFlags[level] = flags;
+            below = items;
+            belowSize = size;
+        }
+
+        //Walk back up from the top level: every selected symbol adds one bit to its code.
+        int[] lengths = new int[n];
+        int selected = limit;
+        for (int level = 1; level <= maxLength && selected > 0; level++) {
+            int leaves = 0;
+            for (int i = 0; i < selected; i++) {
+                if (leafFlags[level][i]) {
+                    leaves++;
+                }
+            }
+            for (int i = 0; i < leaves; i++) {
+                lengths[order[i]]++;
+            }
+            selected = 2 * (selected - leaves);
+        }
+        return lengths;
+    }
+
+    /**
+     * Assigns canonical codes from code lengths.
+     * Codes are given in order of length, and symbols of the same length in order of their index.
+     *
+     * @param lengths the code length of each symbol, symbols being in ascending order.
+     * @return the code of each symbol, held in the lowest bits.
+     */
+    static long[] canonicalCodes(int[] lengths) {
+        int maxLength = 0;
+        for (int length : lengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int length : lengths) {
+            lengthCounts[length]++;
+        }
+        long[] nextCode = new long[maxLength + 1];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+        long[] codes = new long[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            codes[i] = nextCode[lengths[i]]++;
+        }
+        return codes;
+    }
+
+    /**
+     * Private class that implements a binary min-heap of node indices, ordered by the weight of the nodes.
+     * Nodes of equal weight are ordered by index, so the codes do not depend on insertion order.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class MinHeap {
+        /**
+         * The weight of each node, indexed by node.
+         */
+        private final long[] weights;
+        /**
+         * The node indices, in heap order.
+         */
+        private final int[] heap;
+        /**
+         * The number of nodes in the heap.
+         */
+        private int size;
+
+        /**
+         * Constructor that initializes an empty MinHeap.
+         *
+         * @param weights  the weight of each node, indexed by node.
+         * @param capacity the largest number of nodes held at once.
+         */
+        MinHeap(long[] weights, int capacity) {
+            this.weights = weights;
+            this.heap = new int[capacity];
+        }
+
+        /**
+         * Adds a node to the heap.
+         *
+         * @param node the index of the node.
+         */
+        void push(int node) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(node, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = node;
+        }
+
+        /**
+         * Removes the lightest node from the heap.
+         *
+         * @return the index of the lightest node.
+         */
+        int pop() {
+            int top = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+
+        /**
+         * Compares two nodes.
+         *
+         * @param a the first node.
+         * @param b the second node.
+         * @return true when the first node is lighter, or as heavy with a smaller index.
+         */
+        private boolean less(int a, int b) {
+            return weights[a] < weights[b] || (weights[a] == weights[b] && a < b);
+        }
+    }
+}
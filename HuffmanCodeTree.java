@@ -14,6 +14,10 @@ public class HuffmanCodeTree {
      * The root of the HuffmanCodeTree.
      */
     private HuffmanNode root;
+    /**
+     * The listener told about every decode call, or null when the tree is not instrumented.
+     */
+    private HuffmanMetricsListener listener;
 
     /**
      * Constructor that initializes the HuffmanCode tree.
@@ -87,6 +91,32 @@ public class HuffmanCodeTree {
         currentNode.setData(letter);
     }
 
+    /**
+     * This method modifies the huffman tree structure.
+     * So that the node addressed by the code stores the given char
+     *
+     * @param code   the code of the given character, held in the lowest bits, first bit being the most significant.
+     * @param length the number of bits of the code.
+     * @param letter the character that will be stored.
+     */
+    public void put(long code, int length, char letter) {
+        HuffmanNode currentNode = this.root;
+        for (int bit = length - 1; bit >= 0; bit--) {
+            if (((code >>> bit) & 1) == 1) {
+                if (currentNode.getOne() == null) {
+                    currentNode.setOne(new HuffmanNode());
+                }
+                currentNode = currentNode.getOne();
+            } else {
+                if (currentNode.getZero() == null) {
+                    currentNode.setZero(new HuffmanNode());
+                }
+                currentNode = currentNode.getZero();
+            }
+        }
+        currentNode.setData(letter);
+    }
+
     /**
      * This method decodes a BinarySequence into a string.
      *
@@ -94,6 +124,7 @@ public class HuffmanCodeTree {
      * @return a String representing the decoded BinarySequence.
      */
     public String decode(BinarySequence s) {
+        long start = listener == null ? 0 : System.nanoTime();
         StringBuilder sb = new StringBuilder();
         HuffmanNode node = this.root;
         for (Boolean bool : s) {
@@ -112,6 +143,71 @@ public class HuffmanCodeTree {
             }
         }
 
+        if (listener != null) {
+            listener.onDecode(s.size(), sb.length(), System.nanoTime() - start);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Sets the listener told about every decode call.
+     * The listener is not synchronized, so it should be set before the tree is shared between threads.
+     *
+     * @param listener the listener, or null to stop reporting.
+     */
+    public void setMetricsListener(HuffmanMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the listener told about every decode call.
+     *
+     * @return the listener, or null when there is none.
+     */
+    public HuffmanMetricsListener getMetricsListener() {
+        return listener;
+    }
+
+    /**
+     * This method decodes a BinarySequence written with an escape letter into a string.
+     * The bits after the escape letter are read as a literal letter of CompiledCodeBook.LITERAL_BITS bits.
+     * An incomplete code or literal at the end is ignored.
+     *
+     * @param s      the BinarySequence that will be decoded.
+     * @param escape the letter whose code announces a literal.
+     * @return a String representing the decoded BinarySequence.
+     */
+    public String decode(BinarySequence s, char escape) {
+        long start = listener == null ? 0 : System.nanoTime();
+        StringBuilder sb = new StringBuilder();
+        HuffmanNode node = this.root;
+        int literalBits = -1;
+        int literal = 0;
+        for (Boolean bool : s) {
+            if (literalBits >= 0) {
+                //Reading the bits of a literal.
+                literal = (literal << 1) | (bool ? 1 : 0);
+                if (++literalBits == CompiledCodeBook.LITERAL_BITS) {
+                    sb.append((char) literal);
+                    literalBits = -1;
+                }
+                continue;
+            }
+            node = bool ? node.getOne() : node.getZero();
+            if (node.isLeaf()) {
+                if (node.getData() == escape) {
+                    literalBits = 0;
+                    literal = 0;
+                } else {
+                    sb.append(node.getData());
+                }
+                node = this.root;
+            }
+        }
+
+        if (listener != null) {
+            listener.onDecode(s.size(), sb.length(), System.nanoTime() - start);
+        }
         return sb.toString();
     }
 
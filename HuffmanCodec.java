@@ -0,0 +1,504 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is a frozen snapshot of a codebook and its decode table, safe to share between any number of threads.
+ * All its fields are final and hold read-only objects built when the snapshot is taken, so the codec is safely
+ * published by any means and later changes to the HuffmanCodeBook or HuffmanCodeTree it came from are not seen.
+ * Calls never lock: scratch state lives either in buffers given by the caller, or in a per-thread BitWriter and
+ * word array that are reused from call to call, so encoding and decoding do not allocate once they are warm.
+ * The byte layout is the one of PackedBits.toByteArray: the bits padded to a whole byte, then the trailer byte.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanCodec {
+    /**
+     * The scratch state of the current thread, shared by every codec.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    /**
+     * The buffer a byte writer points to when it is not in use, so it does not keep the caller's buffer alive.
+     */
+    private static final ByteBuffer NO_TARGET = ByteBuffer.allocate(0);
+
+    /**
+     * The codebook used to encode letters.
+     */
+    private final CompiledCodeBook codeBook;
+    /**
+     * The table used to decode bits.
+     */
+    private final HuffmanDecodeTable table;
+    /**
+     * The listener told about every call, or null when the codec is not instrumented.
+     */
+    private final HuffmanMetricsListener listener;
+    /**
+     * The escape letter, or -1 when letters missing from the codebook are not encoded.
+     */
+    private final int escape;
+
+    /**
+     * Constructor that initializes the HuffmanCodec object, reading DEFAULT_LOOKUP_BITS bits per decode lookup.
+     *
+     * @param codeBook the compiled codebook, which is read-only.
+     * @throws IllegalArgumentException when the codes are not prefix-free.
+     */
+    public HuffmanCodec(CompiledCodeBook codeBook) {
+        this(codeBook, HuffmanDecodeTable.DEFAULT_LOOKUP_BITS);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanCodec object.
+     *
+     * @param codeBook   the compiled codebook, which is read-only.
+     * @param lookupBits the number of bits read by a lookup in the primary decode table.
+     * @throws IllegalArgumentException when the codes are not prefix-free or lookupBits is out of range.
+     */
+    public HuffmanCodec(CompiledCodeBook codeBook, int lookupBits) {
+        this(codeBook, new HuffmanDecodeTable(checkPrefixFree(codeBook).toCodeTree(), lookupBits), null);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanCodec object able to encode any text.
+     * A letter missing from the codebook, and the escape letter itself, is encoded as the code of the escape letter
+     * followed by the CompiledCodeBook.LITERAL_BITS bits of the letter, instead of failing.
+     *
+     * @param codeBook   the compiled codebook, which is read-only and must hold the escape letter.
+     * @param lookupBits the number of bits read by a lookup in the primary decode table.
+     * @param escape     the letter whose code announces a literal.
+     * @throws IllegalArgumentException when the codes are not prefix-free, lookupBits is out of range or the
+     *                                  escape letter is not in the codebook.
+     */
+    public HuffmanCodec(CompiledCodeBook codeBook, int lookupBits, char escape) {
+        this(codeBook, new HuffmanDecodeTable(checkPrefixFree(codeBook).toCodeTree(), lookupBits, escape), null);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanCodec object from tables that are already built.
+     *
+     * @param codeBook the compiled codebook.
+     * @param table    the decode table of the codebook.
+     * @param listener the listener told about every call, or null.
+     */
+    private HuffmanCodec(CompiledCodeBook codeBook, HuffmanDecodeTable table, HuffmanMetricsListener listener) {
+        this.codeBook = codeBook;
+        this.table = table;
+        this.listener = listener;
+        this.escape = table.getEscape();
+    }
+
+    /**
+     * Checks that no code of a codebook is a prefix of another, since the decode table would otherwise keep only
+     * one of them and decode the other letter's bits wrongly.
+     *
+     * @param codeBook the compiled codebook.
+     * @return the same codebook.
+     * @throws IllegalArgumentException when the codes are not prefix-free.
+     */
+    private static CompiledCodeBook checkPrefixFree(CompiledCodeBook codeBook) {
+        PrefixCodeAnalysis.of(codeBook).checkValid();
+        return codeBook;
+    }
+
+    /**
+     * Creates a codec sharing the tables of this one whose calls are reported to a listener.
+     * Calls without a listener only pay a null check; with one, each call is timed with System.nanoTime.
+     *
+     * @param listener the listener told about every call, or null to stop reporting.
+     * @return a HuffmanCodec holding the same codes.
+     */
+    public HuffmanCodec withMetricsListener(HuffmanMetricsListener listener) {
+        return new HuffmanCodec(codeBook, table, listener);
+    }
+
+    /**
+     * Takes a snapshot of a HuffmanCodeBook.
+     * The codebook must not be changed by another thread while the snapshot is taken.
+     *
+     * @param book the HuffmanCodeBook to be copied.
+     * @return a HuffmanCodec holding the same codes.
+     * @throws IllegalArgumentException when the codebook is empty, a code is too long or the codes are not
+     *                                  prefix-free.
+     */
+    public static HuffmanCodec of(HuffmanCodeBook book) {
+        return new HuffmanCodec(book.compile());
+    }
+
+    /**
+     * Takes a snapshot of a HuffmanCodeTree.
+     * The tree must not be changed by another thread while the snapshot is taken.
+     *
+     * @param tree the HuffmanCodeTree to be copied.
+     * @return a HuffmanCodec holding the same codes.
+     * @throws IllegalArgumentException when the tree holds no code or a code longer than MAX_CODE_LENGTH.
+     */
+    public static HuffmanCodec of(HuffmanCodeTree tree) {
+        HuffmanNode root = tree.getRoot();
+        if (root == null || root.isLeaf()) {
+            throw new IllegalArgumentException("The tree does not hold any code.");
+        }
+        char[] letters = new char[16];
+        long[] codes = new long[16];
+        int[] lengths = new int[16];
+        int count = 0;
+        //Depth-first walk with explicit stacks of nodes, codes and depths.
+        HuffmanNode[] nodes = new HuffmanNode[64];
+        long[] paths = new long[64];
+        int[] depths = new int[64];
+        int top = 0;
+        nodes[top] = root;
+        paths[top] = 0;
+        depths[top++] = 0;
+        while (top > 0) {
+            top--;
+            HuffmanNode node = nodes[top];
+            long path = paths[top];
+            int depth = depths[top];
+            if (node.isLeaf()) {
+                if (count == letters.length) {
+                    letters = Arrays.copyOf(letters, count * 2);
+                    codes = Arrays.copyOf(codes, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                letters[count] = node.getData();
+                codes[count] = path;
+                lengths[count++] = depth;
+                continue;
+            }
+            if (depth == CompiledCodeBook.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("The tree holds a code longer than "
+                        + CompiledCodeBook.MAX_CODE_LENGTH + " bits.");
+            }
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                paths = Arrays.copyOf(paths, nodes.length);
+                depths = Arrays.copyOf(depths, nodes.length);
+            }
+            if (node.getZero() != null) {
+                nodes[top] = node.getZero();
+                paths[top] = path << 1;
+                depths[top++] = depth + 1;
+            }
+            if (node.getOne() != null) {
+                nodes[top] = node.getOne();
+                paths[top] = (path << 1) | 1;
+                depths[top++] = depth + 1;
+            }
+        }
+        return new HuffmanCodec(CompiledCodeBook.of(Arrays.copyOf(letters, count), Arrays.copyOf(codes, count),
+                Arrays.copyOf(lengths, count)));
+    }
+
+    /**
+     * Encodes the input string into packed bits, using the writer of the current thread.
+     * Only the returned object is allocated.
+     *
+     * @param s the input string.
+     * @return a PackedBits object holding the encoded string.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    public PackedBits encode(CharSequence s) {
+        BitWriter out = SCRATCH.get().words;
+        out.reset();
+        if (listener == null) {
+            write(s, out);
+            return out.toPackedBits();
+        }
+        long start = System.nanoTime();
+        encodeReporting(s, out);
+        PackedBits bits = out.toPackedBits();
+        listener.onEncode(s, bits.getBitLength(), System.nanoTime() - start);
+        return bits;
+    }
+
+    /**
+     * Encodes the input string into a BitWriter owned by the caller.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    public void encode(CharSequence s, BitWriter out) {
+        if (listener == null) {
+            write(s, out);
+            return;
+        }
+        long start = System.nanoTime();
+        long before = out.getBitLength();
+        encodeReporting(s, out);
+        listener.onEncode(s, out.getBitLength() - before, System.nanoTime() - start);
+    }
+
+    /**
+     * Encodes the input string into a buffer owned by the caller, followed by the trailer byte.
+     * Letters are checked before anything is written, so the buffer is left untouched when one is missing.
+     *
+     * @param s   the input string.
+     * @param out the buffer the bytes are written to, from its position.
+     * @return the number of bytes written, which is encodedSize(s).
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     * @throws BufferOverflowException  when the buffer does not have room for every byte.
+     */
+    public int encode(CharSequence s, ByteBuffer out) {
+        long start = listener == null ? 0 : System.nanoTime();
+        long bits = listener == null ? bitLength(s) : encodedLengthReporting(s);
+        long size = (bits + 7) / 8 + 1;
+        if (out.remaining() < size) {
+            throw new BufferOverflowException();
+        }
+        BitWriter writer = SCRATCH.get().bytes;
+        writer.setTarget(out);
+        try {
+            write(s, writer);
+            writer.finish();
+        } finally {
+            writer.setTarget(NO_TARGET);
+        }
+        if (listener != null) {
+            listener.onEncode(s, bits, System.nanoTime() - start);
+        }
+        return (int) size;
+    }
+
+    /**
+     * Computes the number of bytes encode writes for the input string, trailer included.
+     *
+     * @param s the input string.
+     * @return a long representing the number of bytes.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    public long encodedSize(CharSequence s) {
+        return (bitLength(s) + 7) / 8 + 1;
+    }
+
+    /**
+     * Decodes packed bits into a string.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(PackedBits bits) {
+        if (listener == null) {
+            return table.decode(bits);
+        }
+        long start = System.nanoTime();
+        String s = table.decode(bits);
+        listener.onDecode(bits.getBitLength(), s.length(), System.nanoTime() - start);
+        return s;
+    }
+
+    /**
+     * Decodes a range of bits into a buffer owned by the caller, without allocating.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded.
+     * @param toBit   the position after the last bit to be decoded.
+     * @param out     the buffer the letters are written to.
+     * @return the position of the first bit not decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public long decode(long[] words, long fromBit, long toBit, CharBuffer out) {
+        if (listener == null) {
+            return table.decode(words, fromBit, toBit, out);
+        }
+        long start = System.nanoTime();
+        int before = out.position();
+        long position = table.decode(words, fromBit, toBit, out);
+        listener.onDecode(position - fromBit, out.position() - before, System.nanoTime() - start);
+        return position;
+    }
+
+    /**
+     * Decodes the bytes left in a buffer, trailer included, into a buffer owned by the caller.
+     * The bytes are unpacked into the word array of the current thread, so no memory is allocated once
+     * the array is large enough. The input buffer is read to its limit.
+     *
+     * @param in  the buffer holding the bytes and the trailer byte.
+     * @param out the buffer the letters are written to.
+     * @return the number of letters written.
+     * @throws IllegalArgumentException when the trailer is missing or invalid, or the bits do not lead to any letter.
+     * @throws BufferOverflowException  when the output buffer does not have room for every letter.
+     */
+    public int decode(ByteBuffer in, CharBuffer out) {
+        long startNanos = listener == null ? 0 : System.nanoTime();
+        int length = in.remaining();
+        if (length < 1) {
+            throw new IllegalArgumentException("The trailer byte is missing.");
+        }
+        int start = in.position();
+        int payload = length - 1;
+        int padding = in.get(start + payload);
+        if (padding < 0 || padding > 7 || (payload == 0 && padding != 0)) {
+            throw new IllegalArgumentException("Invalid trailer byte " + padding + ".");
+        }
+        Scratch scratch = SCRATCH.get();
+        long[] words = scratch.words(payload / Long.BYTES + 1);
+        boolean swap = in.order() == ByteOrder.LITTLE_ENDIAN;
+        int i = 0;
+        for (; i + Long.BYTES <= payload; i += Long.BYTES) {
+            long word = in.getLong(start + i);
+            words[i >>> 3] = swap ? Long.reverseBytes(word) : word;
+        }
+        words[i >>> 3] = 0;
+        for (; i < payload; i++) {
+            words[i >>> 3] |= (in.get(start + i) & 0xFFL) << (56 - 8 * (i & 7));
+        }
+        long totalBits = (long) payload * Byte.SIZE - padding;
+
+        int before = out.position();
+        long position = table.decode(words, 0, totalBits, out);
+        //A full buffer is only an error when the bits left hold a complete code.
+        if (position < totalBits && table.decodeOne(words, position, totalBits) != -1) {
+            throw new BufferOverflowException();
+        }
+        in.position(in.limit());
+        if (listener != null) {
+            listener.onDecode(position, out.position() - before, System.nanoTime() - startNanos);
+        }
+        return out.position() - before;
+    }
+
+    /**
+     * Encodes the input string, with literals when the codec has an escape letter.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    private void write(CharSequence s, BitWriter out) {
+        if (escape < 0) {
+            codeBook.encode(s, out);
+        } else {
+            codeBook.encode(s, 0, s.length(), (char) escape, out);
+        }
+    }
+
+    /**
+     * Computes the number of bits of the encoded string, literals included.
+     *
+     * @param s the input string.
+     * @return a long representing the number of bits.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    private long bitLength(CharSequence s) {
+        return escape < 0 ? codeBook.encodedLength(s) : codeBook.encodedLength(s, (char) escape);
+    }
+
+    /**
+     * Encodes the input string, telling the listener about missing letters.
+     *
+     * @param s   the input string.
+     * @param out the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    private void encodeReporting(CharSequence s, BitWriter out) {
+        try {
+            write(s, out);
+        } catch (IllegalArgumentException e) {
+            reportMiss(s);
+            throw e;
+        }
+        if (escape >= 0) {
+            reportMiss(s);
+        }
+    }
+
+    /**
+     * Computes the number of bits of the encoded string, telling the listener about missing letters.
+     *
+     * @param s the input string.
+     * @return a long representing the number of bits.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    private long encodedLengthReporting(CharSequence s) {
+        long bits;
+        try {
+            bits = bitLength(s);
+        } catch (IllegalArgumentException e) {
+            reportMiss(s);
+            throw e;
+        }
+        if (escape >= 0) {
+            reportMiss(s);
+        }
+        return bits;
+    }
+
+    /**
+     * Tells the listener about the letters of a string that are not in the codebook: the first one when encoding
+     * failed, or every one that was escaped. Only called when a listener is set, so the extra pass is off the
+     * uninstrumented path.
+     *
+     * @param s the string that was encoded.
+     */
+    private void reportMiss(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!codeBook.contains(s.charAt(i))) {
+                listener.onMiss(s.charAt(i), i);
+                if (escape < 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the compiled codebook of the snapshot.
+     *
+     * @return the CompiledCodeBook used to encode letters.
+     */
+    public CompiledCodeBook getCodeBook() {
+        return codeBook;
+    }
+
+    /**
+     * Get the decode table of the snapshot.
+     *
+     * @return the HuffmanDecodeTable used to decode bits.
+     */
+    public HuffmanDecodeTable getDecodeTable() {
+        return table;
+    }
+
+    /**
+     * This class holds the scratch state of one thread.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Scratch {
+        /**
+         * The writer used to encode into packed bits.
+         */
+        private final BitWriter words = new BitWriter();
+        /**
+         * The writer used to encode into buffers given by the caller.
+         */
+        private final BitWriter bytes = new BitWriter(NO_TARGET);
+        /**
+         * The words bytes are unpacked into before being decoded.
+         */
+        private long[] input = new long[16];
+
+        /**
+         * Get the word array, grown to at least the given size.
+         *
+         * @param size the number of words needed.
+         * @return the word array of the thread.
+         */
+        private long[] words(int size) {
+            if (input.length < size) {
+                input = new long[Math.max(size, input.length * 2)];
+            }
+            return input;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class caches HuffmanCodec snapshots, so a codebook seen before does not have its decode table built again.
+ * Codebooks are keyed by a 64-bit fingerprint of their letters, codes and lengths; two codebooks with the same
+ * fingerprint are compared letter by letter before a codec is shared, so a collision never returns a wrong codec.
+ * Lookups go through a ConcurrentHashMap and never take a lock. The cache is bounded by the estimated size of its
+ * codecs: when it grows over its budget, the codecs used least recently are evicted by whichever thread gets the
+ * eviction lock first, while the others carry on.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanCodecCache {
+    /**
+     * The size budget of the cache when none is given.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * The cached codecs.
+     */
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * The lock held by the thread evicting codecs.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * The size budget of the cache in bytes.
+     */
+    private final long maxBytes;
+    /**
+     * The estimated size of the cached codecs in bytes.
+     */
+    private final AtomicLong weight = new AtomicLong();
+    /**
+     * The number of lookups that found a cached codec.
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * The number of lookups that built a codec.
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * The number of codecs evicted.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor that initializes a HuffmanCodecCache with a budget of DEFAULT_MAX_BYTES.
+     */
+    public HuffmanCodecCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanCodecCache object.
+     *
+     * @param maxBytes the size budget of the cache in bytes.
+     * @throws IllegalArgumentException when the budget is not positive.
+     */
+    public HuffmanCodecCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The size budget must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the codec of a HuffmanCodeBook, building it when it is not cached.
+     * The codebook keeps its compiled form and the compiled form its fingerprint, so looking up an unchanged
+     * codebook again does not go over its letters.
+     *
+     * @param book the HuffmanCodeBook.
+     * @return a HuffmanCodec holding the codes of the codebook.
+     * @throws IllegalArgumentException when the codebook cannot be compiled.
+     */
+    public HuffmanCodec get(HuffmanCodeBook book) {
+        return get(book.compile());
+    }
+
+    /**
+     * Gets the codec of a CompiledCodeBook, building it when it is not cached.
+     * A codec larger than the whole budget is returned but not kept.
+     *
+     * @param codeBook the CompiledCodeBook.
+     * @return a HuffmanCodec holding the codes of the codebook.
+     * @throws IllegalArgumentException when the codes are not prefix-free.
+     */
+    public HuffmanCodec get(CompiledCodeBook codeBook) {
+        Key key = new Key(codeBook);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry[] built = new Entry[1];
+            //computeIfAbsent only locks the bin of the key, so a codebook is built once while others are read.
+            //Returning null keeps a codec over the whole budget out of the map instead of evicting everything else.
+            entry = entries.computeIfAbsent(key, k -> {
+                built[0] = new Entry(new HuffmanCodec(codeBook));
+                return built[0].weight > maxBytes ? null : built[0];
+            });
+            if (built[0] != null) {
+                misses.increment();
+                if (entry == null) {
+                    return built[0].codec;
+                }
+                weight.addAndGet(entry.weight);
+                evictIfNeeded();
+                return entry.codec;
+            }
+        }
+        hits.increment();
+        entry.lastAccess = System.nanoTime();
+        return entry.codec;
+    }
+
+    /**
+     * Evicts the codecs used least recently until the cache fits its budget.
+     * Only one thread evicts at a time; the others return at once. The evicting thread checks the budget again
+     * after releasing the lock, since codecs added while it held the lock may not have been in its snapshot.
+     */
+    private void evictIfNeeded() {
+        while (weight.get() > maxBytes && evictionLock.tryLock()) {
+            boolean evicted;
+            try {
+                evicted = evictOldest();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (!evicted) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Evicts the codecs used least recently until the cache fits its budget or every codec seen is evicted.
+     * Must be called while holding the eviction lock.
+     *
+     * @return whether any codec was evicted.
+     */
+    private boolean evictOldest() {
+        boolean evicted = false;
+        List<Map.Entry<Key, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        //The ages are read once, since a codec used during the sort would otherwise change its order.
+        long[] ages = new long[snapshot.size()];
+        Integer[] order = new Integer[snapshot.size()];
+        for (int i = 0; i < ages.length; i++) {
+            ages[i] = snapshot.get(i).getValue().lastAccess;
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> ages[i]));
+        for (int i = 0; i < order.length && weight.get() > maxBytes; i++) {
+            Map.Entry<Key, Entry> oldest = snapshot.get(order[i]);
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                weight.addAndGet(-oldest.getValue().weight);
+                evictions.increment();
+                evicted = true;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes every cached codec. Counters are kept.
+     */
+    public void clear() {
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                weight.addAndGet(-entry.getValue().weight);
+            }
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a codebook from its letters, codes and code lengths.
+     *
+     * @param codeBook the CompiledCodeBook.
+     * @return a long representing the fingerprint.
+     * @see CompiledCodeBook#getFingerprint()
+     */
+    public static long fingerprint(CompiledCodeBook codeBook) {
+        return codeBook.getFingerprint();
+    }
+
+    /**
+     * Get the number of lookups that found a cached codec.
+     *
+     * @return a long representing the number of hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that built a codec.
+     *
+     * @return a long representing the number of misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of codecs evicted.
+     *
+     * @return a long representing the number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of cached codecs.
+     *
+     * @return an int representing the number of codecs.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the estimated size of the cached codecs.
+     *
+     * @return a long representing the size in bytes.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * Get the size budget of the cache.
+     *
+     * @return a long representing the budget in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * This class is the key of a codebook: its fingerprint, and the codebook itself to tell collisions apart.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Key {
+        /**
+         * The codebook.
+         */
+        private final CompiledCodeBook codeBook;
+        /**
+         * The fingerprint of the codebook.
+         */
+        private final long fingerprint;
+
+        /**
+         * Constructor that initializes the Key object.
+         *
+         * @param codeBook the codebook.
+         */
+        private Key(CompiledCodeBook codeBook) {
+            this.codeBook = codeBook;
+            this.fingerprint = codeBook.getFingerprint();
+        }
+
+        /**
+         * Returns a hash code built from the fingerprint.
+         *
+         * @return an int representing the hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fingerprint);
+        }
+
+        /**
+         * Compares the fingerprints, then every letter, code and length.
+         *
+         * @param o the object to be compared with.
+         * @return a boolean indicating whether both keys hold the same codes.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other) || fingerprint != other.fingerprint) {
+                return false;
+            }
+            CompiledCodeBook a = codeBook;
+            CompiledCodeBook b = other.codeBook;
+            if (a == b) {
+                return true;
+            }
+            if (a.getSymbolCount() != b.getSymbolCount()) {
+                return false;
+            }
+            for (int i = 0; i < a.getSymbolCount(); i++) {
+                if (a.getSymbol(i) != b.getSymbol(i) || a.getCodeAt(i) != b.getCodeAt(i)
+                        || a.getLengthAt(i) != b.getLengthAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * This class is a cached codec, with its size and the time it was last used.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Entry {
+        /**
+         * The codec.
+         */
+        private final HuffmanCodec codec;
+        /**
+         * The estimated size of the codec in bytes.
+         */
+        private final long weight;
+        /**
+         * The value of System.nanoTime when the codec was last used.
+         */
+        private volatile long lastAccess;
+
+        /**
+         * Constructor that initializes the Entry object.
+         *
+         * @param codec the codec.
+         */
+        private Entry(HuffmanCodec codec) {
+            this.codec = codec;
+            this.weight = codec.getCodeBook().getFootprintBytes()
+                    + (long) codec.getDecodeTable().getTableSize() * Long.BYTES;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
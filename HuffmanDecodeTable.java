@@ -0,0 +1,697 @@
+//Bilal Ahmed
+
+package student;
+
+import provided.BinarySequence;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is a table-driven decoding engine built from a HuffmanCodeTree.
+ * Instead of following one node per bit, it reads several bits at a time and looks them up in a table.
+ * A single lookup can produce up to three letters when their codes are short enough to fit in the lookup window.
+ * Codes longer than the window continue in secondary tables, one per internal node reached at the window's end.
+ * HuffmanCodeTree.decode is kept as the reference implementation, both give the same result.
+ * A table can be built with an escape letter, whose code is followed by a literal letter of
+ * CompiledCodeBook.LITERAL_BITS bits, to decode what CompiledCodeBook writes for letters it does not hold.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanDecodeTable {
+    /**
+     * The number of bits read by a lookup in the primary table when none is given.
+     */
+    public static final int DEFAULT_LOOKUP_BITS = 10;
+    /**
+     * The largest number of bits a lookup can read.
+     */
+    public static final int MAX_LOOKUP_BITS = 16;
+    /**
+     * The largest number of letters a single table entry can produce.
+     */
+    static final int MAX_SYMBOLS = 3;
+
+    //Layout of a table entry:
+    //bits 0-47   up to three letters, 16 bits each, the first one in the lowest bits.
+    //bits 48-52  the number of bits consumed by the entry.
+    //bits 53-54  the number of letters held by the entry.
+    //bits 55-59  the code length of the first letter.
+    //bit 60      set when the entry points to a secondary table.
+    //bit 61      set when the bits do not lead to any letter.
+    //bit 62      set when the last letter of the entry is the escape letter, so a literal follows the entry.
+    //A secondary table pointer keeps the offset of the table in bits 0-31 and its width in bits 32-36.
+
+    /**
+     * Shift of the number of bits consumed by an entry.
+     */
+    static final int CONSUMED_SHIFT = 48;
+    /**
+     * Shift of the number of letters held by an entry.
+     */
+    static final int COUNT_SHIFT = 53;
+    /**
+     * Shift of the code length of the first letter of an entry.
+     */
+    static final int FIRST_LENGTH_SHIFT = 55;
+    /**
+     * Shift of the width of a secondary table.
+     */
+    static final int WIDTH_SHIFT = 32;
+    /**
+     * Flag of an entry pointing to a secondary table.
+     */
+    static final long SUBTABLE = 1L << 60;
+    /**
+     * Flag of an entry whose bits do not lead to any letter.
+     */
+    static final long INVALID = 1L << 61;
+    /**
+     * Flag of an entry ending with the escape letter.
+     */
+    static final long ESCAPE = 1L << 62;
+
+    /**
+     * The number of bits read by a lookup in the primary table.
+     */
+    private final int lookupBits;
+    /**
+     * The length of the longest code of the tree.
+     */
+    private final int maxCodeLength;
+    /**
+     * The primary table, followed by all the secondary tables.
+     */
+    private final long[] table;
+    /**
+     * The escape letter, or -1 when literals are not decoded.
+     */
+    private final int escape;
+    /**
+     * The code length of the escape letter, or 0 when there is none.
+     */
+    private final int escapeLength;
+
+    /**
+     * Constructor that initializes the HuffmanDecodeTable object, reading DEFAULT_LOOKUP_BITS bits per lookup.
+     *
+     * @param tree the HuffmanCodeTree the table is built from.
+     * @throws IllegalArgumentException when the tree has no codes.
+     */
+    public HuffmanDecodeTable(HuffmanCodeTree tree) {
+        this(tree, DEFAULT_LOOKUP_BITS);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanDecodeTable object.
+     *
+     * @param tree       the HuffmanCodeTree the table is built from.
+     * @param lookupBits the number of bits read by a lookup in the primary table, between 1 and MAX_LOOKUP_BITS.
+     * @throws IllegalArgumentException when the tree has no codes or lookupBits is out of range.
+     */
+    public HuffmanDecodeTable(HuffmanCodeTree tree, int lookupBits) {
+        this(tree, lookupBits, -1);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanDecodeTable object decoding the escape letter as the start of a literal.
+     *
+     * @param tree       the HuffmanCodeTree the table is built from.
+     * @param lookupBits the number of bits read by a lookup in the primary table, between 1 and MAX_LOOKUP_BITS.
+     * @param escape     the letter whose code announces a literal.
+     * @throws IllegalArgumentException when the tree has no codes, does not hold the escape letter,
+     *                                  or lookupBits is out of range.
+     */
+    public HuffmanDecodeTable(HuffmanCodeTree tree, int lookupBits, char escape) {
+        this(tree, lookupBits, (int) escape);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanDecodeTable object.
+     *
+     * @param tree       the HuffmanCodeTree the table is built from.
+     * @param lookupBits the number of bits read by a lookup in the primary table.
+     * @param escape     the escape letter, or -1 for none.
+     */
+    private HuffmanDecodeTable(HuffmanCodeTree tree, int lookupBits, int escape) {
+        if (lookupBits < 1 || lookupBits > MAX_LOOKUP_BITS) {
+            throw new IllegalArgumentException("Lookup bits must be between 1 and " + MAX_LOOKUP_BITS + ".");
+        }
+        HuffmanNode root = tree.getRoot();
+        if (root == null || root.isLeaf()) {
+            throw new IllegalArgumentException("The tree does not hold any code.");
+        }
+        this.lookupBits = lookupBits;
+        this.maxCodeLength = height(root);
+        this.escape = escape;
+        this.escapeLength = escape < 0 ? 0 : depthOf(root, (char) escape);
+
+        TableBuilder builder = new TableBuilder();
+        buildPrimaryTable(builder, root);
+        this.table = Arrays.copyOf(builder.entries, builder.size);
+    }
+
+    /**
+     * Decodes a BinarySequence into a string.
+     *
+     * @param s the BinarySequence that will be decoded.
+     * @return a String representing the decoded BinarySequence.
+     * @throws IllegalArgumentException when the sequence holds bits that do not lead to any letter.
+     */
+    public String decode(BinarySequence s) {
+        return decode(PackedBits.of(s));
+    }
+
+    /**
+     * Decodes packed bits into a string.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(PackedBits bits) {
+        return decode(bits.getWords(), bits.getBitLength());
+    }
+
+    /**
+     * Decodes the first bits of the given words into a string.
+     * Like HuffmanCodeTree.decode, an incomplete code at the end is ignored.
+     *
+     * @param words     the words holding the bits, most significant bit first.
+     * @param bitLength the number of bits to be decoded.
+     * @return a String representing the decoded bits.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public String decode(long[] words, long bitLength) {
+        CharBuffer out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bitLength / 4)));
+        long position = 0;
+        while (true) {
+            position = decode(words, position, bitLength, out);
+            if (out.hasRemaining() || position >= bitLength) {
+                break;
+            }
+            //Output is full, grow it and continue.
+            CharBuffer larger = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, out.capacity() * 2L));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+        out.flip();
+        return out.toString();
+    }
+
+    /**
+     * Decodes the bits between two positions into a CharBuffer.
+     * Decoding stops when the end position is reached, when an incomplete code is left before it,
+     * or when the buffer is full. The position of the buffer is moved past the letters written.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded, which must start a code.
+     * @param toBit   the position after the last bit that can be decoded.
+     * @param out     the CharBuffer the letters are written into.
+     * @return the position of the first bit that was not decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public long decode(long[] words, long fromBit, long toBit, CharBuffer out) {
+        if (toBit > (long) words.length * Long.SIZE || fromBit < 0) {
+            throw new IndexOutOfBoundsException("Bits " + fromBit + " to " + toBit + " are out of bounds.");
+        }
+        if (!out.hasArray()) {
+            //Decode through a small heap buffer, then copy into the given buffer.
+            char[] scratch = new char[Math.min(out.remaining(), 1024)];
+            long position = fromBit;
+            while (out.hasRemaining() && position < toBit) {
+                CharBuffer chunk = CharBuffer.wrap(scratch, 0, Math.min(scratch.length, out.remaining()));
+                long next = decode(words, position, toBit, chunk);
+                out.put(scratch, 0, chunk.position());
+                if (next == position) {
+                    break;
+                }
+                position = next;
+            }
+            return position;
+        }
+
+        char[] dst = out.array();
+        int base = out.arrayOffset();
+        int o = base + out.position();
+        int limit = base + out.limit();
+        long[] entries = this.table;
+        int bits = this.lookupBits;
+        long safeBits = Math.max(bits, maxCodeLength) + (escape < 0 ? 0 : CompiledCodeBook.LITERAL_BITS);
+        long position = fromBit;
+
+        while (position < toBit && o < limit) {
+            if (toBit - position >= safeBits && limit - o >= MAX_SYMBOLS) {
+                //Fast path: every code of the entry is inside the bits and fits in the output.
+                long entry = entries[PackedBits.peek(words, position, bits)];
+                while ((entry & SUBTABLE) != 0) {
+                    position += consumed(entry);
+                    entry = entries[(int) entry + PackedBits.peek(words, position, width(entry))];
+                }
+                if ((entry & INVALID) != 0) {
+                    throw invalidCode(position);
+                }
+                dst[o] = (char) entry;
+                dst[o + 1] = (char) (entry >>> 16);
+                dst[o + 2] = (char) (entry >>> 32);
+                o += count(entry);
+                position += consumed(entry);
+                if ((entry & ESCAPE) != 0) {
+                    //The escape letter was written last: replace it with the literal that follows.
+                    dst[o - 1] = (char) PackedBits.peek(words, position, CompiledCodeBook.LITERAL_BITS);
+                    position += CompiledCodeBook.LITERAL_BITS;
+                }
+            } else {
+                //Slow path: close to the end of the bits or of the output, one letter at a time.
+                long decoded = decodeOne(words, position, toBit);
+                if (decoded < 0) {
+                    break;
+                }
+                dst[o++] = (char) decoded;
+                position += decoded >>> 16;
+            }
+        }
+        out.position(o - base);
+        return position;
+    }
+
+    /**
+     * Decodes the letter whose code starts at a given position.
+     *
+     * @param words    the words holding the bits, most significant bit first.
+     * @param position the position of the first bit of the code.
+     * @param toBit    the position after the last bit that can be read.
+     * @return the letter in the lowest 16 bits and the code length above them, or -1 when the code is incomplete.
+     *         For the escape letter, the literal and the length of the code and literal together are returned.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    long decodeOne(long[] words, long position, long toBit) {
+        long p = position;
+        long entry = table[PackedBits.peek(words, p, lookupBits)];
+        while ((entry & SUBTABLE) != 0) {
+            p += consumed(entry);
+            if (p >= toBit) {
+                return -1;
+            }
+            entry = table[(int) entry + PackedBits.peek(words, p, width(entry))];
+        }
+        if ((entry & INVALID) != 0) {
+            if (p + consumed(entry) <= toBit) {
+                throw invalidCode(p);
+            }
+            return -1;
+        }
+        long length = p - position + ((entry >>> FIRST_LENGTH_SHIFT) & 31);
+        if (position + length > toBit) {
+            return -1;
+        }
+        if ((entry & 0xFFFF) == escape) {
+            if (position + length + CompiledCodeBook.LITERAL_BITS > toBit) {
+                return -1;
+            }
+            long literal = PackedBits.peek(words, position + length, CompiledCodeBook.LITERAL_BITS);
+            return ((length + CompiledCodeBook.LITERAL_BITS) << 16) | literal;
+        }
+        return (length << 16) | (entry & 0xFFFF);
+    }
+
+    /**
+     * Decodes the letter whose code starts at a given position with a single primary lookup when the code fits in
+     * it, falling back to decodeOne for longer codes and escapes. Used by decoders that interleave several streams,
+     * where only the first letter of an entry belongs to the stream.
+     *
+     * @param words    the words holding the bits, most significant bit first.
+     * @param position the position of the first bit of the code.
+     * @param toBit    the position after the last bit that can be read.
+     * @return the letter in the lowest 16 bits and the bits used above them, or -1 when the code is incomplete.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    long decodeFirst(long[] words, long position, long toBit) {
+        long entry = table[PackedBits.peek(words, position, lookupBits)];
+        long length = (entry >>> FIRST_LENGTH_SHIFT) & 31;
+        if ((entry & (SUBTABLE | INVALID)) != 0 || (entry & 0xFFFF) == escape || position + length > toBit) {
+            return decodeOne(words, position, toBit);
+        }
+        return (length << 16) | (entry & 0xFFFF);
+    }
+
+    /**
+     * Decodes rounds of four interleaved streams, one letter per stream per round, the letters of round r going to
+     * indexes from + 4r to from + 4r + 3. Each position is kept in its own local variable so the four lookups of a
+     * round do not depend on each other.
+     *
+     * @param words     the words holding the streams.
+     * @param positions the position of each stream, updated on return.
+     * @param dst       the array the letters are written to.
+     * @param from      the index of the letters of round 0 in the array.
+     * @param round     the first round.
+     * @param last      the round after the last one; every stream must hold getMaxLetterBits bits per round.
+     * @return the round after the last one decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    int decodeFour(long[] words, long[] positions, char[] dst, int from, int round, int last) {
+        long[] entries = this.table;
+        int bits = this.lookupBits;
+        long p0 = positions[0];
+        long p1 = positions[1];
+        long p2 = positions[2];
+        long p3 = positions[3];
+        int o = from + round * 4;
+        for (int r = round; r < last; r++) {
+            long e0 = entries[PackedBits.peek(words, p0, bits)];
+            long e1 = entries[PackedBits.peek(words, p1, bits)];
+            long e2 = entries[PackedBits.peek(words, p2, bits)];
+            long e3 = entries[PackedBits.peek(words, p3, bits)];
+            if (((e0 | e1 | e2 | e3) & (SUBTABLE | INVALID)) != 0 || escape >= 0) {
+                //A long code, invalid bits or escapes: take the letters one by one.
+                e0 = decodeFirst(words, p0, Long.MAX_VALUE);
+                e1 = decodeFirst(words, p1, Long.MAX_VALUE);
+                e2 = decodeFirst(words, p2, Long.MAX_VALUE);
+                e3 = decodeFirst(words, p3, Long.MAX_VALUE);
+                dst[o] = (char) e0;
+                dst[o + 1] = (char) e1;
+                dst[o + 2] = (char) e2;
+                dst[o + 3] = (char) e3;
+                p0 += e0 >>> 16;
+                p1 += e1 >>> 16;
+                p2 += e2 >>> 16;
+                p3 += e3 >>> 16;
+            } else {
+                dst[o] = (char) e0;
+                dst[o + 1] = (char) e1;
+                dst[o + 2] = (char) e2;
+                dst[o + 3] = (char) e3;
+                p0 += (e0 >>> FIRST_LENGTH_SHIFT) & 31;
+                p1 += (e1 >>> FIRST_LENGTH_SHIFT) & 31;
+                p2 += (e2 >>> FIRST_LENGTH_SHIFT) & 31;
+                p3 += (e3 >>> FIRST_LENGTH_SHIFT) & 31;
+            }
+            o += 4;
+        }
+        positions[0] = p0;
+        positions[1] = p1;
+        positions[2] = p2;
+        positions[3] = p3;
+        return last;
+    }
+
+    /**
+     * Get the largest number of bits a single letter can take, literal included.
+     *
+     * @return an int representing the longest code, plus the literal bits when there is an escape letter.
+     */
+    int getMaxLetterBits() {
+        return maxCodeLength + (escape < 0 ? 0 : CompiledCodeBook.LITERAL_BITS);
+    }
+
+    /**
+     * Get the number of bits read by a lookup in the primary table.
+     *
+     * @return an int representing the number of bits read per lookup.
+     */
+    public int getLookupBits() {
+        return lookupBits;
+    }
+
+    /**
+     * Get the length of the longest code.
+     *
+     * @return an int representing the length of the longest code of the tree.
+     */
+    public int getMaxCodeLength() {
+        return maxCodeLength;
+    }
+
+    /**
+     * Get the escape letter.
+     *
+     * @return an int representing the escape letter, or -1 when literals are not decoded.
+     */
+    public int getEscape() {
+        return escape;
+    }
+
+    /**
+     * Get the number of entries in the primary and secondary tables.
+     *
+     * @return an int representing the total number of entries.
+     */
+    public int getTableSize() {
+        return table.length;
+    }
+
+    ///////////////////////////////////////////////////////
+    // Entry fields below.
+    ///////////////////////////////////////////////////////
+
+    /**
+     * Get the number of bits consumed by an entry.
+     *
+     * @param entry the table entry.
+     * @return an int representing the number of bits consumed.
+     */
+    static int consumed(long entry) {
+        return (int) (entry >>> CONSUMED_SHIFT) & 31;
+    }
+
+    /**
+     * Get the number of letters held by an entry.
+     *
+     * @param entry the table entry.
+     * @return an int representing the number of letters.
+     */
+    static int count(long entry) {
+        return (int) (entry >>> COUNT_SHIFT) & 3;
+    }
+
+    /**
+     * Get the width of the secondary table an entry points to.
+     *
+     * @param entry the table entry.
+     * @return an int representing the number of bits read by the secondary table.
+     */
+    static int width(long entry) {
+        return (int) (entry >>> WIDTH_SHIFT) & 31;
+    }
+
+    /**
+     * Creates the exception thrown when bits do not lead to any letter.
+     *
+     * @param position the position of the bits.
+     * @return an IllegalArgumentException describing the position.
+     */
+    private static IllegalArgumentException invalidCode(long position) {
+        return new IllegalArgumentException("Bits at position " + position + " do not lead to any letter.");
+    }
+
+    ///////////////////////////////////////////////////////
+    // Table construction below.
+    ///////////////////////////////////////////////////////
+
+    /**
+     * Fills the primary table, and the secondary tables it needs.
+     *
+     * @param builder the builder holding the entries.
+     * @param root    the root of the tree.
+     */
+    private void buildPrimaryTable(TableBuilder builder, HuffmanNode root) {
+        int size = 1 << lookupBits;
+        builder.allocate(size);
+        for (int pattern = 0; pattern < size; pattern++) {
+            HuffmanNode node = root;
+            long letters = 0;
+            int count = 0;
+            int firstLength = 0;
+            int consumed = 0;
+            long flags = 0;
+            long entry = -1;
+            for (int bit = 0; bit < lookupBits; bit++) {
+                node = ((pattern >>> (lookupBits - 1 - bit)) & 1) == 1 ? node.getOne() : node.getZero();
+                if (node == null) {
+                    if (count == 0) {
+                        entry = INVALID | ((long) (bit + 1) << CONSUMED_SHIFT);
+                    }
+                    break;
+                }
+                if (node.isLeaf()) {
+                    letters |= (long) node.getData() << (16 * count);
+                    count++;
+                    consumed = bit + 1;
+                    if (count == 1) {
+                        firstLength = consumed;
+                    }
+                    if (node.getData() == escape) {
+                        //The bits after the escape letter are a literal, not codes.
+                        flags = ESCAPE;
+                        break;
+                    }
+                    node = root;
+                    if (count == MAX_SYMBOLS) {
+                        break;
+                    }
+                }
+            }
+            if (entry == -1) {
+                if (count == 0) {
+                    //Every bit was used by a code longer than the lookup.
+                    entry = pointer(buildSecondaryTable(builder, node), lookupBits);
+                } else {
+                    entry = letters | ((long) consumed << CONSUMED_SHIFT) | ((long) count << COUNT_SHIFT)
+                            | ((long) firstLength << FIRST_LENGTH_SHIFT) | flags;
+                }
+            }
+            builder.entries[pattern] = entry;
+        }
+    }
+
+    /**
+     * Fills a secondary table for the codes continuing below a given internal node.
+     * Each entry of a secondary table holds a single letter.
+     *
+     * @param builder the builder holding the entries.
+     * @param start   the internal node the codes continue from.
+     * @return the offset of the table, with its width in the bits above WIDTH_SHIFT.
+     */
+    private long buildSecondaryTable(TableBuilder builder, HuffmanNode start) {
+        int width = Math.max(1, Math.min(lookupBits, height(start)));
+        int size = 1 << width;
+        int offset = builder.allocate(size);
+        for (int pattern = 0; pattern < size; pattern++) {
+            HuffmanNode node = start;
+            long entry = -1;
+            for (int bit = 0; bit < width; bit++) {
+                node = ((pattern >>> (width - 1 - bit)) & 1) == 1 ? node.getOne() : node.getZero();
+                if (node == null) {
+                    entry = INVALID | ((long) (bit + 1) << CONSUMED_SHIFT);
+                    break;
+                }
+                if (node.isLeaf()) {
+                    entry = node.getData() | ((long) (bit + 1) << CONSUMED_SHIFT) | (1L << COUNT_SHIFT)
+                            | ((long) (bit + 1) << FIRST_LENGTH_SHIFT) | (node.getData() == escape ? ESCAPE : 0);
+                    break;
+                }
+            }
+            if (entry == -1) {
+                entry = pointer(buildSecondaryTable(builder, node), width);
+            }
+            builder.entries[offset + pattern] = entry;
+        }
+        return offset | ((long) width << WIDTH_SHIFT);
+    }
+
+    /**
+     * Creates an entry pointing to a secondary table.
+     *
+     * @param table    the offset of the table, with its width in the bits above WIDTH_SHIFT.
+     * @param consumed the number of bits consumed before reading the secondary table.
+     * @return the pointer entry.
+     */
+    private static long pointer(long table, int consumed) {
+        return SUBTABLE | table | ((long) consumed << CONSUMED_SHIFT);
+    }
+
+    /**
+     * Finds the code length of a letter, without recursion.
+     *
+     * @param root   the root of the tree.
+     * @param letter the letter.
+     * @return an int representing the depth of the leaf holding the letter.
+     * @throws IllegalArgumentException when no leaf holds the letter.
+     */
+    private static int depthOf(HuffmanNode root, char letter) {
+        HuffmanNode[] nodes = new HuffmanNode[64];
+        int[] depths = new int[64];
+        int top = 0;
+        nodes[top] = root;
+        depths[top++] = 0;
+        while (top > 0) {
+            HuffmanNode node = nodes[--top];
+            int depth = depths[top];
+            if (node.isLeaf()) {
+                if (node.getData() == letter) {
+                    return depth;
+                }
+                continue;
+            }
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            if (node.getZero() != null) {
+                nodes[top] = node.getZero();
+                depths[top++] = depth + 1;
+            }
+            if (node.getOne() != null) {
+                nodes[top] = node.getOne();
+                depths[top++] = depth + 1;
+            }
+        }
+        throw new IllegalArgumentException("Escape letter U+" + String.format("%04X", (int) letter)
+                + " is not in the tree.");
+    }
+
+    /**
+     * Computes the height of the subtree below a given node, without recursion.
+     *
+     * @param start the node at the top of the subtree.
+     * @return an int representing the length of the longest path below the node.
+     */
+    static int height(HuffmanNode start) {
+        HuffmanNode[] nodes = new HuffmanNode[64];
+        int[] depths = new int[64];
+        int top = 0;
+        int height = 0;
+        nodes[top] = start;
+        depths[top++] = 0;
+        while (top > 0) {
+            HuffmanNode node = nodes[--top];
+            int depth = depths[top];
+            height = Math.max(height, depth);
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            if (node.getZero() != null) {
+                nodes[top] = node.getZero();
+                depths[top++] = depth + 1;
+            }
+            if (node.getOne() != null) {
+                nodes[top] = node.getOne();
+                depths[top++] = depth + 1;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Private class that holds the entries while the tables are built.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class TableBuilder {
+        /**
+         * The entries of all the tables.
+         */
+        private long[] entries = new long[1 << 10];
+        /**
+         * The number of entries in use.
+         */
+        private int size;
+
+        /**
+         * Reserves room for a new table.
+         *
+         * @param count the number of entries of the table.
+         * @return the offset of the table.
+         */
+        int allocate(int count) {
+            if (size + count > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, size + count));
+            }
+            int offset = size;
+            size += count;
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+//Bilal Ahmed
+
+package student;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class compresses and decompresses files through memory-mapped regions.
+ * Letters are read straight from the mapped source and codes written straight into the mapped destination,
+ * so no String, StringBuilder or BinarySequence holds the file and heap use stays small whatever its size.
+ * Each byte of a source file is one letter, between 0 and 255, as in ISO-8859-1.
+ * Compressed files use the same layout as HuffmanStreamEncoder: the bits, padded to a whole byte,
+ * then the trailer byte holding the number of padding bits.
+ * The size of a decompressed file is not known before decoding, so its bytes are written through the channel one
+ * block at a time and the file never grows past what was decoded. A destination that fails halfway is deleted.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanFileCodec {
+    /**
+     * The largest number of bytes mapped at once, a multiple of 8 so a word never crosses two regions.
+     */
+    static final int REGION_SIZE = 1 << 30;
+    /**
+     * The number of words of the window the compressed bits are decoded from.
+     */
+    private static final int WINDOW_WORDS = 1 << 13;
+    /**
+     * The number of letters decoded at once before being written to the destination.
+     */
+    private static final int SCRATCH_LETTERS = 1 << 13;
+
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private HuffmanFileCodec() {
+    }
+
+    /**
+     * Compresses a file.
+     * The source is read twice: once to count its bytes, which gives the exact size of the destination,
+     * and once to encode them.
+     *
+     * @param source   the file to be compressed.
+     * @param target   the compressed file, created or replaced.
+     * @param codeBook the codebook used to encode the bytes.
+     * @return the size of the compressed file in bytes.
+     * @throws IOException              when a file cannot be read or written.
+     * @throws IllegalArgumentException when a byte of the source is not in the codebook.
+     */
+    public static long compress(Path source, Path target, CompiledCodeBook codeBook) throws IOException {
+        long[] entries = new long[256];
+        for (int b = 0; b < entries.length; b++) {
+            entries[b] = codeBook.lookup((char) b);
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+
+            //First pass: count the bytes to know the size of the compressed file.
+            long[] counts = new long[256];
+            for (long start = 0; start < size; start += REGION_SIZE) {
+                MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE,
+                        size - start));
+                for (int i = 0; i < region.limit(); i++) {
+                    counts[region.get(i) & 0xFF]++;
+                }
+            }
+            long bits = 0;
+            for (int b = 0; b < counts.length; b++) {
+                if (counts[b] > 0 && entries[b] == 0) {
+                    throw CompiledCodeBook.missingLetter((char) b, -1);
+                }
+                bits += counts[b] * (entries[b] & CompiledCodeBook.LENGTH_MASK);
+            }
+            long total = (bits + 7) / 8 + 1;
+
+            //Second pass: encode straight into the mapped destination.
+            long outStart = 0;
+            MappedByteBuffer output = out.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(REGION_SIZE, total));
+            BitWriter writer = new BitWriter(output);
+            for (long start = 0; start < size; start += REGION_SIZE) {
+                MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE,
+                        size - start));
+                int i = 0;
+                int limit = region.limit();
+                while (i < limit) {
+                    //The last region has room for every bit left, others take one word per letter at most.
+                    boolean lastRegion = outStart + output.capacity() == total;
+                    int room = output.remaining() / 8;
+                    if (room == 0 && !lastRegion) {
+                        outStart += output.position();
+                        output = out.map(FileChannel.MapMode.READ_WRITE, outStart,
+                                Math.min(REGION_SIZE, total - outStart));
+                        writer.setTarget(output);
+                        continue;
+                    }
+                    int stop = lastRegion ? limit : (int) Math.min(limit, (long) i + room);
+                    for (; i < stop; i++) {
+                        long entry = entries[region.get(i) & 0xFF];
+                        writer.write(entry >>> CompiledCodeBook.LENGTH_BITS,
+                                (int) (entry & CompiledCodeBook.LENGTH_MASK));
+                    }
+                }
+            }
+            if (outStart + output.capacity() != total && output.remaining() < 16) {
+                outStart += output.position();
+                output = out.map(FileChannel.MapMode.READ_WRITE, outStart, total - outStart);
+                writer.setTarget(output);
+            }
+            writer.finish();
+            output.force();
+            return total;
+        } catch (IOException | RuntimeException e) {
+            deleteAfterFailure(target, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decompresses a file.
+     *
+     * @param source the compressed file.
+     * @param target the decompressed file, created or replaced.
+     * @param table  the table used to decode the bits.
+     * @return the size of the decompressed file in bytes.
+     * @throws IOException              when a file cannot be read or written.
+     * @throws IllegalArgumentException when the compressed file is corrupt, or decodes to a letter above 255.
+     */
+    public static long decompress(Path source, Path target, HuffmanDecodeTable table) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            if (size < 1) {
+                throw new IllegalArgumentException("The compressed file has no trailer byte.");
+            }
+            MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) / REGION_SIZE)];
+            for (int r = 0; r < regions.length; r++) {
+                long start = (long) r * REGION_SIZE;
+                regions[r] = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+            }
+            long payload = size - 1;
+            int padding = regions[regions.length - 1].get((int) (payload % REGION_SIZE));
+            if (padding < 0 || padding > 7 || (payload == 0 && padding != 0)) {
+                throw new IllegalArgumentException("Invalid trailer byte " + padding + ".");
+            }
+            long totalBits = payload * Byte.SIZE - padding;
+
+            long[] window = new long[Math.max(WINDOW_WORDS, table.getMaxCodeLength() / Long.SIZE + 2)];
+            char[] scratch = new char[SCRATCH_LETTERS];
+            CharBuffer letters = CharBuffer.wrap(scratch);
+            byte[] block = new byte[SCRATCH_LETTERS];
+            ByteBuffer output = ByteBuffer.wrap(block);
+            long written = 0;
+            long firstWord = 0;
+            long position = 0;
+            long windowBits = loadWindow(regions, payload, firstWord, window, totalBits);
+            while (true) {
+                letters.clear();
+                position = table.decode(window, position, windowBits, letters);
+                int count = letters.position();
+                for (int i = 0; i < count; i++) {
+                    if (scratch[i] > 0xFF) {
+                        throw new IllegalArgumentException("Letter U+" + String.format("%04X", (int) scratch[i])
+                                + " cannot be written as a single byte.");
+                    }
+                    block[i] = (byte) scratch[i];
+                }
+                output.clear().limit(count);
+                while (output.hasRemaining()) {
+                    out.write(output);
+                }
+                written += count;
+                if (count == letters.capacity()) {
+                    continue;
+                }
+                //The window ran out: stop at the end of the bits, otherwise slide it forward.
+                if (firstWord * Long.SIZE + windowBits >= totalBits || position == 0) {
+                    break;
+                }
+                firstWord += position >>> 6;
+                position &= 63;
+                windowBits = loadWindow(regions, payload, firstWord, window, totalBits);
+            }
+            out.force(false);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            deleteAfterFailure(target, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes a destination left incomplete by a failure.
+     *
+     * @param target the destination.
+     * @param cause  the failure, which a failed deletion is added to as a suppressed exception.
+     */
+    private static void deleteAfterFailure(Path target, Exception cause) {
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Copies the compressed words starting at a given word into the window.
+     *
+     * @param regions   the mapped regions of the compressed file.
+     * @param payload   the number of bytes before the trailer.
+     * @param firstWord the index of the first word to be copied.
+     * @param window    the window the words are copied into.
+     * @param totalBits the number of bits of the compressed file.
+     * @return the number of valid bits copied into the window.
+     */
+    private static long loadWindow(ByteBuffer[] regions, long payload, long firstWord, long[] window,
+                                   long totalBits) {
+        for (int j = 0; j < window.length; j++) {
+            long byteIndex = (firstWord + j) * Long.BYTES;
+            ByteBuffer region = regions[(int) Math.min(regions.length - 1, byteIndex / REGION_SIZE)];
+            int offset = (int) (byteIndex - (byteIndex / REGION_SIZE) * REGION_SIZE);
+            if (byteIndex + Long.BYTES <= payload) {
+                window[j] = region.getLong(offset);
+            } else {
+                //Last word of the file, completed with zeros.
+                long word = 0;
+                for (long b = byteIndex; b < payload; b++) {
+                    word |= (region.get(offset + (int) (b - byteIndex)) & 0xFFL) << (56 - 8 * (b - byteIndex));
+                }
+                window[j] = word;
+            }
+        }
+        return Math.min((long) window.length * Long.SIZE, totalBits - firstWord * Long.SIZE);
+    }
+}
@@ -0,0 +1,371 @@
+//Bilal Ahmed
+
+package student;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects encode and decode metrics and exposes them through JMX.
+ * Counters are LongAdders, so threads sharing a codebook or tree do not contend on them.
+ * Latencies go into histograms with one bucket per power of two of nanoseconds.
+ * Counting every letter to compute the entropy costs a pass over each encoded string,
+ * so it is only done when asked for.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanMetrics implements HuffmanMetricsListener, HuffmanMetricsMXBean {
+    /**
+     * The number of buckets of a latency histogram.
+     */
+    private static final int BUCKETS = Long.SIZE;
+
+    /**
+     * The number of encode calls.
+     */
+    private final LongAdder encodeCount = new LongAdder();
+    /**
+     * The number of letters encoded.
+     */
+    private final LongAdder lettersEncoded = new LongAdder();
+    /**
+     * The number of bits produced by encode.
+     */
+    private final LongAdder bitsEncoded = new LongAdder();
+    /**
+     * The number of bytes produced by encode, each call rounded up to whole bytes.
+     */
+    private final LongAdder bytesOut = new LongAdder();
+    /**
+     * The time spent encoding, in nanoseconds.
+     */
+    private final LongAdder encodeNanos = new LongAdder();
+    /**
+     * The number of letters not in the codebook.
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * The number of decode calls.
+     */
+    private final LongAdder decodeCount = new LongAdder();
+    /**
+     * The number of bits decoded.
+     */
+    private final LongAdder bitsDecoded = new LongAdder();
+    /**
+     * The number of letters decoded.
+     */
+    private final LongAdder lettersDecoded = new LongAdder();
+    /**
+     * The histogram of encode latencies.
+     */
+    private final LongAdder[] encodeLatency = newHistogram();
+    /**
+     * The histogram of decode latencies.
+     */
+    private final LongAdder[] decodeLatency = newHistogram();
+    /**
+     * The count of every letter encoded, or null when letters are not tracked.
+     */
+    private final AtomicLongArray letterCounts;
+
+    /**
+     * Constructor that initializes a HuffmanMetrics object that does not track letters.
+     */
+    public HuffmanMetrics() {
+        this(false);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanMetrics object.
+     *
+     * @param trackLetters whether to count every letter encoded, which getEntropy needs.
+     */
+    public HuffmanMetrics(boolean trackLetters) {
+        this.letterCounts = trackLetters ? new AtomicLongArray(HuffmanCodeBuilder.ALPHABET_SIZE) : null;
+    }
+
+    /**
+     * Records an encode call.
+     *
+     * @param text  the string that was encoded.
+     * @param bits  the number of bits it was encoded into.
+     * @param nanos the time the call took, in nanoseconds.
+     */
+    @Override
+    public void onEncode(CharSequence text, long bits, long nanos) {
+        encodeCount.increment();
+        lettersEncoded.add(text.length());
+        bitsEncoded.add(bits);
+        bytesOut.add((bits + 7) / 8);
+        encodeNanos.add(nanos);
+        encodeLatency[bucket(nanos)].increment();
+        if (letterCounts != null) {
+            for (int i = 0; i < text.length(); i++) {
+                letterCounts.incrementAndGet(text.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Records a decode call.
+     *
+     * @param bits    the number of bits that were decoded.
+     * @param letters the number of letters they were decoded into.
+     * @param nanos   the time the call took, in nanoseconds.
+     */
+    @Override
+    public void onDecode(long bits, long letters, long nanos) {
+        decodeCount.increment();
+        bitsDecoded.add(bits);
+        lettersDecoded.add(letters);
+        decodeLatency[bucket(nanos)].increment();
+    }
+
+    /**
+     * Records a letter that was not in the codebook.
+     *
+     * @param letter   the missing letter.
+     * @param position the position of the letter in the string.
+     */
+    @Override
+    public void onMiss(char letter, int position) {
+        misses.increment();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under "student:type=HuffmanMetrics,name=" + name.
+     *
+     * @param name the name telling these metrics apart from others.
+     * @return the ObjectName the metrics are registered under.
+     * @throws JMException when the name is invalid or already registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("student:type=HuffmanMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Get the number of encode calls.
+     *
+     * @return a long representing the number of calls.
+     */
+    @Override
+    public long getEncodeCount() {
+        return encodeCount.sum();
+    }
+
+    /**
+     * Get the number of letters encoded.
+     *
+     * @return a long representing the number of letters.
+     */
+    @Override
+    public long getLettersEncoded() {
+        return lettersEncoded.sum();
+    }
+
+    /**
+     * Get the number of bytes given to encode, two per letter as in UTF-16.
+     *
+     * @return a long representing the number of bytes.
+     */
+    @Override
+    public long getBytesIn() {
+        return lettersEncoded.sum() * Character.BYTES;
+    }
+
+    /**
+     * Get the number of bytes produced by encode, bits rounded up to whole bytes.
+     *
+     * @return a long representing the number of bytes.
+     */
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Get the size of the encoded bytes relative to the input bytes.
+     *
+     * @return a double representing bytes out over bytes in, or NaN before any letter is encoded.
+     */
+    @Override
+    public double getCompressionRatio() {
+        long in = getBytesIn();
+        return in == 0 ? Double.NaN : (double) bytesOut.sum() / in;
+    }
+
+    /**
+     * Get the number of letters encoded per second spent encoding.
+     *
+     * @return a double representing the encode throughput.
+     */
+    @Override
+    public double getLettersPerSecond() {
+        long nanos = encodeNanos.sum();
+        return nanos == 0 ? 0 : lettersEncoded.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * Get the average number of bits per encoded letter.
+     *
+     * @return a double representing the average code length, or NaN before any letter is encoded.
+     */
+    @Override
+    public double getAverageCodeLength() {
+        long letters = lettersEncoded.sum();
+        return letters == 0 ? Double.NaN : (double) bitsEncoded.sum() / letters;
+    }
+
+    /**
+     * Get the entropy of the encoded letters, the lowest average code length any code could reach.
+     *
+     * @return a double representing the entropy in bits per letter, or NaN when letters are not tracked.
+     */
+    @Override
+    public double getEntropy() {
+        if (letterCounts == null) {
+            return Double.NaN;
+        }
+        long[] counts = new long[letterCounts.length()];
+        long total = 0;
+        for (int c = 0; c < counts.length; c++) {
+            counts[c] = letterCounts.get(c);
+            total += counts[c];
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double entropy = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    /**
+     * Get the number of letters that were not in the codebook.
+     *
+     * @return a long representing the number of misses.
+     */
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of decode calls.
+     *
+     * @return a long representing the number of calls.
+     */
+    @Override
+    public long getDecodeCount() {
+        return decodeCount.sum();
+    }
+
+    /**
+     * Get the number of bits decoded.
+     *
+     * @return a long representing the number of bits.
+     */
+    @Override
+    public long getBitsDecoded() {
+        return bitsDecoded.sum();
+    }
+
+    /**
+     * Get the number of letters decoded.
+     *
+     * @return a long representing the number of letters.
+     */
+    @Override
+    public long getLettersDecoded() {
+        return lettersDecoded.sum();
+    }
+
+    /**
+     * Get the histogram of encode latencies: entry i counts the calls that took between 2^i and 2^(i+1)
+     * nanoseconds, entry 0 also counting calls under a nanosecond.
+     *
+     * @return an array of 64 counts.
+     */
+    @Override
+    public long[] getEncodeLatencyHistogram() {
+        return snapshot(encodeLatency);
+    }
+
+    /**
+     * Get the histogram of decode latencies, with the same buckets as the encode one.
+     *
+     * @return an array of 64 counts.
+     */
+    @Override
+    public long[] getDecodeLatencyHistogram() {
+        return snapshot(decodeLatency);
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{encodeCount, lettersEncoded, bitsEncoded, bytesOut, encodeNanos,
+                misses, decodeCount, bitsDecoded, lettersDecoded}) {
+            adder.reset();
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            encodeLatency[i].reset();
+            decodeLatency[i].reset();
+        }
+        if (letterCounts != null) {
+            for (int c = 0; c < letterCounts.length(); c++) {
+                letterCounts.set(c, 0);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty latency histogram.
+     *
+     * @return an array of BUCKETS counters.
+     */
+    private static LongAdder[] newHistogram() {
+        LongAdder[] histogram = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+        return histogram;
+    }
+
+    /**
+     * Finds the bucket of a latency.
+     *
+     * @param nanos the latency in nanoseconds.
+     * @return the index of the highest bit set, or 0 for latencies under 2 nanoseconds.
+     */
+    private static int bucket(long nanos) {
+        return nanos <= 1 ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * Reads the counts of a histogram.
+     *
+     * @param histogram the histogram.
+     * @return an array holding each count.
+     */
+    private static long[] snapshot(LongAdder[] histogram) {
+        long[] counts = new long[histogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+}
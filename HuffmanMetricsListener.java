@@ -0,0 +1,43 @@
+//Bilal Ahmed
+
+package student;
+
+/**
+ * This interface receives the events of the encode and decode calls of a HuffmanCodeBook or a HuffmanCodeTree.
+ * A listener is only called when one is set, so codebooks and trees without a listener pay a single null check
+ * per call. Every method does nothing by default, so a listener only implements the events it needs.
+ * Methods may be called from several threads at once when the codebook or tree is shared.
+ *
+ * @author Bilal Ahmed
+ * @see HuffmanMetrics
+ */
+public interface HuffmanMetricsListener {
+    /**
+     * Called after a string is encoded.
+     *
+     * @param text  the string that was encoded.
+     * @param bits  the number of bits it was encoded into.
+     * @param nanos the time the call took, in nanoseconds.
+     */
+    default void onEncode(CharSequence text, long bits, long nanos) {
+    }
+
+    /**
+     * Called after a binary sequence is decoded.
+     *
+     * @param bits    the number of bits that were decoded.
+     * @param letters the number of letters they were decoded into.
+     * @param nanos   the time the call took, in nanoseconds.
+     */
+    default void onDecode(long bits, long letters, long nanos) {
+    }
+
+    /**
+     * Called when a letter to be encoded is not in the codebook.
+     *
+     * @param letter   the missing letter.
+     * @param position the position of the letter in the string.
+     */
+    default void onMiss(char letter, int position) {
+    }
+}
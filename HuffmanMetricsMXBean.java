@@ -0,0 +1,114 @@
+//Bilal Ahmed
+
+package student;
+
+/**
+ * This interface is the JMX view of a HuffmanMetrics object, as shown by tools such as JConsole.
+ *
+ * @author Bilal Ahmed
+ */
+public interface HuffmanMetricsMXBean {
+    /**
+     * Get the number of encode calls.
+     *
+     * @return a long representing the number of calls.
+     */
+    long getEncodeCount();
+
+    /**
+     * Get the number of letters encoded.
+     *
+     * @return a long representing the number of letters.
+     */
+    long getLettersEncoded();
+
+    /**
+     * Get the number of bytes given to encode, two per letter as in UTF-16.
+     *
+     * @return a long representing the number of bytes.
+     */
+    long getBytesIn();
+
+    /**
+     * Get the number of bytes produced by encode, bits rounded up to whole bytes.
+     *
+     * @return a long representing the number of bytes.
+     */
+    long getBytesOut();
+
+    /**
+     * Get the size of the encoded bytes relative to the input bytes.
+     *
+     * @return a double representing bytes out over bytes in, or NaN before any letter is encoded.
+     */
+    double getCompressionRatio();
+
+    /**
+     * Get the number of letters encoded per second spent encoding.
+     *
+     * @return a double representing the encode throughput.
+     */
+    double getLettersPerSecond();
+
+    /**
+     * Get the average number of bits per encoded letter.
+     *
+     * @return a double representing the average code length, or NaN before any letter is encoded.
+     */
+    double getAverageCodeLength();
+
+    /**
+     * Get the entropy of the encoded letters, the lowest average code length any code could reach.
+     *
+     * @return a double representing the entropy in bits per letter, or NaN when letters are not tracked.
+     */
+    double getEntropy();
+
+    /**
+     * Get the number of letters that were not in the codebook.
+     *
+     * @return a long representing the number of misses.
+     */
+    long getMissCount();
+
+    /**
+     * Get the number of decode calls.
+     *
+     * @return a long representing the number of calls.
+     */
+    long getDecodeCount();
+
+    /**
+     * Get the number of bits decoded.
+     *
+     * @return a long representing the number of bits.
+     */
+    long getBitsDecoded();
+
+    /**
+     * Get the number of letters decoded.
+     *
+     * @return a long representing the number of letters.
+     */
+    long getLettersDecoded();
+
+    /**
+     * Get the histogram of encode latencies: entry i counts the calls that took between 2^i and 2^(i+1)
+     * nanoseconds, entry 0 also counting calls under a nanosecond.
+     *
+     * @return an array of 64 counts.
+     */
+    long[] getEncodeLatencyHistogram();
+
+    /**
+     * Get the histogram of decode latencies, with the same buckets as the encode one.
+     *
+     * @return an array of 64 counts.
+     */
+    long[] getDecodeLatencyHistogram();
+
+    /**
+     * Sets every counter back to zero.
+     */
+    void reset();
+}
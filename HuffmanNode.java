@@ -1,6 +1,8 @@
 //Bilal Ahmed
 package student;
 
+import java.util.Arrays;
+
 /**
  * This class serves as a component of the HuffmanCodeTree class.
  * Its structure is similar to that of a binary tree node, with one small change:
@@ -148,7 +150,9 @@ public class HuffmanNode {
     }
 
     /**
-     * Recursively checks if this node and all its descendents are valid.
+     * Checks if this node and all its descendents are valid.
+     * Uses an explicit stack instead of recursion, so deep trees from very skewed frequencies do not overflow
+     * the call stack.
      *
      * @param node the node that will be checked, and its descendents.
      * @return a boolean representing whether the tree is valid or not.
@@ -158,11 +162,22 @@ public class HuffmanNode {
         if (node == null) {
             return true;
         }
-        if (node.isValidNode()) {
-            return checkTreeValidity(node.one) && checkTreeValidity(node.zero);
+        HuffmanNode[] stack = new HuffmanNode[64];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            HuffmanNode current = stack[--top];
+            if (!current.isValidNode()) {
+                return false;
+            }
+            if (current.isInternalNode()) {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = current.zero;
+                stack[top++] = current.one;
+            }
         }
-        return false;
-
-
+        return true;
     }
 }
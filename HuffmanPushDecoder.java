@@ -0,0 +1,341 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * This class decodes a message that arrives in pieces, such as network segments, without gathering it first.
+ * It works like java.util.zip.Inflater: chunks of bytes are given with setInput, and decode writes as many letters
+ * as it can into an array or a CharBuffer owned by the caller. A code cut by the end of a chunk is kept in a small
+ * window of words and finished with the next chunk. The bytes are the ones of HuffmanCodec.encode: the payload,
+ * then the trailer byte holding the number of padding bits. Since any byte could be the trailer, the last byte
+ * received, and the 7 bits before it that could be padding, are held back until finish says the message is over.
+ * A decoder is reused for the next message after reset, and does not allocate while decoding into arrays or heap
+ * buffers. It is not thread-safe; use one decoder per connection.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanPushDecoder {
+    /**
+     * The number of words of the window holding the bits not decoded yet.
+     */
+    private static final int WINDOW_WORDS = 32;
+    /**
+     * The number of bits of the window.
+     */
+    private static final long WINDOW_BITS = (long) WINDOW_WORDS * Long.SIZE;
+
+    /**
+     * The table used to decode bits.
+     */
+    private final HuffmanDecodeTable table;
+    /**
+     * The window holding the bits received and not decoded yet, most significant bit first.
+     */
+    private final long[] window = new long[WINDOW_WORDS];
+    /**
+     * The position of the first bit not decoded in the window.
+     */
+    private long position;
+    /**
+     * The position after the last bit received in the window.
+     */
+    private long end;
+    /**
+     * The chunk given as an array, or null.
+     */
+    private byte[] inputArray;
+    /**
+     * The index of the next byte of the array chunk.
+     */
+    private int inputOffset;
+    /**
+     * The index after the last byte of the array chunk.
+     */
+    private int inputLimit;
+    /**
+     * The chunk given as a buffer, or null.
+     */
+    private ByteBuffer inputBuffer;
+    /**
+     * Whether finish was called.
+     */
+    private boolean finishing;
+    /**
+     * The position after the last bit of the payload, known once the trailer is read, or -1.
+     */
+    private long payloadEnd = -1;
+    /**
+     * The number of bytes taken from the chunks.
+     */
+    private long bytesRead;
+    /**
+     * The number of letters written.
+     */
+    private long lettersWritten;
+    /**
+     * The buffer last wrapped around an output array, reused while the same array is given.
+     */
+    private CharBuffer wrapper = CharBuffer.allocate(0);
+
+    /**
+     * Constructor that initializes a HuffmanPushDecoder object decoding with the table of a codec.
+     *
+     * @param codec the codec giving the codes.
+     */
+    public HuffmanPushDecoder(HuffmanCodec codec) {
+        this(codec.getDecodeTable());
+    }
+
+    /**
+     * Constructor that initializes the HuffmanPushDecoder object.
+     *
+     * @param table the table used to decode bits, escape letter included.
+     */
+    public HuffmanPushDecoder(HuffmanDecodeTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Gives the next chunk of the message. The array is read in place, not copied, so it must not be changed
+     * until needsInput returns true.
+     *
+     * @param chunk  the array holding the chunk.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @throws IllegalStateException     when the previous chunk is not used up, or finish was called.
+     * @throws IndexOutOfBoundsException when the range is outside the array.
+     */
+    public void setInput(byte[] chunk, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > chunk.length - length) {
+            throw new IndexOutOfBoundsException("Bytes " + offset + " to " + (offset + length)
+                    + " are out of bounds.");
+        }
+        checkCanTakeInput();
+        inputArray = chunk;
+        inputOffset = offset;
+        inputLimit = offset + length;
+    }
+
+    /**
+     * Gives the next chunk of the message. The buffer is read in place from its position, which moves forward
+     * as bytes are taken.
+     *
+     * @param chunk the buffer holding the chunk.
+     * @throws IllegalStateException when the previous chunk is not used up, or finish was called.
+     */
+    public void setInput(ByteBuffer chunk) {
+        checkCanTakeInput();
+        inputBuffer = chunk;
+    }
+
+    /**
+     * Says that the last chunk was given, so the last byte received is the trailer.
+     */
+    public void finish() {
+        finishing = true;
+    }
+
+    /**
+     * Decodes letters into an array.
+     *
+     * @param dst    the array the letters are written to.
+     * @param offset the index of the first letter.
+     * @param length the largest number of letters to be written.
+     * @return the number of letters written, 0 when more input or room is needed.
+     * @throws IllegalArgumentException  when the bits do not lead to any letter, the trailer is invalid or the
+     *                                   message ends inside a code.
+     * @throws IndexOutOfBoundsException when the range is outside the array.
+     */
+    public int decode(char[] dst, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException("Letters " + offset + " to " + (offset + length)
+                    + " are out of bounds.");
+        }
+        if (!wrapper.hasArray() || wrapper.array() != dst) {
+            wrapper = CharBuffer.wrap(dst);
+        }
+        wrapper.limit(offset + length).position(offset);
+        return decode(wrapper);
+    }
+
+    /**
+     * Decodes letters into a buffer, from its position.
+     * Heap buffers are written directly; other buffers go through a scratch array.
+     *
+     * @param out the buffer the letters are written to.
+     * @return the number of letters written, 0 when more input or room is needed.
+     * @throws IllegalArgumentException when the bits do not lead to any letter, the trailer is invalid or the
+     *                                  message ends inside a code.
+     */
+    public int decode(CharBuffer out) {
+        int before = out.position();
+        while (out.hasRemaining()) {
+            boolean refilled = refill();
+            long limit = decodeLimit();
+            long next = limit > position ? table.decode(window, position, limit, out) : position;
+            if (next == position && !refilled) {
+                break;
+            }
+            position = next;
+        }
+        if (payloadEnd >= 0 && position < payloadEnd && out.hasRemaining()) {
+            throw new IllegalArgumentException("The message ends inside a code.");
+        }
+        int written = out.position() - before;
+        lettersWritten += written;
+        return written;
+    }
+
+    /**
+     * Returns whether the chunk given is used up and every letter it completed was decoded.
+     *
+     * @return a boolean representing whether a new chunk is needed to make progress.
+     */
+    public boolean needsInput() {
+        return !hasInput() && !finishing && nothingToDecode();
+    }
+
+    /**
+     * Returns whether finish was called and every letter of the message was decoded.
+     *
+     * @return a boolean representing whether the message is over.
+     */
+    public boolean finished() {
+        return payloadEnd >= 0 && position == payloadEnd;
+    }
+
+    /**
+     * Empties the decoder so it can decode the next message. Nothing is allocated.
+     */
+    public void reset() {
+        position = 0;
+        end = 0;
+        inputArray = null;
+        inputBuffer = null;
+        inputOffset = 0;
+        inputLimit = 0;
+        finishing = false;
+        payloadEnd = -1;
+        bytesRead = 0;
+        lettersWritten = 0;
+    }
+
+    /**
+     * Get the number of bytes taken from the chunks of the current message.
+     *
+     * @return a long representing the number of bytes.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Get the number of letters written for the current message.
+     *
+     * @return a long representing the number of letters.
+     */
+    public long getLettersWritten() {
+        return lettersWritten;
+    }
+
+    /**
+     * Checks that a new chunk can be given.
+     *
+     * @throws IllegalStateException when the previous chunk is not used up, or finish was called.
+     */
+    private void checkCanTakeInput() {
+        if (finishing) {
+            throw new IllegalStateException("The message is finished.");
+        }
+        if (hasInput()) {
+            throw new IllegalStateException("The previous chunk is not used up.");
+        }
+        inputArray = null;
+        inputBuffer = null;
+    }
+
+    /**
+     * Returns whether bytes of the chunk are left.
+     *
+     * @return a boolean representing whether bytes are left.
+     */
+    private boolean hasInput() {
+        return inputArray != null ? inputOffset < inputLimit : inputBuffer != null && inputBuffer.hasRemaining();
+    }
+
+    /**
+     * Returns whether the bits in the window cannot give another letter.
+     *
+     * @return a boolean representing whether decode would write nothing.
+     */
+    private boolean nothingToDecode() {
+        long limit = decodeLimit();
+        return limit <= position || table.decodeOne(window, position, limit) < 0;
+    }
+
+    /**
+     * Moves bytes of the chunk into the window, after dropping the words already decoded.
+     * Once the chunks are used up after finish, reads the trailer.
+     *
+     * @return whether any byte was moved.
+     * @throws IllegalArgumentException when the trailer is invalid.
+     */
+    private boolean refill() {
+        int drop = (int) (position >>> 6);
+        if (drop > 0) {
+            int keep = (int) ((end + 63) >>> 6) - drop;
+            System.arraycopy(window, drop, window, 0, keep);
+            position -= (long) drop * Long.SIZE;
+            end -= (long) drop * Long.SIZE;
+            if (payloadEnd >= 0) {
+                payloadEnd -= (long) drop * Long.SIZE;
+            }
+        }
+        long before = end;
+        //One word is kept free, since a lookup may read the word after its position.
+        while (end + Byte.SIZE <= WINDOW_BITS - Long.SIZE && hasInput()) {
+            int b = inputArray != null ? inputArray[inputOffset++] : inputBuffer.get();
+            int index = (int) (end >>> 6);
+            int shift = 56 - (int) (end & 63);
+            if (shift == 56) {
+                window[index] = 0;
+            }
+            window[index] |= (b & 0xFFL) << shift;
+            end += Byte.SIZE;
+        }
+        bytesRead += (end - before) / Byte.SIZE;
+        if (finishing && payloadEnd < 0 && !hasInput()) {
+            readTrailer();
+        }
+        return end != before;
+    }
+
+    /**
+     * Reads the trailer, the last byte received, and works out where the payload ends.
+     *
+     * @throws IllegalArgumentException when the trailer is missing or invalid.
+     */
+    private void readTrailer() {
+        if (bytesRead == 0) {
+            throw new IllegalArgumentException("The trailer byte is missing.");
+        }
+        long trailerAt = end - Byte.SIZE;
+        int padding = PackedBits.peek(window, trailerAt, Byte.SIZE);
+        if (padding > 7 || (bytesRead == 1 && padding != 0)) {
+            throw new IllegalArgumentException("Invalid trailer byte " + padding + ".");
+        }
+        payloadEnd = trailerAt - padding;
+    }
+
+    /**
+     * Get the position up to which bits can be decoded.
+     *
+     * @return the end of the payload when it is known, or else the first bit that could be padding or trailer.
+     */
+    private long decodeLimit() {
+        return payloadEnd >= 0 ? payloadEnd : Math.max(0, end - Byte.SIZE - 7);
+    }
+}
@@ -0,0 +1,216 @@
+//Bilal Ahmed
+
+package student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * This class is a Reader that decodes the Huffman bits read from an InputStream or a ReadableByteChannel.
+ * Bytes go through a fixed-size direct buffer into a fixed-size window of words decoded by a HuffmanDecodeTable,
+ * so memory use does not depend on the size of the stream. The decoded text can be sent to a Writer
+ * with Reader.transferTo. The stream must end with the trailer byte written by HuffmanStreamEncoder.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanStreamDecoder extends Reader {
+    /**
+     * The size of the byte buffer when none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The table used to decode the bits.
+     */
+    private final HuffmanDecodeTable table;
+    /**
+     * The channel the bytes are read from.
+     */
+    private final ReadableByteChannel channel;
+    /**
+     * The buffer the bytes are read into.
+     */
+    private final ByteBuffer input;
+    /**
+     * The words the bits are decoded from.
+     */
+    private final long[] window;
+    /**
+     * The number of bits held by the window.
+     */
+    private long windowBits;
+    /**
+     * The position of the next bit to be decoded in the window.
+     */
+    private long position;
+    /**
+     * The number of bytes read before the trailer.
+     */
+    private long payloadBytes;
+    /**
+     * Whether the channel has no more bytes.
+     */
+    private boolean endOfInput;
+    /**
+     * Whether the trailer was read, so the window holds every bit left.
+     */
+    private boolean finished;
+    /**
+     * Whether the reader was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor that initializes a HuffmanStreamDecoder reading its bytes from an InputStream.
+     *
+     * @param table the table used to decode the bits.
+     * @param in    the InputStream the bytes are read from.
+     */
+    public HuffmanStreamDecoder(HuffmanDecodeTable table, InputStream in) {
+        this(table, Channels.newChannel(in), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanStreamDecoder reading its bytes from a channel.
+     *
+     * @param table   the table used to decode the bits.
+     * @param channel the channel the bytes are read from.
+     */
+    public HuffmanStreamDecoder(HuffmanDecodeTable table, ReadableByteChannel channel) {
+        this(table, channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanStreamDecoder reading its bytes from a channel.
+     *
+     * @param table      the table used to decode the bits.
+     * @param channel    the channel the bytes are read from.
+     * @param bufferSize the size of the direct byte buffer, at least 64.
+     * @throws IllegalArgumentException when the buffer size is too small.
+     */
+    public HuffmanStreamDecoder(HuffmanDecodeTable table, ReadableByteChannel channel, int bufferSize) {
+        if (bufferSize < HuffmanStreamEncoder.MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least "
+                    + HuffmanStreamEncoder.MIN_BUFFER_SIZE + " bytes.");
+        }
+        this.table = table;
+        this.channel = channel;
+        this.input = ByteBuffer.allocateDirect(bufferSize);
+        //The window must always have room for a whole code after the bits left from the previous fill.
+        this.window = new long[Math.max(bufferSize / 8, table.getMaxCodeLength() / Long.SIZE + 2)];
+    }
+
+    /**
+     * Decodes letters into a part of an array.
+     * Blocks until at least one letter is decoded or the stream ends.
+     *
+     * @param cbuf the array the letters are written into.
+     * @param off  the index of the first letter to be written.
+     * @param len  the largest number of letters to be written.
+     * @return the number of letters written, or -1 when the stream has ended.
+     * @throws IOException when the bytes cannot be read, the stream is corrupt or the reader is closed.
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The decoder is closed.");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (true) {
+            if (position < windowBits) {
+                try {
+                    position = table.decode(window, position, windowBits, out);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("The Huffman stream is corrupt.", e);
+                }
+            }
+            if (out.position() > off) {
+                return out.position() - off;
+            }
+            if (finished) {
+                //An incomplete code at the end is ignored, like HuffmanCodeTree.decode does.
+                return -1;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException when the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Moves the bits left to the start of the window, then moves as many bytes as possible into it,
+     * reading from the channel when the buffer runs out.
+     *
+     * @throws IOException when the bytes cannot be read or the trailer is invalid.
+     */
+    private void fill() throws IOException {
+        int firstWord = (int) (position >>> 6);
+        int usedWords = (int) ((windowBits + 63) >>> 6);
+        System.arraycopy(window, firstWord, window, 0, usedWords - firstWord);
+        for (int i = usedWords - firstWord; i < usedWords; i++) {
+            window[i] = 0;
+        }
+        position -= (long) firstWord * Long.SIZE;
+        windowBits -= (long) firstWord * Long.SIZE;
+
+        if (!endOfInput && input.hasRemaining() && channel.read(input) < 0) {
+            endOfInput = true;
+        }
+        input.flip();
+        long capacity = (long) window.length * Long.SIZE;
+        //Until the channel ends, the last two bytes are held back: the trailer and the padded byte before it.
+        int held = endOfInput ? 1 : 2;
+        while (input.remaining() > held && windowBits + Byte.SIZE <= capacity) {
+            if ((windowBits & 63) == 0 && input.remaining() >= held + Long.BYTES
+                    && windowBits + Long.SIZE <= capacity) {
+                window[(int) (windowBits >>> 6)] = input.getLong();
+                windowBits += Long.SIZE;
+                payloadBytes += Long.BYTES;
+            } else {
+                window[(int) (windowBits >>> 6)] |= (input.get() & 0xFFL) << (56 - (windowBits & 63));
+                windowBits += Byte.SIZE;
+                payloadBytes++;
+            }
+        }
+        if (endOfInput && input.remaining() <= 1) {
+            readTrailer();
+        }
+        input.compact();
+    }
+
+    /**
+     * Reads the trailer byte and removes the padding bits from the window.
+     *
+     * @throws IOException when the trailer is missing or invalid.
+     */
+    private void readTrailer() throws IOException {
+        if (!input.hasRemaining()) {
+            throw new IOException("The Huffman stream has no trailer byte.");
+        }
+        int padding = input.get();
+        if (padding < 0 || padding > 7 || (payloadBytes == 0 && padding != 0)) {
+            throw new IOException("Invalid trailer byte " + padding + ".");
+        }
+        windowBits -= padding;
+        finished = true;
+    }
+}
@@ -0,0 +1,253 @@
+//Bilal Ahmed
+
+package student;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * This class is a Writer that Huffman encodes the letters written to it and sends the bits to an OutputStream
+ * or a WritableByteChannel. Bits go through a fixed-size direct buffer, so memory use does not depend on how much
+ * text is written. A Reader can be encoded by transferring it into this writer with Reader.transferTo.
+ * Closing the writer pads the last byte and appends the trailer byte, the same layout as PackedBits.toByteArray,
+ * which HuffmanStreamDecoder reads back.
+ *
+ * @author Bilal Ahmed
+ */
+public final class HuffmanStreamEncoder extends Writer {
+    /**
+     * The size of the byte buffer when none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /**
+     * The smallest byte buffer allowed, enough for the last word and the trailer.
+     */
+    static final int MIN_BUFFER_SIZE = 64;
+
+    /**
+     * The codebook used to encode the letters.
+     */
+    private final CompiledCodeBook codeBook;
+    /**
+     * The channel the bytes are sent to.
+     */
+    private final WritableByteChannel channel;
+    /**
+     * The OutputStream behind the channel, flushed with it, or null when a channel was given.
+     */
+    private final OutputStream stream;
+    /**
+     * The buffer the bits are packed into before being sent.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The writer packing codes into the buffer.
+     */
+    private final BitWriter bits;
+    /**
+     * The number of letters written so far.
+     */
+    private long letters;
+    /**
+     * Whether the writer was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor that initializes a HuffmanStreamEncoder sending its bytes to an OutputStream.
+     *
+     * @param codeBook the codebook used to encode the letters.
+     * @param out      the OutputStream the bytes are sent to.
+     */
+    public HuffmanStreamEncoder(CompiledCodeBook codeBook, OutputStream out) {
+        this(codeBook, Channels.newChannel(out), out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanStreamEncoder sending its bytes to a channel.
+     *
+     * @param codeBook the codebook used to encode the letters.
+     * @param channel  the channel the bytes are sent to.
+     */
+    public HuffmanStreamEncoder(CompiledCodeBook codeBook, WritableByteChannel channel) {
+        this(codeBook, channel, null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor that initializes a HuffmanStreamEncoder sending its bytes to a channel.
+     *
+     * @param codeBook   the codebook used to encode the letters.
+     * @param channel    the channel the bytes are sent to.
+     * @param bufferSize the size of the direct byte buffer, at least MIN_BUFFER_SIZE.
+     */
+    public HuffmanStreamEncoder(CompiledCodeBook codeBook, WritableByteChannel channel, int bufferSize) {
+        this(codeBook, channel, null, bufferSize);
+    }
+
+    /**
+     * Constructor that initializes the HuffmanStreamEncoder object.
+     *
+     * @param codeBook   the codebook used to encode the letters.
+     * @param channel    the channel the bytes are sent to.
+     * @param stream     the OutputStream behind the channel, or null.
+     * @param bufferSize the size of the direct byte buffer, at least MIN_BUFFER_SIZE.
+     * @throws IllegalArgumentException when the buffer size is too small.
+     */
+    private HuffmanStreamEncoder(CompiledCodeBook codeBook, WritableByteChannel channel, OutputStream stream,
+                                 int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE + " bytes.");
+        }
+        this.codeBook = codeBook;
+        this.channel = channel;
+        this.stream = stream;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.bits = new BitWriter(buffer);
+    }
+
+    /**
+     * Encodes a part of an array of letters.
+     *
+     * @param cbuf the array of letters.
+     * @param off  the index of the first letter to be written.
+     * @param len  the number of letters to be written.
+     * @throws IOException              when the bytes cannot be sent or the writer is closed.
+     * @throws IllegalArgumentException when a letter is not in the codebook.
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf), off, len);
+    }
+
+    /**
+     * Encodes a part of a string.
+     *
+     * @param str the string.
+     * @param off the index of the first letter to be written.
+     * @param len the number of letters to be written.
+     * @throws IOException              when the bytes cannot be sent or the writer is closed.
+     * @throws IllegalArgumentException when a letter is not in the codebook.
+     */
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encode(str, off, len);
+    }
+
+    /**
+     * Encodes a part of a sequence of letters, sending the buffer whenever it fills up.
+     *
+     * @param s   the sequence of letters.
+     * @param off the index of the first letter to be written.
+     * @param len the number of letters to be written.
+     * @throws IOException              when the bytes cannot be sent or the writer is closed.
+     * @throws IllegalArgumentException when a letter is not in the codebook.
+     */
+    private void encode(CharSequence s, int off, int len) throws IOException {
+        ensureOpen();
+        int end = off + len;
+        while (off < end) {
+            //Each letter flushes at most one word, so this many letters always fit.
+            int room = buffer.remaining() / 8;
+            if (room == 0) {
+                drain();
+                continue;
+            }
+            int stop = Math.min(end, off + room);
+            codeBook.encode(s, off, stop, bits);
+            letters += stop - off;
+            off = stop;
+        }
+    }
+
+    /**
+     * Encodes a single letter.
+     *
+     * @param c the letter, in the lowest 16 bits.
+     * @throws IOException              when the bytes cannot be sent or the writer is closed.
+     * @throws IllegalArgumentException when the letter is not in the codebook.
+     */
+    @Override
+    public void write(int c) throws IOException {
+        write(new char[]{(char) c}, 0, 1);
+    }
+
+    /**
+     * Sends every whole byte encoded so far. Up to 7 bits stay behind until more letters
+     * are written or the writer is closed, since a byte cannot be sent before it is complete.
+     *
+     * @throws IOException when the bytes cannot be sent or the writer is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (buffer.remaining() < 8) {
+            drain();
+        }
+        bits.flushBytes();
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Pads the last byte, appends the trailer byte, sends everything and closes the channel.
+     * Closing a closed writer has no effect.
+     *
+     * @throws IOException when the bytes cannot be sent.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (buffer.remaining() < 16) {
+                drain();
+            }
+            bits.finish();
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Get the number of letters written so far.
+     *
+     * @return a long representing the number of letters.
+     */
+    public long getLetterCount() {
+        return letters;
+    }
+
+    /**
+     * Sends the content of the buffer to the channel and empties the buffer.
+     *
+     * @throws IOException when the bytes cannot be sent.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Checks that the writer is still open.
+     *
+     * @throws IOException when the writer is closed.
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The encoder is closed.");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * This class Huffman encodes and decodes streams of int tokens, such as the output of a tokenizer.
+ * Tokens are numbered from 0 to the size of the alphabet, which can be far above the 65,536 letters of a char.
+ * Codes are looked up by token in a primitive array and decoded tokens are written straight into an int array
+ * or an IntBuffer, so nothing is boxed. The codec is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class IntHuffmanCodec {
+    /**
+     * The codes of the tokens.
+     */
+    private final SymbolCodeBook codes;
+
+    /**
+     * Constructor that initializes the IntHuffmanCodec object.
+     *
+     * @param codes the codes of the tokens.
+     */
+    private IntHuffmanCodec(SymbolCodeBook codes) {
+        this.codes = codes;
+    }
+
+    /**
+     * Builds optimal codes from the count of each token.
+     *
+     * @param counts the count of each token, the size of the array being the size of the alphabet.
+     * @return an IntHuffmanCodec giving a code to every token with a count above zero.
+     * @throws IllegalArgumentException when no count is above zero or a count is negative.
+     */
+    public static IntHuffmanCodec fromCounts(long[] counts) {
+        return new IntHuffmanCodec(SymbolCodeBook.fromCounts(counts));
+    }
+
+    /**
+     * Builds optimal codes for the tokens of a sample.
+     *
+     * @param sample       the tokens the codes are built for.
+     * @param alphabetSize the number of tokens of the alphabet.
+     * @return an IntHuffmanCodec giving a code to every token of the sample.
+     * @throws IllegalArgumentException when the sample is empty or holds a token out of the alphabet.
+     */
+    public static IntHuffmanCodec fromSample(int[] sample, int alphabetSize) {
+        return fromCounts(histogram(sample, 0, sample.length, alphabetSize));
+    }
+
+    /**
+     * Builds canonical codes from saved code lengths, for example the ones getCodeLengths returned.
+     *
+     * @param lengths the code length of each token, 0 for tokens without a code.
+     * @return an IntHuffmanCodec holding the canonical codes of the lengths.
+     * @throws IllegalArgumentException when the lengths cannot be given prefix-free codes.
+     */
+    public static IntHuffmanCodec fromCodeLengths(int[] lengths) {
+        return new IntHuffmanCodec(new SymbolCodeBook(lengths.clone()));
+    }
+
+    /**
+     * Counts the tokens of part of an array.
+     *
+     * @param tokens       the tokens.
+     * @param offset       the index of the first token.
+     * @param length       the number of tokens.
+     * @param alphabetSize the number of tokens of the alphabet.
+     * @return the count of each token.
+     * @throws IllegalArgumentException when a token is out of the alphabet.
+     */
+    public static long[] histogram(int[] tokens, int offset, int length, int alphabetSize) {
+        long[] counts = new long[alphabetSize];
+        for (int i = offset; i < offset + length; i++) {
+            if (tokens[i] < 0 || tokens[i] >= alphabetSize) {
+                throw new IllegalArgumentException("Token " + tokens[i] + " at index " + i
+                        + " is out of the alphabet.");
+            }
+            counts[tokens[i]]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Encodes tokens into packed bits.
+     *
+     * @param tokens the tokens.
+     * @return a PackedBits object holding the encoded tokens.
+     * @throws IllegalArgumentException when a token has no code.
+     */
+    public PackedBits encode(int[] tokens) {
+        BitWriter out = new BitWriter(Math.max(1, tokens.length / 4));
+        encode(tokens, 0, tokens.length, out);
+        return out.toPackedBits();
+    }
+
+    /**
+     * Encodes part of an array of tokens into a BitWriter.
+     *
+     * @param tokens the tokens.
+     * @param offset the index of the first token.
+     * @param length the number of tokens.
+     * @param out    the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a token has no code.
+     */
+    public void encode(int[] tokens, int offset, int length, BitWriter out) {
+        for (int i = offset; i < offset + length; i++) {
+            write(tokens[i], i, out);
+        }
+    }
+
+    /**
+     * Encodes the tokens left in a buffer into a BitWriter, moving the buffer to its limit.
+     *
+     * @param tokens the buffer holding the tokens.
+     * @param out    the BitWriter the codes are appended to.
+     * @throws IllegalArgumentException when a token has no code.
+     */
+    public void encode(IntBuffer tokens, BitWriter out) {
+        int start = tokens.position();
+        int limit = tokens.limit();
+        for (int i = start; i < limit; i++) {
+            write(tokens.get(i), i - start, out);
+        }
+        tokens.position(limit);
+    }
+
+    /**
+     * Appends the code of a token.
+     *
+     * @param token    the token.
+     * @param position the position of the token in the input.
+     * @param out      the BitWriter the code is appended to.
+     * @throws IllegalArgumentException when the token has no code.
+     */
+    private void write(int token, long position, BitWriter out) {
+        long entry = token >= 0 && token < codes.alphabetSize() ? codes.entry(token) : 0;
+        if (entry == 0) {
+            throw missingToken(token, position);
+        }
+        out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+    }
+
+    /**
+     * Decodes packed bits into tokens. An incomplete code at the end is ignored.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return an int array holding the decoded tokens.
+     * @throws IllegalArgumentException when the bits do not lead to any token.
+     */
+    public int[] decode(PackedBits bits) {
+        int[] tokens = new int[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, bits.getBitLength() / 8))];
+        IntBuffer out = IntBuffer.wrap(tokens);
+        long position = 0;
+        while (true) {
+            position = decode(bits.getWords(), position, bits.getBitLength(), out);
+            if (out.hasRemaining()) {
+                return Arrays.copyOf(tokens, out.position());
+            }
+            int count = out.position();
+            tokens = Arrays.copyOf(tokens, (int) Math.min(Integer.MAX_VALUE - 8, tokens.length * 2L));
+            out = IntBuffer.wrap(tokens);
+            out.position(count);
+        }
+    }
+
+    /**
+     * Decodes a range of bits into a buffer, without allocating.
+     * Stops when the buffer is full or the bits left do not hold a whole code.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded.
+     * @param toBit   the position after the last bit that can be decoded.
+     * @param out     the buffer the tokens are written to.
+     * @return the position of the first bit not decoded.
+     * @throws IllegalArgumentException when the bits do not lead to any token.
+     */
+    public long decode(long[] words, long fromBit, long toBit, IntBuffer out) {
+        CanonicalDecoder decoder = codes.decoder();
+        long position = fromBit;
+        while (out.hasRemaining()) {
+            long result = decoder.decode(words, position, toBit);
+            if (result < 0) {
+                break;
+            }
+            out.put((int) (result >>> CanonicalDecoder.LENGTH_BITS));
+            position += result & ((1 << CanonicalDecoder.LENGTH_BITS) - 1);
+        }
+        return position;
+    }
+
+    /**
+     * Get the number of tokens of the alphabet, with or without a code.
+     *
+     * @return an int representing the size of the alphabet.
+     */
+    public int getAlphabetSize() {
+        return codes.alphabetSize();
+    }
+
+    /**
+     * Get the code length of a token.
+     *
+     * @param token the token.
+     * @return an int representing the number of bits of its code, or 0 when it has no code.
+     */
+    public int getCodeLength(int token) {
+        if (token < 0 || token >= codes.alphabetSize()) {
+            return 0;
+        }
+        return (int) (codes.entry(token) & CompiledCodeBook.LENGTH_MASK);
+    }
+
+    /**
+     * Get the code length of every token, which is enough to rebuild the codec with fromCodeLengths.
+     *
+     * @return an array holding the code length of each token, 0 for tokens without a code.
+     */
+    public int[] getCodeLengths() {
+        int[] lengths = new int[codes.alphabetSize()];
+        for (int token = 0; token < lengths.length; token++) {
+            lengths[token] = getCodeLength(token);
+        }
+        return lengths;
+    }
+
+    /**
+     * Creates the exception thrown when a token has no code.
+     *
+     * @param token    the token.
+     * @param position the position of the token in the input.
+     * @return an IllegalArgumentException describing the token.
+     */
+    private static IllegalArgumentException missingToken(int token, long position) {
+        return new IllegalArgumentException("Token " + token + " at index " + position + " is not in the codebook.");
+    }
+}
@@ -0,0 +1,425 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * This class encodes text into several independent bitstreams and decodes them side by side.
+ * Letter i of the text goes to stream i modulo the number of streams, so each stream holds every N-th letter.
+ * A single stream is slow to decode because each lookup needs the position the previous one ended at; with
+ * several streams the decoder takes one letter from each stream per round, and the lookups of a round do not
+ * depend on each other, so the processor can run them at the same time. Codes are the ones of a HuffmanCodec,
+ * escape letter included, and every letter decodes to what HuffmanCodeTree.decode gives for its code.
+ * The layout, all integers being big-endian whatever the order of the buffer, is:
+ * <pre>
+ * int   number of letters
+ * byte  number of streams N
+ * int   number of bytes of each of the first N - 1 streams, the last one taking the rest
+ * bytes the streams, one after the other, each padded to a whole byte with zeros
+ * </pre>
+ * The codec is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class InterleavedHuffmanCodec {
+    /**
+     * The number of streams used when none is given.
+     */
+    public static final int DEFAULT_STREAMS = 4;
+    /**
+     * The largest number of streams.
+     */
+    public static final int MAX_STREAMS = 32;
+
+    /**
+     * The word array of the current thread, reused from call to call.
+     */
+    private static final ThreadLocal<long[][]> SCRATCH = ThreadLocal.withInitial(() -> new long[][]{new long[16]});
+
+    /**
+     * The codec giving the codes and the decode table.
+     */
+    private final HuffmanCodec codec;
+    /**
+     * The number of streams.
+     */
+    private final int streams;
+
+    /**
+     * Constructor that initializes an InterleavedHuffmanCodec object using DEFAULT_STREAMS streams.
+     *
+     * @param codec the codec giving the codes.
+     */
+    public InterleavedHuffmanCodec(HuffmanCodec codec) {
+        this(codec, DEFAULT_STREAMS);
+    }
+
+    /**
+     * Constructor that initializes the InterleavedHuffmanCodec object.
+     *
+     * @param codec   the codec giving the codes.
+     * @param streams the number of streams, between 1 and MAX_STREAMS.
+     * @throws IllegalArgumentException when the number of streams is out of range.
+     */
+    public InterleavedHuffmanCodec(HuffmanCodec codec, int streams) {
+        if (streams < 1 || streams > MAX_STREAMS) {
+            throw new IllegalArgumentException("Streams must be between 1 and " + MAX_STREAMS + ".");
+        }
+        this.codec = codec;
+        this.streams = streams;
+    }
+
+    /**
+     * Encodes the input string into a new byte array.
+     *
+     * @param s the input string.
+     * @return a byte array holding the header and the streams.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     */
+    public byte[] encode(CharSequence s) {
+        ByteBuffer out = ByteBuffer.allocate(encodedSize(s));
+        encode(s, out);
+        return out.array();
+    }
+
+    /**
+     * Computes the number of bytes encode writes for the input string, header included.
+     *
+     * @param s the input string.
+     * @return an int representing the number of bytes.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape,
+     *                                  or the encoded string does not fit in an array.
+     */
+    public int encodedSize(CharSequence s) {
+        long size = headerSize();
+        for (int k = 0; k < streams; k++) {
+            size += (streamBits(s, k) + 7) / 8;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The encoded string is too large for an array.");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Encodes the input string into a buffer owned by the caller.
+     * Letters are checked before anything is written, so the buffer is left untouched when one is missing.
+     *
+     * @param s   the input string.
+     * @param out the buffer the bytes are written to, from its position.
+     * @return the number of bytes written, which is encodedSize(s).
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook and there is no escape.
+     * @throws BufferOverflowException  when the buffer does not have room for every byte.
+     */
+    public int encode(CharSequence s, ByteBuffer out) {
+        int[] sizes = new int[streams];
+        long total = headerSize();
+        for (int k = 0; k < streams; k++) {
+            sizes[k] = (int) ((streamBits(s, k) + 7) / 8);
+            total += sizes[k];
+        }
+        if (out.remaining() < total) {
+            throw new BufferOverflowException();
+        }
+        int start = out.position();
+        putInt(out, s.length());
+        out.put((byte) streams);
+        for (int k = 0; k < streams - 1; k++) {
+            putInt(out, sizes[k]);
+        }
+        BitWriter writer = new BitWriter(out);
+        for (int k = 0; k < streams; k++) {
+            writeStream(s, k, writer);
+            writer.write(0, (int) (-writer.getBitLength() & 7));
+            writer.flushBytes();
+            writer.reset();
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * Decodes bytes written by encode into a string.
+     *
+     * @param data the bytes.
+     * @return a String representing the decoded letters.
+     * @throws IllegalArgumentException when the header is invalid, a stream is truncated or the bits do not lead
+     *                                  to any letter.
+     */
+    public String decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        char[] letters = new char[letterCount(in)];
+        decode(in, letters, 0);
+        return new String(letters);
+    }
+
+    /**
+     * Decodes the bytes left in a buffer, written by encode, into a buffer owned by the caller.
+     * The input buffer is read to its limit.
+     *
+     * @param in  the buffer holding the header and the streams.
+     * @param out the buffer the letters are written to.
+     * @return the number of letters written.
+     * @throws IllegalArgumentException when the header is invalid, a stream is truncated or the bits do not lead
+     *                                  to any letter.
+     * @throws BufferOverflowException  when the output buffer does not have room for every letter.
+     */
+    public int decode(ByteBuffer in, CharBuffer out) {
+        int count = letterCount(in);
+        if (out.remaining() < count) {
+            throw new BufferOverflowException();
+        }
+        if (out.hasArray()) {
+            decode(in, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + count);
+        } else {
+            char[] letters = new char[count];
+            decode(in, letters, 0);
+            out.put(letters);
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of streams.
+     *
+     * @return an int representing the number of streams.
+     */
+    public int getStreams() {
+        return streams;
+    }
+
+    /**
+     * Get the codec giving the codes.
+     *
+     * @return the HuffmanCodec.
+     */
+    public HuffmanCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Get the number of bytes of the header.
+     *
+     * @return an int representing the size of the header.
+     */
+    private int headerSize() {
+        return Integer.BYTES + 1 + Integer.BYTES * (streams - 1);
+    }
+
+    /**
+     * Computes the number of bits of one stream.
+     *
+     * @param s      the input string.
+     * @param stream the index of the stream.
+     * @return a long representing the number of bits.
+     * @throws IllegalArgumentException when a letter is not in the codebook and there is no escape.
+     */
+    private long streamBits(CharSequence s, int stream) {
+        CompiledCodeBook book = codec.getCodeBook();
+        int escape = codec.getDecodeTable().getEscape();
+        long escapeBits = escape < 0 ? 0 : book.getCodeLength((char) escape) + CompiledCodeBook.LITERAL_BITS;
+        long bits = 0;
+        for (int i = stream; i < s.length(); i += streams) {
+            char c = s.charAt(i);
+            long entry = c == escape ? 0 : book.lookup(c);
+            if (entry == 0) {
+                if (escape < 0) {
+                    throw CompiledCodeBook.missingLetter(c, i);
+                }
+                bits += escapeBits;
+            } else {
+                bits += entry & CompiledCodeBook.LENGTH_MASK;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Writes the codes of one stream.
+     *
+     * @param s      the input string.
+     * @param stream the index of the stream.
+     * @param out    the BitWriter the codes are appended to.
+     */
+    private void writeStream(CharSequence s, int stream, BitWriter out) {
+        CompiledCodeBook book = codec.getCodeBook();
+        int escape = codec.getDecodeTable().getEscape();
+        for (int i = stream; i < s.length(); i += streams) {
+            char c = s.charAt(i);
+            long entry = c == escape ? 0 : book.lookup(c);
+            if (entry == 0) {
+                //Only reached with an escape letter, since streamBits checked every letter.
+                long escapeEntry = book.lookup((char) escape);
+                out.write(escapeEntry >>> CompiledCodeBook.LENGTH_BITS,
+                        (int) (escapeEntry & CompiledCodeBook.LENGTH_MASK));
+                out.write(c, CompiledCodeBook.LITERAL_BITS);
+            } else {
+                out.write(entry >>> CompiledCodeBook.LENGTH_BITS, (int) (entry & CompiledCodeBook.LENGTH_MASK));
+            }
+        }
+    }
+
+    /**
+     * Reads the number of letters at the start of the header, without moving the buffer. The number is checked
+     * against the size of the streams before any array is sized from it: every letter takes at least one bit.
+     *
+     * @param in the buffer holding the header.
+     * @return an int representing the number of letters.
+     * @throws IllegalArgumentException when the header is truncated, or the number of letters or of streams is
+     *                                  invalid.
+     */
+    private static int letterCount(ByteBuffer in) {
+        if (in.remaining() < Integer.BYTES + 1) {
+            throw new IllegalArgumentException("The header is truncated.");
+        }
+        int count = getInt(in, in.position());
+        int n = in.get(in.position() + Integer.BYTES);
+        if (n < 1 || n > MAX_STREAMS) {
+            throw new IllegalArgumentException("Invalid number of streams " + n + ".");
+        }
+        int header = Integer.BYTES + 1 + Integer.BYTES * (n - 1);
+        if (in.remaining() < header) {
+            throw new IllegalArgumentException("The header is truncated.");
+        }
+        if (count < 0 || count > (long) (in.remaining() - header) * Byte.SIZE) {
+            throw new IllegalArgumentException("Invalid number of letters " + count + ".");
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the streams into an array, once letterCount has checked the header.
+     *
+     * @param in   the buffer holding the header and the streams, read to its limit.
+     * @param dst  the array the letters are written to.
+     * @param from the index of the first letter in the array.
+     * @throws IllegalArgumentException when the header is invalid, a stream is truncated or the bits do not lead
+     *                                  to any letter.
+     */
+    private void decode(ByteBuffer in, char[] dst, int from) {
+        int start = in.position();
+        int length = in.remaining();
+        int count = getInt(in, start);
+        //The number of letters and of streams were checked by letterCount.
+        int n = in.get(start + Integer.BYTES);
+        int header = Integer.BYTES + 1 + Integer.BYTES * (n - 1);
+        int payload = length - header;
+        long[] positions = new long[n];
+        long[] ends = new long[n];
+        long offset = 0;
+        for (int k = 0; k < n; k++) {
+            long size = k < n - 1 ? getInt(in, start + Integer.BYTES + 1 + Integer.BYTES * k) : payload - offset;
+            if (size < 0 || offset + size > payload) {
+                throw new IllegalArgumentException("Invalid size of stream " + k + ".");
+            }
+            positions[k] = offset * Byte.SIZE;
+            offset += size;
+            ends[k] = offset * Byte.SIZE;
+        }
+        long[] words = unpack(in, start + header, payload);
+        in.position(in.limit());
+
+        HuffmanDecodeTable table = codec.getDecodeTable();
+        long span = table.getMaxLetterBits();
+        int rounds = count / n;
+        int round = 0;
+        while (round < rounds) {
+            //Every stream has room for this many letters, so the rounds below need no bounds checks.
+            long batch = rounds - round;
+            for (int k = 0; k < n; k++) {
+                batch = Math.min(batch, (ends[k] - positions[k]) / span);
+            }
+            if (batch == 0) {
+                break;
+            }
+            int last = round + (int) batch;
+            if (n == 4) {
+                round = table.decodeFour(words, positions, dst, from, round, last);
+            } else {
+                for (; round < last; round++) {
+                    int o = from + round * n;
+                    for (int k = 0; k < n; k++) {
+                        long decoded = table.decodeFirst(words, positions[k], ends[k]);
+                        dst[o + k] = (char) decoded;
+                        positions[k] += decoded >>> 16;
+                    }
+                }
+            }
+        }
+        //The last letters of each stream, with every read checked against the end of the stream.
+        for (int i = round * n; i < count; i++) {
+            int k = i % n;
+            long decoded = table.decodeOne(words, positions[k], ends[k]);
+            if (decoded < 0) {
+                throw new IllegalArgumentException("Stream " + k + " is truncated.");
+            }
+            dst[from + i] = (char) decoded;
+            positions[k] += decoded >>> 16;
+        }
+    }
+
+    /**
+     * Unpacks bytes into the word array of the current thread, most significant bit first.
+     * The array has at least one word past the bytes, so reads at the end of the last stream stay inside it.
+     *
+     * @param in     the buffer holding the bytes.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @return the word array of the thread.
+     */
+    private static long[] unpack(ByteBuffer in, int offset, int length) {
+        long[][] holder = SCRATCH.get();
+        int size = length / Long.BYTES + 1;
+        if (holder[0].length < size) {
+            holder[0] = new long[Math.max(size, holder[0].length * 2)];
+        }
+        long[] words = holder[0];
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            words[i >>> 3] = getLong(in, offset + i);
+        }
+        words[i >>> 3] = 0;
+        for (; i < length; i++) {
+            words[i >>> 3] |= (in.get(offset + i) & 0xFFL) << (56 - 8 * (i & 7));
+        }
+        return words;
+    }
+
+    /**
+     * Writes a big-endian int at the position of a buffer, whatever its byte order.
+     *
+     * @param out   the buffer.
+     * @param value the int.
+     */
+    private static void putInt(ByteBuffer out, int value) {
+        out.put((byte) (value >>> 24)).put((byte) (value >>> 16)).put((byte) (value >>> 8)).put((byte) value);
+    }
+
+    /**
+     * Reads a big-endian int at an index of a buffer, whatever its byte order.
+     *
+     * @param in    the buffer.
+     * @param index the index of the first byte.
+     * @return the int.
+     */
+    private static int getInt(ByteBuffer in, int index) {
+        int value = in.getInt(index);
+        return in.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    /**
+     * Reads a big-endian long at an index of a buffer, whatever its byte order.
+     *
+     * @param in    the buffer.
+     * @param index the index of the first byte.
+     * @return the long.
+     */
+    private static long getLong(ByteBuffer in, int index) {
+        long value = in.getLong(index);
+        return in.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+}
@@ -0,0 +1,219 @@
+//Bilal Ahmed
+
+package student;
+
+import provided.BinarySequence;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a sequence of bits packed into 64-bit words.
+ * Bit i of the sequence is stored in word i / 64, starting from the most significant bit of that word.
+ * It is the primitive counterpart of a BinarySequence and is what the table-driven decoder reads from.
+ *
+ * @author Bilal Ahmed
+ */
+public final class PackedBits {
+    /**
+     * The words holding the bits, most significant bit first.
+     */
+    private final long[] words;
+    /**
+     * The number of valid bits held in the words.
+     */
+    private final long bitLength;
+
+    /**
+     * Constructor that initializes the PackedBits object.
+     * The given array is not copied.
+     *
+     * @param words     the words holding the bits, most significant bit first.
+     * @param bitLength the number of valid bits held in the words.
+     * @throws IllegalArgumentException when the bit length is negative or larger than the words can hold.
+     */
+    public PackedBits(long[] words, long bitLength) {
+        if (bitLength < 0 || bitLength > (long) words.length * Long.SIZE) {
+            throw new IllegalArgumentException("Bit length " + bitLength + " does not fit in "
+                    + words.length + " words.");
+        }
+        this.words = words;
+        this.bitLength = bitLength;
+    }
+
+    /**
+     * Packs a BinarySequence into words.
+     *
+     * @param seq the BinarySequence that will be packed.
+     * @return a PackedBits object holding the same bits as the given sequence.
+     */
+    public static PackedBits of(BinarySequence seq) {
+        long[] packed = new long[16];
+        long length = 0;
+        for (Boolean bool : seq) {
+            int index = (int) (length >>> 6);
+            if (index == packed.length) {
+                packed = Arrays.copyOf(packed, packed.length * 2);
+            }
+            if (bool) {
+                packed[index] |= 1L << (63 - (int) (length & 63));
+            }
+            length++;
+        }
+        return new PackedBits(packed, length);
+    }
+
+    /**
+     * Unpacks bytes produced by BitWriter or toByteArray.
+     * The last byte is the trailer holding the number of padding bits of the byte before it.
+     *
+     * @param data the bytes, ending with the trailer byte.
+     * @return a PackedBits object holding the bits without the padding.
+     * @throws IllegalArgumentException when the trailer is missing or invalid.
+     */
+    public static PackedBits fromByteArray(byte[] data) {
+        return fromByteArray(data, 0, data.length);
+    }
+
+    /**
+     * Unpacks bytes produced by BitWriter or toByteArray.
+     * The last byte is the trailer holding the number of padding bits of the byte before it.
+     *
+     * @param data   the array holding the bytes.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes, trailer included.
+     * @return a PackedBits object holding the bits without the padding.
+     * @throws IllegalArgumentException when the trailer is missing or invalid.
+     */
+    public static PackedBits fromByteArray(byte[] data, int offset, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("The trailer byte is missing.");
+        }
+        int padding = data[offset + length - 1];
+        int payload = length - 1;
+        if (padding < 0 || padding > 7 || (payload == 0 && padding != 0)) {
+            throw new IllegalArgumentException("Invalid trailer byte " + padding + ".");
+        }
+        long[] packed = new long[(payload + 7) / 8];
+        for (int i = 0; i < payload; i++) {
+            packed[i >>> 3] |= (data[offset + i] & 0xFFL) << (56 - 8 * (i & 7));
+        }
+        return new PackedBits(packed, (long) payload * Byte.SIZE - padding);
+    }
+
+    /**
+     * Copies the bits into bytes, padded to a whole byte and followed by a trailer byte
+     * holding the number of padding bits.
+     *
+     * @return a byte array holding the bits and the trailer.
+     */
+    public byte[] toByteArray() {
+        int payload = (int) ((bitLength + 7) / 8);
+        byte[] data = new byte[payload + 1];
+        for (int i = 0; i < payload; i++) {
+            data[i] = (byte) (words[i >>> 3] >>> (56 - 8 * (i & 7)));
+        }
+        int padding = (int) (payload * 8L - bitLength);
+        if (padding > 0) {
+            //Clear the bits past the end, the words may hold anything there.
+            data[payload - 1] &= (byte) (0xFF << padding);
+        }
+        data[payload] = (byte) padding;
+        return data;
+    }
+
+    /**
+     * Copies the bits into a BinarySequence, which can be decoded by HuffmanCodeTree.
+     *
+     * @return a BinarySequence holding the same bits.
+     */
+    public BinarySequence toBinarySequence() {
+        BinarySequence seq = new BinarySequence();
+        for (long i = 0; i < bitLength; i++) {
+            seq.append((words[(int) (i >>> 6)] << (i & 63)) < 0);
+        }
+        return seq;
+    }
+
+    /**
+     * Get the words holding the bits.
+     * The returned array is the backing array, it is not copied.
+     *
+     * @return the words holding the bits, most significant bit first.
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Get the number of valid bits.
+     *
+     * @return a long representing the number of bits in the sequence.
+     */
+    public long getBitLength() {
+        return bitLength;
+    }
+
+    /**
+     * Get the bit at a given index.
+     *
+     * @param index the index of the bit.
+     * @return true if the bit is a one, false if it is a zero.
+     * @throws IndexOutOfBoundsException when index is greater than the number of bits.
+     */
+    public boolean get(long index) {
+        if (index >= bitLength || index < 0) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+        }
+        return (words[(int) (index >>> 6)] << (index & 63)) < 0;
+    }
+
+    /**
+     * Copies a range of the bits into a new PackedBits object starting at bit 0.
+     * Bits past the end of the range are cleared in the last word.
+     *
+     * @param fromBit the position of the first bit to be copied.
+     * @param toBit   the position after the last bit to be copied.
+     * @return a PackedBits object holding toBit - fromBit bits.
+     * @throws IndexOutOfBoundsException when the range is outside the bits.
+     */
+    public PackedBits slice(long fromBit, long toBit) {
+        if (fromBit < 0 || toBit > bitLength || fromBit > toBit) {
+            throw new IndexOutOfBoundsException("Bits " + fromBit + " to " + toBit + " are out of bounds.");
+        }
+        long length = toBit - fromBit;
+        long[] sliced = new long[(int) ((length + 63) >>> 6)];
+        int first = (int) (fromBit >>> 6);
+        int shift = (int) (fromBit & 63);
+        for (int i = 0; i < sliced.length; i++) {
+            long word = words[first + i] << shift;
+            if (shift != 0 && first + i + 1 < words.length) {
+                word |= words[first + i + 1] >>> (Long.SIZE - shift);
+            }
+            sliced[i] = word;
+        }
+        int used = (int) (length & 63);
+        if (used != 0) {
+            sliced[sliced.length - 1] &= -1L << (Long.SIZE - used);
+        }
+        return new PackedBits(sliced, length);
+    }
+
+    /**
+     * Reads up to 32 bits starting at a given bit position, without moving past the end of the array.
+     * Bits past the end of the array are read as zeros.
+     *
+     * @param words    the words holding the bits.
+     * @param position the position of the first bit to be read, must be inside the array.
+     * @param width    the number of bits to be read, between 1 and 32.
+     * @return an int holding the bits read, the first bit being the most significant one.
+     */
+    static int peek(long[] words, long position, int width) {
+        int index = (int) (position >>> 6);
+        int offset = (int) (position & 63);
+        long bits = words[index] << offset;
+        if (offset + width > Long.SIZE && index + 1 < words.length) {
+            bits |= words[index + 1] >>> (Long.SIZE - offset);
+        }
+        return (int) (bits >>> (Long.SIZE - width));
+    }
+}
@@ -0,0 +1,171 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class counts and encodes large inputs on several cores with a fork-join pool.
+ * The input is split into chunks of letters. Each chunk is encoded on its own into separate bits,
+ * then a prefix sum over the chunk bit lengths gives the exact position of every chunk in the output,
+ * so the chunks can be copied side by side in parallel. The result is the same as a single-threaded encode.
+ *
+ * @author Bilal Ahmed
+ */
+public final class ParallelHuffmanEncoder {
+    /**
+     * The number of letters per chunk when none is given.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The pool the chunks are processed in.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * The number of letters per chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Constructor that initializes the ParallelHuffmanEncoder object, using the common pool
+     * and DEFAULT_CHUNK_SIZE letters per chunk.
+     */
+    public ParallelHuffmanEncoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor that initializes the ParallelHuffmanEncoder object.
+     *
+     * @param pool      the pool the chunks are processed in.
+     * @param chunkSize the number of letters per chunk.
+     * @throws IllegalArgumentException when chunkSize is not positive.
+     */
+    public ParallelHuffmanEncoder(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Counts the letters of the input.
+     * The input is split into at most four slices per worker, each counted into its own histogram.
+     *
+     * @param s the input string.
+     * @return the number of occurrences of each char, indexed by the char.
+     */
+    public long[] histogram(CharSequence s) {
+        int length = s.length();
+        int slices = (int) Math.max(1, Math.min(chunkCount(length), pool.getParallelism() * 4L));
+        int sliceSize = (int) ((length + (long) slices - 1) / slices);
+        int[][] counts = new int[slices][];
+        ChunkAction.run(pool, slices, slice -> {
+            int from = (int) Math.min(length, (long) slice * sliceSize);
+            int to = (int) Math.min(length, (long) from + sliceSize);
+            int[] count = new int[HuffmanCodeBuilder.ALPHABET_SIZE];
+            for (int i = from; i < to; i++) {
+                count[s.charAt(i)]++;
+            }
+            counts[slice] = count;
+        });
+        long[] total = new long[HuffmanCodeBuilder.ALPHABET_SIZE];
+        for (int[] count : counts) {
+            for (int c = 0; c < count.length; c++) {
+                total[c] += count[c];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Builds an optimal codebook for the input, counting its letters in parallel.
+     *
+     * @param s the input string.
+     * @return a CompiledCodeBook holding a canonical code for every letter of the input.
+     * @throws IllegalArgumentException when the input is empty.
+     */
+    public CompiledCodeBook buildCodeBook(CharSequence s) {
+        return new HuffmanCodeBuilder().addFrequencies(histogram(s)).buildCompiled();
+    }
+
+    /**
+     * Encodes the input, one chunk per task, and stitches the chunks together.
+     *
+     * @param s    the input string.
+     * @param book the codebook used to encode the letters.
+     * @return a PackedBits object holding the encoded string.
+     * @throws IllegalArgumentException when a letter of the string is not in the codebook.
+     */
+    public PackedBits encode(CharSequence s, CompiledCodeBook book) {
+        int length = s.length();
+        int chunks = chunkCount(length);
+        PackedBits[] parts = new PackedBits[chunks];
+        ChunkAction.run(pool, chunks, chunk -> {
+            int from = chunk * chunkSize;
+            int to = (int) Math.min(length, (long) from + chunkSize);
+            BitWriter out = new BitWriter(Math.max(1, (to - from) / 16));
+            book.encode(s, from, to, out);
+            parts[chunk] = out.toPackedBits();
+        });
+
+        //Prefix sum of the chunk lengths gives the position of every chunk.
+        long[] offsets = new long[chunks + 1];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            offsets[chunk + 1] = offsets[chunk] + parts[chunk].getBitLength();
+        }
+        long totalBits = offsets[chunks];
+        if (totalBits > (long) (Integer.MAX_VALUE - 8) * Long.SIZE) {
+            throw new IllegalArgumentException("The encoded string is too large to be held in one array.");
+        }
+        long[] words = new long[(int) ((totalBits + 63) >>> 6)];
+
+        //Every word after the first word of a chunk belongs to that chunk alone, so they are copied in parallel.
+        ChunkAction.run(pool, chunks, chunk -> copyTail(parts[chunk], offsets[chunk], words));
+        //First words can be shared with the chunks before them, so they are merged one at a time.
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (parts[chunk].getBitLength() > 0) {
+                words[(int) (offsets[chunk] >>> 6)] |= parts[chunk].getWords()[0] >>> (offsets[chunk] & 63);
+            }
+        }
+        return new PackedBits(words, totalBits);
+    }
+
+    /**
+     * Copies the bits of a chunk into the output, except the ones landing in the chunk's first output word.
+     *
+     * @param part   the bits of the chunk.
+     * @param offset the position of the chunk in the output.
+     * @param words  the output words.
+     */
+    private static void copyTail(PackedBits part, long offset, long[] words) {
+        long bits = part.getBitLength();
+        if (bits == 0) {
+            return;
+        }
+        long[] source = part.getWords();
+        int first = (int) (offset >>> 6);
+        int last = (int) ((offset + bits - 1) >>> 6);
+        int shift = (int) (offset & 63);
+        for (int j = 1; j <= last - first; j++) {
+            long current = j < source.length ? source[j] : 0;
+            if (shift == 0) {
+                words[first + j] = current;
+            } else {
+                words[first + j] = (source[j - 1] << (Long.SIZE - shift)) | (current >>> shift);
+            }
+        }
+    }
+
+    /**
+     * Computes the number of chunks of an input.
+     *
+     * @param length the number of letters of the input.
+     * @return an int representing the number of chunks.
+     */
+    private int chunkCount(int length) {
+        return (int) ((length + (long) chunkSize - 1) / chunkSize);
+    }
+}
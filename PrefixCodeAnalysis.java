@@ -0,0 +1,468 @@
+//Bilal Ahmed
+
+package student;
+
+import provided.BinarySequence;
+
+import java.util.Arrays;
+
+/**
+ * This class validates a code tree or a codebook and describes the prefix code it holds.
+ * It checks that the codes are prefix-free, that every letter has a single code and that the code lengths satisfy
+ * the Kraft inequality, and tells whether they reach the Kraft equality, meaning no bit pattern is left unused.
+ * It also reports the longest code, the number of codes of each length and the expected bits per letter.
+ * Trees are walked and codebooks are inserted into a flat trie with explicit stacks, so the work is linear in the
+ * number of nodes or code bits and deep trees from very skewed frequencies cannot overflow the call stack.
+ * It is meant to gate codebooks that come from untrusted sources before they are used.
+ *
+ * @author Bilal Ahmed
+ */
+public final class PrefixCodeAnalysis {
+    /**
+     * The letters, in the order they were found.
+     */
+    private final char[] letters;
+    /**
+     * The code length of each letter.
+     */
+    private final int[] lengths;
+    /**
+     * The number of codes of each length.
+     */
+    private final long[] histogram;
+    /**
+     * The first problem found, or null when the code is valid.
+     */
+    private final String problem;
+    /**
+     * Whether the code lengths reach the Kraft equality.
+     */
+    private final boolean complete;
+
+    /**
+     * Constructor that initializes the PrefixCodeAnalysis object.
+     *
+     * @param letters the letters.
+     * @param lengths the code length of each letter.
+     * @param count   the number of letters.
+     * @param problem the first structural problem found, or null.
+     */
+    private PrefixCodeAnalysis(char[] letters, int[] lengths, int count, String problem) {
+        this.letters = Arrays.copyOf(letters, count);
+        this.lengths = Arrays.copyOf(lengths, count);
+        int maxDepth = 0;
+        for (int length : this.lengths) {
+            maxDepth = Math.max(maxDepth, length);
+        }
+        this.histogram = new long[maxDepth + 1];
+        for (int length : this.lengths) {
+            histogram[length]++;
+        }
+        if (problem == null && count == 0) {
+            problem = "The code does not hold any letter.";
+        }
+        if (problem == null) {
+            problem = duplicateLetter();
+        }
+        int kraft = compareKraft();
+        if (problem == null && kraft > 0) {
+            problem = "The code lengths exceed the Kraft inequality.";
+        }
+        this.problem = problem;
+        this.complete = kraft == 0;
+    }
+
+    /**
+     * Analyzes the code held by a tree.
+     *
+     * @param tree the HuffmanCodeTree.
+     * @return a PrefixCodeAnalysis of the tree.
+     */
+    public static PrefixCodeAnalysis of(HuffmanCodeTree tree) {
+        return of(tree.getRoot());
+    }
+
+    /**
+     * Analyzes the code held by the tree below a node. A tree is valid when every node is either a leaf holding a
+     * letter or an internal node with at least one child, and no letter is held by two leaves. An internal node with
+     * a single child leaves the bit patterns of the other one unused, so the code is valid but not complete, as the
+     * codebook of a single letter is.
+     *
+     * @param root the root of the tree.
+     * @return a PrefixCodeAnalysis of the tree.
+     */
+    public static PrefixCodeAnalysis of(HuffmanNode root) {
+        char[] letters = new char[16];
+        int[] lengths = new int[16];
+        int count = 0;
+        String problem = null;
+        if (root == null || root.isLeaf()) {
+            return new PrefixCodeAnalysis(letters, lengths, 0, "The tree does not hold any code.");
+        }
+        HuffmanNode[] nodes = new HuffmanNode[64];
+        int[] depths = new int[64];
+        int top = 0;
+        nodes[top] = root;
+        depths[top++] = 0;
+        while (top > 0) {
+            HuffmanNode node = nodes[--top];
+            int depth = depths[top];
+            if (node.isLeaf()) {
+                if (count == letters.length) {
+                    letters = Arrays.copyOf(letters, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                letters[count] = node.getData();
+                lengths[count++] = depth;
+                continue;
+            }
+            if (problem == null) {
+                if (node.getData() != null) {
+                    problem = "An internal node at depth " + depth + " holds a letter.";
+                } else if (node.getZero() == null && node.getOne() == null) {
+                    problem = "An internal node at depth " + depth + " does not have any child.";
+                }
+            }
+            if (top + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+            }
+            if (node.getOne() != null) {
+                nodes[top] = node.getOne();
+                depths[top++] = depth + 1;
+            }
+            if (node.getZero() != null) {
+                nodes[top] = node.getZero();
+                depths[top++] = depth + 1;
+            }
+        }
+        return new PrefixCodeAnalysis(letters, lengths, count, problem);
+    }
+
+    /**
+     * Analyzes the code held by a codebook.
+     *
+     * @param book the HuffmanCodeBook.
+     * @return a PrefixCodeAnalysis of the codebook.
+     */
+    public static PrefixCodeAnalysis of(HuffmanCodeBook book) {
+        int size = book.getLengthOfCodeBook();
+        char[] letters = new char[size];
+        int[] lengths = new int[size];
+        CodeTrie trie = new CodeTrie();
+        String problem = null;
+        for (int i = 0; i < size; i++) {
+            letters[i] = book.getCharAtIndex(i);
+            BinarySequence seq = book.getBinarySequenceAtIndex(i);
+            lengths[i] = seq == null ? 0 : seq.size();
+            if (problem == null) {
+                if (lengths[i] == 0) {
+                    problem = describe(letters[i]) + " has an empty code.";
+                } else if (!trie.insert(seq)) {
+                    problem = "The code of " + describe(letters[i]) + " is a prefix of another code, or has one.";
+                }
+            }
+        }
+        return new PrefixCodeAnalysis(letters, lengths, size, problem);
+    }
+
+    /**
+     * Analyzes the code held by a compiled codebook.
+     *
+     * @param book the CompiledCodeBook.
+     * @return a PrefixCodeAnalysis of the codebook.
+     */
+    public static PrefixCodeAnalysis of(CompiledCodeBook book) {
+        int size = book.getSymbolCount();
+        char[] letters = new char[size];
+        int[] lengths = new int[size];
+        CodeTrie trie = new CodeTrie();
+        String problem = null;
+        for (int i = 0; i < size; i++) {
+            letters[i] = book.getSymbol(i);
+            lengths[i] = book.getLengthAt(i);
+            if (problem == null && !trie.insert(book.getCodeAt(i), lengths[i])) {
+                problem = "The code of " + describe(letters[i]) + " is a prefix of another code, or has one.";
+            }
+        }
+        return new PrefixCodeAnalysis(letters, lengths, size, problem);
+    }
+
+    /**
+     * Returns whether the code is valid: prefix-free, one code per letter, and within the Kraft inequality.
+     *
+     * @return a boolean representing whether the code is valid.
+     */
+    public boolean isValid() {
+        return problem == null;
+    }
+
+    /**
+     * Throws when the code is not valid, to stop an untrusted codebook from being used.
+     *
+     * @throws IllegalArgumentException describing the first problem found.
+     */
+    public void checkValid() {
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
+    /**
+     * Get a description of the first problem found.
+     *
+     * @return a String describing the problem, or null when the code is valid.
+     */
+    public String getProblem() {
+        return problem;
+    }
+
+    /**
+     * Returns whether the code lengths reach the Kraft equality, so every bit pattern starts a code.
+     * Huffman codes with two or more letters always do; the code of a single letter does not, from a codebook
+     * or from a tree.
+     *
+     * @return a boolean representing whether the code is complete.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the sum of 2^-length over every code, which is 1 for a complete code.
+     *
+     * @return a double representing the Kraft sum.
+     */
+    public double getKraftSum() {
+        double sum = 0;
+        for (int length = 1; length < histogram.length; length++) {
+            sum += Math.scalb((double) histogram[length], -length);
+        }
+        return sum;
+    }
+
+    /**
+     * Get the number of letters with a code.
+     *
+     * @return an int representing the number of letters.
+     */
+    public int getSymbolCount() {
+        return letters.length;
+    }
+
+    /**
+     * Get the length of the longest code, which is the depth of the tree.
+     *
+     * @return an int representing the longest code length.
+     */
+    public int getMaxDepth() {
+        return histogram.length - 1;
+    }
+
+    /**
+     * Get the number of codes of each length.
+     *
+     * @return an array whose entry i is the number of codes of length i.
+     */
+    public long[] getLengthHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Get the code length of a letter.
+     *
+     * @param c the letter.
+     * @return an int representing the code length, or 0 when the letter has no code.
+     */
+    public int getCodeLength(char c) {
+        for (int i = 0; i < letters.length; i++) {
+            if (letters[i] == c) {
+                return lengths[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the expected bits per letter when each letter appears with the probability its code length implies,
+     * 2^-length scaled by the Kraft sum. For a Huffman code this is the entropy the code is tuned for.
+     *
+     * @return a double representing the expected bits per letter.
+     */
+    public double getExpectedBitsPerSymbol() {
+        double bits = 0;
+        for (int length = 1; length < histogram.length; length++) {
+            bits += length * Math.scalb((double) histogram[length], -length);
+        }
+        return bits / getKraftSum();
+    }
+
+    /**
+     * Get the expected bits per letter for text with the given letter frequencies.
+     *
+     * @param frequencies the number of occurrences of each char, indexed by the char.
+     * @return a double representing the expected bits per letter, or NaN when no letter occurs.
+     * @throws IllegalArgumentException when a letter with a frequency above zero has no code.
+     */
+    public double getExpectedBitsPerSymbol(long[] frequencies) {
+        int[] byLetter = new int[HuffmanCodeBuilder.ALPHABET_SIZE];
+        for (int i = 0; i < letters.length; i++) {
+            byLetter[letters[i]] = lengths[i];
+        }
+        long total = 0;
+        double bits = 0;
+        for (int c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] > 0) {
+                if (byLetter[c] == 0) {
+                    throw CompiledCodeBook.missingLetter((char) c, -1);
+                }
+                total += frequencies[c];
+                bits += (double) frequencies[c] * byLetter[c];
+            }
+        }
+        return total == 0 ? Double.NaN : bits / total;
+    }
+
+    /**
+     * Finds a letter held by two codes, using a bit per char.
+     *
+     * @return a description of the duplicate letter, or null when there is none.
+     */
+    private String duplicateLetter() {
+        long[] seen = new long[HuffmanCodeBuilder.ALPHABET_SIZE / Long.SIZE];
+        for (char c : letters) {
+            if ((seen[c >>> 6] & (1L << c)) != 0) {
+                return describe(c) + " has more than one code.";
+            }
+            seen[c >>> 6] |= 1L << c;
+        }
+        return null;
+    }
+
+    /**
+     * Compares the Kraft sum with 1 exactly, by folding the length histogram from the longest codes up:
+     * two codes of one length weigh as much as one code a bit shorter.
+     *
+     * @return a negative int when the sum is below 1, 0 when it is 1, and a positive int when it is above.
+     */
+    private int compareKraft() {
+        long carry = 0;
+        boolean remainder = false;
+        for (int length = histogram.length - 1; length >= 1; length--) {
+            long total = histogram[length] + carry;
+            remainder |= (total & 1) != 0;
+            carry = total >>> 1;
+        }
+        if (carry == 0) {
+            return -1;
+        }
+        if (carry == 1 && !remainder) {
+            return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Describes a letter for an error message.
+     *
+     * @param c the letter.
+     * @return a String naming the letter and its code point.
+     */
+    private static String describe(char c) {
+        return "Character '" + c + "' (U+" + String.format("%04X", (int) c) + ")";
+    }
+
+    /**
+     * Private class that holds a binary trie in flat arrays, to check that codes are prefix-free as they are added.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class CodeTrie {
+        /**
+         * The zero child of each node, or 0 when there is none.
+         */
+        private int[] zero = new int[64];
+        /**
+         * The one child of each node, or 0 when there is none.
+         */
+        private int[] one = new int[64];
+        /**
+         * Whether each node ends a code.
+         */
+        private boolean[] leaf = new boolean[64];
+        /**
+         * The number of nodes, the root being node 0.
+         */
+        private int size = 1;
+
+        /**
+         * Adds a code held in a BinarySequence.
+         *
+         * @param seq the code.
+         * @return false when the code is a prefix of a code already added, or has one as a prefix.
+         */
+        boolean insert(BinarySequence seq) {
+            int node = 0;
+            for (Boolean bit : seq) {
+                if (leaf[node]) {
+                    return false;
+                }
+                node = child(node, bit);
+            }
+            return end(node);
+        }
+
+        /**
+         * Adds a code held in the lowest bits of a long.
+         *
+         * @param code   the code.
+         * @param length the number of bits of the code.
+         * @return false when the code is a prefix of a code already added, or has one as a prefix.
+         */
+        boolean insert(long code, int length) {
+            int node = 0;
+            for (int bit = length - 1; bit >= 0; bit--) {
+                if (leaf[node]) {
+                    return false;
+                }
+                node = child(node, ((code >>> bit) & 1) == 1);
+            }
+            return end(node);
+        }
+
+        /**
+         * Gets a child of a node, adding it when it is missing.
+         *
+         * @param node the node.
+         * @param bit  which child.
+         * @return the index of the child.
+         */
+        private int child(int node, boolean bit) {
+            int[] children = bit ? one : zero;
+            if (children[node] == 0) {
+                if (size == leaf.length) {
+                    zero = Arrays.copyOf(zero, size * 2);
+                    one = Arrays.copyOf(one, size * 2);
+                    leaf = Arrays.copyOf(leaf, size * 2);
+                    children = bit ? one : zero;
+                }
+                children[node] = size++;
+            }
+            return children[node];
+        }
+
+        /**
+         * Marks the end of a code.
+         *
+         * @param node the node the code ends at.
+         * @return false when the node already ends a code or has children.
+         */
+        private boolean end(int node) {
+            if (node == 0 || leaf[node] || zero[node] != 0 || one[node] != 0) {
+                return false;
+            }
+            leaf[node] = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class encodes with a codebook that follows the letter frequencies of the text it is given.
+ * A sample of the encode calls is counted by the calling thread into counts of its own, plain longs in pages of 256
+ * letters allocated as letters are seen, so counting takes no atomic operation and no two threads write the same
+ * counter. Retraining reads the counts of every thread and remembers how much it took from each, so letters counted
+ * while it runs are left for the next time. Retraining builds a codebook from the counts and swaps it in when it
+ * saves enough bits per letter over the current one on those same counts.
+ * Every codebook gets a version, written in front of each message, and the last few versions are kept so messages
+ * encoded just before a swap still decode. Codebooks carry an escape letter, so letters that were not seen when a
+ * codebook was built are still encoded, as literals.
+ * The format is a 4-byte big-endian version followed by the bytes of HuffmanCodec.encode.
+ *
+ * @author Bilal Ahmed
+ */
+public final class RetrainingHuffmanCodec {
+    /**
+     * The default share of encode calls counted, one in this many.
+     */
+    public static final int DEFAULT_SAMPLE_EVERY = 8;
+    /**
+     * The default smallest saving, as a share of the current bits per letter, that makes a new codebook worth it.
+     */
+    public static final double DEFAULT_MIN_GAIN = 0.02;
+    /**
+     * The default smallest number of letters counted before a codebook is built.
+     */
+    public static final long DEFAULT_MIN_SAMPLES = 1 << 16;
+    /**
+     * The default number of versions kept for decoding.
+     */
+    public static final int DEFAULT_RETAINED_VERSIONS = 8;
+    /**
+     * The number of bytes of the version header.
+     */
+    public static final int HEADER_BYTES = Integer.BYTES;
+
+    /**
+     * The escape letter of every codebook.
+     */
+    private final char escape;
+    /**
+     * The number of bits the decode tables read per lookup.
+     */
+    private final int lookupBits;
+    /**
+     * The share of encode calls counted, one in this many.
+     */
+    private final int sampleEvery;
+    /**
+     * The smallest saving that makes a new codebook worth it.
+     */
+    private final double minGain;
+    /**
+     * The smallest number of letters counted before a codebook is built.
+     */
+    private final long minSamples;
+    /**
+     * The number of versions kept for decoding.
+     */
+    private final int retainedVersions;
+    /**
+     * The letter counts of every thread that has counted a call and whose counts were not all used.
+     */
+    private final Queue<Counter> counters = new ConcurrentLinkedQueue<>();
+    /**
+     * The letter counts of the current thread.
+     */
+    private final ThreadLocal<Counter> counter = ThreadLocal.withInitial(this::newCounter);
+    /**
+     * The codec encoding new messages, with its version.
+     */
+    private final AtomicReference<Version> current;
+    /**
+     * The codec of every version kept for decoding.
+     */
+    private final Map<Integer, HuffmanCodec> versions = new ConcurrentHashMap<>();
+    /**
+     * The versions built here that are still kept, oldest first. Only used while holding the lock of retrain.
+     */
+    private final Queue<Integer> local = new ArrayDeque<>();
+    /**
+     * The versions added with addVersion, which retrain skips and never evicts.
+     */
+    private final Set<Integer> imported = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor that initializes a RetrainingHuffmanCodec object with the default settings.
+     *
+     * @param initial the codebook used until the first swap, as version 0.
+     * @param escape  the escape letter, which the initial codebook must hold.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook.
+     */
+    public RetrainingHuffmanCodec(CompiledCodeBook initial, char escape) {
+        this(initial, escape, DEFAULT_SAMPLE_EVERY, DEFAULT_MIN_GAIN, DEFAULT_MIN_SAMPLES, DEFAULT_RETAINED_VERSIONS);
+    }
+
+    /**
+     * Constructor that initializes the RetrainingHuffmanCodec object.
+     *
+     * @param initial          the codebook used until the first swap, as version 0.
+     * @param escape           the escape letter, which the initial codebook must hold.
+     * @param sampleEvery      the share of encode calls counted, one in this many.
+     * @param minGain          the smallest saving, as a share of the current bits per letter, that makes a new
+     *                         codebook worth it.
+     * @param minSamples       the smallest number of letters counted before a codebook is built.
+     * @param retainedVersions the number of versions kept for decoding.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook, or a setting is out of range.
+     */
+    public RetrainingHuffmanCodec(CompiledCodeBook initial, char escape, int sampleEvery, double minGain,
+                                  long minSamples, int retainedVersions) {
+        if (!initial.contains(escape)) {
+            throw CompiledCodeBook.missingLetter(escape, -1);
+        }
+        if (sampleEvery < 1 || retainedVersions < 1 || minSamples < 1 || !(minGain >= 0 && minGain < 1)) {
+            throw new IllegalArgumentException("Sample rate, sample count and retained versions must be at least 1,"
+                    + " and the gain between 0 and 1.");
+        }
+        this.escape = escape;
+        this.lookupBits = HuffmanDecodeTable.DEFAULT_LOOKUP_BITS;
+        this.sampleEvery = sampleEvery;
+        this.minGain = minGain;
+        this.minSamples = minSamples;
+        this.retainedVersions = retainedVersions;
+        Version first = new Version(0, new HuffmanCodec(initial, lookupBits, escape));
+        this.current = new AtomicReference<>(first);
+        versions.put(0, first.codec);
+        local.add(0);
+    }
+
+    /**
+     * Encodes a string with the current codebook, counting its letters for one call in sampleEvery.
+     *
+     * @param s the input string.
+     * @return an array holding the version followed by the encoded bytes.
+     */
+    public byte[] encode(CharSequence s) {
+        if (ThreadLocalRandom.current().nextInt(sampleEvery) == 0) {
+            counter.get().count(s);
+        }
+        Version version = current.get();
+        long size = version.codec.encodedSize(s);
+        if (size > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IllegalArgumentException("Encoded string is larger than an array.");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size + HEADER_BYTES);
+        out.putInt(version.number);
+        version.codec.encode(s, out);
+        return out.array();
+    }
+
+    /**
+     * Decodes a message with the codebook of the version written in front of it.
+     *
+     * @param data the version followed by the encoded bytes.
+     * @return the decoded string.
+     * @throws IllegalArgumentException when the version is unknown or no longer kept, or the bits are invalid.
+     */
+    public String decode(byte[] data) {
+        if (data.length < HEADER_BYTES + 1) {
+            throw new IllegalArgumentException("Message of " + data.length + " bytes is too short.");
+        }
+        HuffmanCodec codec = getCodec(ByteBuffer.wrap(data).getInt());
+        return codec.decode(PackedBits.fromByteArray(data, HEADER_BYTES, data.length - HEADER_BYTES));
+    }
+
+    /**
+     * Reads the version written in front of a message.
+     *
+     * @param data the message.
+     * @return an int representing the version of the codebook it was encoded with.
+     * @throws IllegalArgumentException when the message is too short to hold a version.
+     */
+    public static int readVersion(byte[] data) {
+        if (data.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Message of " + data.length + " bytes is too short.");
+        }
+        return ByteBuffer.wrap(data).getInt();
+    }
+
+    /**
+     * Builds a codebook from the letters counted since the last swap, and swaps it in when it saves at least
+     * minGain of the bits per letter of the current codebook on those letters. Counts are kept until enough
+     * letters are counted, and used up once a codebook is evaluated.
+     *
+     * @return whether a new codebook was swapped in.
+     */
+    public synchronized boolean retrain() {
+        long[] counts = new long[HuffmanCodeBuilder.ALPHABET_SIZE];
+        int size = counters.size();
+        Counter[] seen = new Counter[size];
+        boolean[] ended = new boolean[size];
+        long[][][] snapshots = new long[size][][];
+        int n = 0;
+        for (Iterator<Counter> it = counters.iterator(); it.hasNext() && n < size; n++) {
+            seen[n] = it.next();
+            //Checked before reading, since a thread seen ended has all of its counts visible.
+            ended[n] = !seen[n].owner.isAlive();
+            snapshots[n] = seen[n].read(counts);
+        }
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total < minSamples) {
+            return false;
+        }
+        //Only the counts read are marked as used, so letters counted since then are kept for next time.
+        for (int i = 0; i < n; i++) {
+            seen[i].taken = snapshots[i];
+            if (ended[i]) {
+                counters.remove(seen[i]);
+            }
+        }
+        Version old = current.get();
+        CompiledCodeBook candidate = new HuffmanCodeBuilder().addFrequencies(counts).setEscape(escape)
+                .buildCompiled();
+        double oldBits = bitsPerLetter(old.codec.getCodeBook(), counts, total);
+        double newBits = bitsPerLetter(candidate, counts, total);
+        if (newBits > oldBits * (1 - minGain)) {
+            return false;
+        }
+        int number = old.number + 1;
+        while (imported.contains(number)) {
+            number++;
+        }
+        Version next = new Version(number, new HuffmanCodec(candidate, lookupBits, escape));
+        versions.put(next.number, next.codec);
+        current.set(next);
+        local.add(next.number);
+        if (local.size() > retainedVersions) {
+            versions.remove(local.poll());
+        }
+        return true;
+    }
+
+    /**
+     * Runs retrain at a fixed rate on an executor owned by the caller.
+     *
+     * @param executor the executor running retrain.
+     * @param period   the time between two runs.
+     * @param unit     the unit of the period.
+     * @return the ScheduledFuture that cancels the runs.
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(this::retrain, period, period, unit);
+    }
+
+    /**
+     * Adds a codebook under a version, so messages encoded by another RetrainingHuffmanCodec, whose codebooks are
+     * sent with CodeBookSerializer, can be decoded here. The codec encoding new messages does not change.
+     * Versions share one number space with the versions built here, which go up from 0, so a version that is
+     * already known, or from 0 to the current version, is refused rather than replaced. Retraining skips the
+     * added versions, and an added version is never evicted to make room for new ones.
+     *
+     * @param version  the version, not yet used here.
+     * @param codeBook the codebook, holding the escape letter.
+     * @throws IllegalArgumentException when the escape letter is not in the codebook, or the version is used.
+     */
+    public synchronized void addVersion(int version, CompiledCodeBook codeBook) {
+        if (!codeBook.contains(escape)) {
+            throw CompiledCodeBook.missingLetter(escape, -1);
+        }
+        if (versions.containsKey(version) || imported.contains(version)
+                || (version >= 0 && version <= current.get().number)) {
+            throw new IllegalArgumentException("Codebook version " + version + " is already used.");
+        }
+        versions.put(version, new HuffmanCodec(codeBook, lookupBits, escape));
+        imported.add(version);
+    }
+
+    /**
+     * Get the number of letters counted and not yet used by a retrain that built a codebook, which must reach
+     * minSamples before one is built. Letters counted by other threads at the same time may be missed.
+     *
+     * @return a long representing the number of letters.
+     */
+    public synchronized long getPendingCount() {
+        long[] counts = new long[HuffmanCodeBuilder.ALPHABET_SIZE];
+        for (Counter c : counters) {
+            c.read(counts);
+        }
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Get the version of the codebook encoding new messages.
+     *
+     * @return an int representing the current version.
+     */
+    public int getVersion() {
+        return current.get().number;
+    }
+
+    /**
+     * Get the codec encoding new messages.
+     *
+     * @return the current HuffmanCodec.
+     */
+    public HuffmanCodec getCodec() {
+        return current.get().codec;
+    }
+
+    /**
+     * Get the codec of a version.
+     *
+     * @param version the version.
+     * @return the HuffmanCodec of the version.
+     * @throws IllegalArgumentException when the version is unknown or no longer kept.
+     */
+    public HuffmanCodec getCodec(int version) {
+        HuffmanCodec codec = versions.get(version);
+        if (codec == null) {
+            throw new IllegalArgumentException("Codebook version " + version + " is not known.");
+        }
+        return codec;
+    }
+
+    /**
+     * Builds the code tree of a version, for decoders working on a HuffmanCodeTree with the escape letter.
+     * A new tree is built on each call.
+     *
+     * @param version the version.
+     * @return the HuffmanCodeTree of the version.
+     * @throws IllegalArgumentException when the version is unknown or no longer kept.
+     */
+    public HuffmanCodeTree getCodeTree(int version) {
+        return getCodec(version).getCodeBook().toCodeTree();
+    }
+
+    /**
+     * Get the escape letter of every codebook.
+     *
+     * @return the escape letter.
+     */
+    public char getEscape() {
+        return escape;
+    }
+
+    /**
+     * Creates and registers the counts of the current thread.
+     *
+     * @return the Counter of the current thread.
+     */
+    private Counter newCounter() {
+        Counter created = new Counter(Thread.currentThread());
+        counters.add(created);
+        return created;
+    }
+
+    /**
+     * Computes the average bits per letter a codebook spends on counted letters, letters it lacks costing the
+     * escape code and a literal.
+     *
+     * @param codeBook the codebook.
+     * @param counts   the number of occurrences of each char, indexed by the char.
+     * @param total    the sum of the counts.
+     * @return a double representing the bits per letter.
+     */
+    private double bitsPerLetter(CompiledCodeBook codeBook, long[] counts, long total) {
+        int escapeBits = codeBook.getCodeLength(escape) + CompiledCodeBook.LITERAL_BITS;
+        double bits = 0;
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] != 0) {
+                int length = c == escape ? 0 : codeBook.getCodeLength((char) c);
+                bits += (double) counts[c] * (length == 0 ? escapeBits : length);
+            }
+        }
+        return bits / total;
+    }
+
+    /**
+     * This class holds the letter counts of one thread. Only that thread writes the counts, without atomic
+     * operations; retrain reads them, racing with the writes, and keeps what it used in a copy of its own, so the
+     * counts are never written by two threads. A count read before its latest increments reached the reading
+     * thread only has those increments left for the next retrain.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Counter {
+        /**
+         * The thread counting.
+         */
+        private final Thread owner;
+        /**
+         * The number of occurrences of each letter, in pages of 256 indexed by the high byte of the letter, or
+         * null for pages without any letter counted.
+         */
+        private final long[][] pages = new long[256][];
+        /**
+         * The counts used by the last retrain that built a codebook, in the same pages. Only read and written
+         * while holding the lock of retrain.
+         */
+        private long[][] taken = new long[256][];
+
+        /**
+         * Constructor that initializes the Counter object.
+         *
+         * @param owner the thread counting.
+         */
+        private Counter(Thread owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Counts the letters of a string. Must be called by the owner thread.
+         *
+         * @param s the string.
+         */
+        private void count(CharSequence s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                long[] page = pages[c >>> 8];
+                if (page == null) {
+                    page = new long[256];
+                    pages[c >>> 8] = page;
+                }
+                page[c & 0xFF]++;
+            }
+        }
+
+        /**
+         * Reads the counts, adds what was counted since the last codebook was built into a histogram, and
+         * returns the counts read so retrain can mark exactly those as used.
+         *
+         * @param counts the histogram indexed by the char.
+         * @return the counts read, in pages.
+         */
+        private long[][] read(long[] counts) {
+            long[][] snapshot = new long[256][];
+            for (int p = 0; p < pages.length; p++) {
+                long[] page = pages[p];
+                if (page == null) {
+                    snapshot[p] = taken[p];
+                    continue;
+                }
+                long[] copy = page.clone();
+                long[] used = taken[p];
+                for (int i = 0; i < copy.length; i++) {
+                    //A read may not see increments an earlier retrain saw, so counts never go back.
+                    long before = used == null ? 0 : used[i];
+                    copy[i] = Math.max(copy[i], before);
+                    counts[(p << 8) | i] += copy[i] - before;
+                }
+                snapshot[p] = copy;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * This class holds a codec with its version, swapped in as one reference.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class Version {
+        /**
+         * The version.
+         */
+        private final int number;
+        /**
+         * The codec of the version.
+         */
+        private final HuffmanCodec codec;
+
+        /**
+         * Constructor that initializes the Version object.
+         *
+         * @param number the version.
+         * @param codec  the codec of the version.
+         */
+        private Version(int number, HuffmanCodec codec) {
+            this.number = number;
+            this.codec = codec;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+//Bilal Ahmed
+
+package student;
+
+import java.util.Arrays;
+
+/**
+ * This class holds canonical codes for symbols numbered from 0, the shared part of ByteHuffmanCodec
+ * and IntHuffmanCodec. The code of a symbol is found at its index, without any map, boxing or search,
+ * and codes are decoded by a CanonicalDecoder.
+ *
+ * @author Bilal Ahmed
+ */
+final class SymbolCodeBook {
+    /**
+     * The longest code built.
+     */
+    static final int MAX_CODE_LENGTH = CanonicalDecoder.MAX_CODE_LENGTH;
+
+    /**
+     * The code shifted above the code length of every symbol, or 0 for symbols without a code.
+     */
+    private final long[] entries;
+    /**
+     * The decoder of the codes.
+     */
+    private final CanonicalDecoder decoder;
+
+    /**
+     * Constructor that initializes the SymbolCodeBook object from code lengths.
+     * Symbols with a length get canonical codes, in the order of their index.
+     *
+     * @param lengths the code length of each symbol, 0 for symbols without a code.
+     * @throws IllegalArgumentException when no symbol has a code, a length is out of range,
+     *                                  or the lengths cannot be given prefix-free codes.
+     */
+    SymbolCodeBook(int[] lengths) {
+        int[] present = new int[lengths.length];
+        int count = 0;
+        for (int length : lengths) {
+            if (length < 0 || length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code length " + length + " is out of range.");
+            }
+            if (length > 0) {
+                present[count++] = length;
+            }
+        }
+        present = Arrays.copyOf(present, count);
+        CodeBookSerializer.checkKraft(present);
+        this.decoder = new CanonicalDecoder(lengths);
+        long[] codes = HuffmanCodeBuilder.canonicalCodes(present);
+        this.entries = new long[lengths.length];
+        int index = 0;
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) {
+                entries[symbol] = (codes[index++] << CompiledCodeBook.LENGTH_BITS) | lengths[symbol];
+            }
+        }
+    }
+
+    /**
+     * Builds optimal codes from symbol counts.
+     *
+     * @param counts the count of each symbol.
+     * @return a SymbolCodeBook giving a code to every symbol with a count above zero.
+     * @throws IllegalArgumentException when no count is above zero or a count is negative.
+     */
+    static SymbolCodeBook fromCounts(long[] counts) {
+        int count = 0;
+        for (long c : counts) {
+            if (c < 0) {
+                throw new IllegalArgumentException("Counts cannot be negative.");
+            }
+            count += c > 0 ? 1 : 0;
+        }
+        long[] weights = new long[count];
+        int index = 0;
+        for (long c : counts) {
+            if (c > 0) {
+                weights[index++] = c;
+            }
+        }
+        int[] built = HuffmanCodeBuilder.codeLengths(weights, MAX_CODE_LENGTH);
+        int[] lengths = new int[counts.length];
+        index = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            if (counts[symbol] > 0) {
+                lengths[symbol] = built[index++];
+            }
+        }
+        return new SymbolCodeBook(lengths);
+    }
+
+    /**
+     * Get the entry of a symbol.
+     *
+     * @param symbol the symbol, between 0 and the size of the alphabet.
+     * @return the code shifted above CompiledCodeBook.LENGTH_BITS bits holding its length, or 0 without a code.
+     * @throws ArrayIndexOutOfBoundsException when the symbol is out of the alphabet.
+     */
+    long entry(int symbol) {
+        return entries[symbol];
+    }
+
+    /**
+     * Get the number of symbols of the alphabet, with or without a code.
+     *
+     * @return an int representing the size of the alphabet.
+     */
+    int alphabetSize() {
+        return entries.length;
+    }
+
+    /**
+     * Get the decoder of the codes.
+     *
+     * @return the CanonicalDecoder of the codes.
+     */
+    CanonicalDecoder decoder() {
+        return decoder;
+    }
+}
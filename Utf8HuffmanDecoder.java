@@ -0,0 +1,300 @@
+//Bilal Ahmed
+
+package student;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class decodes bits straight into UTF-8 bytes, for callers that would otherwise decode to a String and
+ * encode it again for a socket or a file. It skips the UTF-16 letters and the second copy.
+ * Its table is indexed like the primary table of a HuffmanDecodeTable, but each entry holds the UTF-8 bytes of
+ * the letters the window starts with, up to 8 bytes, so one lookup writes several letters as bytes.
+ * Longer codes, escape literals and surrogates go through the decode table one letter at a time.
+ * The bytes are the same as String.getBytes(StandardCharsets.UTF_8) of the decoded text: a surrogate pair becomes
+ * one 4-byte sequence and a lone surrogate becomes '?'.
+ * The decoder is immutable and can be shared between threads.
+ *
+ * @author Bilal Ahmed
+ */
+public final class Utf8HuffmanDecoder {
+    /**
+     * The largest number of bytes a table entry holds.
+     */
+    private static final int MAX_ENTRY_BYTES = Long.BYTES;
+    /**
+     * The number of bits of an entry's meta value holding the bits it consumes.
+     */
+    private static final int CONSUMED_BITS = 5;
+    /**
+     * The byte written for a lone surrogate.
+     */
+    private static final byte REPLACEMENT = '?';
+
+    /**
+     * The decode table used for the letters the UTF-8 table does not cover.
+     */
+    private final HuffmanDecodeTable table;
+    /**
+     * The number of bits read per lookup.
+     */
+    private final int lookupBits;
+    /**
+     * The UTF-8 bytes of each entry, first byte in the lowest bits.
+     */
+    private final long[] bytes;
+    /**
+     * The number of bits each entry consumes, and its number of bytes above them; 0 sends the lookup to the
+     * decode table.
+     */
+    private final int[] meta;
+
+    /**
+     * Constructor that initializes a Utf8HuffmanDecoder object decoding with the table of a codec.
+     *
+     * @param codec the codec giving the codes.
+     */
+    public Utf8HuffmanDecoder(HuffmanCodec codec) {
+        this(codec.getDecodeTable());
+    }
+
+    /**
+     * Constructor that initializes the Utf8HuffmanDecoder object. A HuffmanCodeTree is decoded with
+     * new Utf8HuffmanDecoder(new HuffmanDecodeTable(tree)).
+     *
+     * @param table the decode table, escape letter included.
+     */
+    public Utf8HuffmanDecoder(HuffmanDecodeTable table) {
+        this.table = table;
+        this.lookupBits = table.getLookupBits();
+        this.bytes = new long[1 << lookupBits];
+        this.meta = new int[1 << lookupBits];
+        long[] window = new long[1];
+        for (int v = 0; v < bytes.length; v++) {
+            window[0] = (long) v << (Long.SIZE - lookupBits);
+            fill(v, window);
+        }
+    }
+
+    /**
+     * Decodes packed bits into UTF-8 bytes. Like HuffmanDecodeTable.decode, an incomplete code at the end is
+     * ignored. A high surrogate at the end has no low surrogate to come, so it becomes '?'.
+     *
+     * @param bits the PackedBits that will be decoded.
+     * @return an array holding the UTF-8 bytes of the decoded text.
+     * @throws IllegalArgumentException when the bits do not lead to any letter.
+     */
+    public byte[] decode(PackedBits bits) {
+        long[] words = bits.getWords();
+        long length = bits.getBitLength();
+        ByteBuffer out = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, length / 4)));
+        long position = 0;
+        while (true) {
+            position = decode(words, position, length, out);
+            if (position >= length) {
+                break;
+            }
+            if (out.remaining() >= 4) {
+                //Stopped with room left: only an incomplete code is left, or a high surrogate in front of one.
+                long decoded = table.decodeOne(words, position, length);
+                if (decoded >= 0 && Character.isHighSurrogate((char) decoded)) {
+                    out.put(REPLACEMENT);
+                }
+                break;
+            }
+            //Output is full, grow it and continue.
+            ByteBuffer larger = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, out.capacity() * 2L));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * Decodes bytes produced by HuffmanCodec.encode, trailer included, into UTF-8 bytes.
+     *
+     * @param data the encoded bytes.
+     * @return an array holding the UTF-8 bytes of the decoded text.
+     * @throws IllegalArgumentException when the trailer is missing or invalid, or the bits do not lead to any letter.
+     */
+    public byte[] decode(byte[] data) {
+        return decode(PackedBits.fromByteArray(data));
+    }
+
+    /**
+     * Decodes the bits between two positions into UTF-8 bytes in a buffer owned by the caller.
+     * Decoding stops when the end position is reached, when an incomplete code is left before it, or when the
+     * buffer has no room for the bytes of the next letter. A high surrogate right before toBit, or before an
+     * incomplete code, is left for the next call, so toBit may end a chunk of a message anywhere, even between
+     * the two halves of a surrogate pair.
+     * The position of the buffer is moved past the bytes written.
+     *
+     * @param words   the words holding the bits, most significant bit first.
+     * @param fromBit the position of the first bit to be decoded, which must start a code.
+     * @param toBit   the position after the last bit that can be decoded.
+     * @param out     the ByteBuffer the bytes are written into.
+     * @return the position of the first bit that was not decoded.
+     * @throws IllegalArgumentException  when the bits do not lead to any letter.
+     * @throws IndexOutOfBoundsException when the positions are outside the words.
+     */
+    public long decode(long[] words, long fromBit, long toBit, ByteBuffer out) {
+        if (toBit > (long) words.length * Long.SIZE || fromBit < 0) {
+            throw new IndexOutOfBoundsException("Bits " + fromBit + " to " + toBit + " are out of bounds.");
+        }
+        if (!out.hasArray()) {
+            //Decode through a small heap buffer, then copy into the given buffer.
+            byte[] scratch = new byte[Math.min(out.remaining(), 4096)];
+            long position = fromBit;
+            while (position < toBit) {
+                ByteBuffer chunk = ByteBuffer.wrap(scratch, 0, Math.min(scratch.length, out.remaining()));
+                long next = decode(words, position, toBit, chunk);
+                out.put(scratch, 0, chunk.position());
+                if (next == position) {
+                    break;
+                }
+                position = next;
+            }
+            return position;
+        }
+
+        byte[] dst = out.array();
+        int base = out.arrayOffset();
+        int o = base + out.position();
+        int limit = base + out.limit();
+        int bits = this.lookupBits;
+        long position = fromBit;
+
+        while (position < toBit) {
+            if (toBit - position >= bits && limit - o >= MAX_ENTRY_BYTES) {
+                int index = PackedBits.peek(words, position, bits);
+                int m = meta[index];
+                if (m != 0) {
+                    //Fast path: all 8 bytes are stored, and only the ones of the entry are counted.
+                    long b = bytes[index];
+                    dst[o] = (byte) b;
+                    dst[o + 1] = (byte) (b >>> 8);
+                    dst[o + 2] = (byte) (b >>> 16);
+                    dst[o + 3] = (byte) (b >>> 24);
+                    dst[o + 4] = (byte) (b >>> 32);
+                    dst[o + 5] = (byte) (b >>> 40);
+                    dst[o + 6] = (byte) (b >>> 48);
+                    dst[o + 7] = (byte) (b >>> 56);
+                    o += m >>> CONSUMED_BITS;
+                    position += m & ((1 << CONSUMED_BITS) - 1);
+                    continue;
+                }
+            }
+            //Slow path: long codes, literals, surrogates, and the end of the bits or of the output.
+            long decoded = table.decodeOne(words, position, toBit);
+            if (decoded < 0) {
+                break;
+            }
+            char c = (char) decoded;
+            long next = position + (decoded >>> 16);
+            int cp = c;
+            if (Character.isHighSurrogate(c)) {
+                long low = next < toBit ? table.decodeOne(words, next, toBit) : -1;
+                if (low < 0) {
+                    //The low surrogate may be in the next chunk; decode(PackedBits) writes '?' at the very end.
+                    break;
+                }
+                if (Character.isLowSurrogate((char) low)) {
+                    cp = Character.toCodePoint(c, (char) low);
+                    next += low >>> 16;
+                } else {
+                    cp = REPLACEMENT;
+                }
+            } else if (Character.isLowSurrogate(c)) {
+                cp = REPLACEMENT;
+            }
+            int n = utf8Length(cp);
+            if (limit - o < n) {
+                break;
+            }
+            long b = utf8(cp);
+            for (int k = 0; k < n; k++) {
+                dst[o + k] = (byte) (b >>> (8 * k));
+            }
+            o += n;
+            position = next;
+        }
+        out.position(o - base);
+        return position;
+    }
+
+    /**
+     * Get the decode table used for the letters the UTF-8 table does not cover.
+     *
+     * @return the HuffmanDecodeTable.
+     */
+    public HuffmanDecodeTable getDecodeTable() {
+        return table;
+    }
+
+    /**
+     * Fills the entry of a window with the UTF-8 bytes of the whole letters it starts with, stopping at a
+     * surrogate, an incomplete code or 8 bytes. An escape literal never fits in the window, so it stops too.
+     *
+     * @param index  the index of the entry.
+     * @param window the window, its bits at the top of the first word.
+     */
+    private void fill(int index, long[] window) {
+        long b = 0;
+        int count = 0;
+        int position = 0;
+        while (position < lookupBits) {
+            long decoded;
+            try {
+                decoded = table.decodeOne(window, position, lookupBits);
+            } catch (IllegalArgumentException e) {
+                //Invalid bits are reported by the slow path, with their real position.
+                break;
+            }
+            if (decoded < 0 || Character.isSurrogate((char) decoded)) {
+                break;
+            }
+            char c = (char) decoded;
+            int n = utf8Length(c);
+            if (count + n > MAX_ENTRY_BYTES) {
+                break;
+            }
+            b |= utf8(c) << (8 * count);
+            count += n;
+            position += (int) (decoded >>> 16);
+        }
+        bytes[index] = b;
+        meta[index] = count == 0 ? 0 : (count << CONSUMED_BITS) | position;
+    }
+
+    /**
+     * Get the number of UTF-8 bytes of a code point.
+     *
+     * @param cp the code point, not a surrogate.
+     * @return an int from 1 to 4.
+     */
+    private static int utf8Length(int cp) {
+        return cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Encodes a code point in UTF-8.
+     *
+     * @param cp the code point, not a surrogate.
+     * @return a long holding the bytes, first byte in the lowest bits.
+     */
+    private static long utf8(int cp) {
+        if (cp < 0x80) {
+            return cp;
+        }
+        if (cp < 0x800) {
+            return (0xC0 | (cp >>> 6)) | (long) (0x80 | (cp & 0x3F)) << 8;
+        }
+        if (cp < 0x10000) {
+            return (0xE0 | (cp >>> 12)) | (long) (0x80 | ((cp >>> 6) & 0x3F)) << 8
+                    | (long) (0x80 | (cp & 0x3F)) << 16;
+        }
+        return (0xF0 | (cp >>> 18)) | (long) (0x80 | ((cp >>> 12) & 0x3F)) << 8
+                | (long) (0x80 | ((cp >>> 6) & 0x3F)) << 16 | (long) (0x80 | (cp & 0x3F)) << 24;
+    }
+}
@@ -0,0 +1,367 @@
+//Bilal Ahmed
+
+package student;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import provided.BinarySequence;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class measures the codebook, the tree and the encode and decode paths with JMH.
+ * Every operation is run for each alphabet size and for a uniform and a skewed distribution of letters, and the
+ * text operations for each input size, given in bytes of UTF-16 text. The score is the time per operation; the
+ * "letters" and "bytes" secondary results give the time per letter and per byte of UTF-16 text, so ns/letter is
+ * read directly and MB/s is 1000 over the ns per byte. Allocation rates come from the gc profiler.
+ * Run with "gradle jmh", adding for example -PjmhArgs="-p size=1K,1M,1G -prof gc". Inputs of 1G need a heap
+ * several times their size, since the BinarySequence paths box every bit.
+ *
+ * @author Bilal Ahmed
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HuffmanBenchmark {
+    /**
+     * The first letter of every alphabet.
+     */
+    private static final char FIRST_LETTER = '!';
+
+    /**
+     * This class holds the codebook and tree of one alphabet.
+     *
+     * @author Bilal Ahmed
+     */
+    @State(Scope.Benchmark)
+    public static class AlphabetState {
+        /**
+         * The number of letters.
+         */
+        @Param({"16", "256", "4096"})
+        public int alphabet;
+        /**
+         * The distribution of the letters, uniform or skewed.
+         */
+        @Param({"uniform", "skewed"})
+        public String distribution;
+
+        /**
+         * The letter counts of the alphabet.
+         */
+        long[] frequencies;
+        /**
+         * The builder holding the letter counts.
+         */
+        HuffmanCodeBuilder builder;
+        /**
+         * The codebook of the alphabet.
+         */
+        HuffmanCodeBook book;
+        /**
+         * The tree of the alphabet.
+         */
+        HuffmanCodeTree tree;
+
+        /**
+         * Builds the codebook and tree.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            frequencies = frequencies(alphabet, "skewed".equals(distribution));
+            builder = new HuffmanCodeBuilder().addFrequencies(frequencies);
+            book = builder.build();
+            tree = new HuffmanCodeTree(book);
+        }
+    }
+
+    /**
+     * This class holds a text of one input size and its encoded forms.
+     *
+     * @author Bilal Ahmed
+     */
+    @State(Scope.Benchmark)
+    public static class TextState extends AlphabetState {
+        /**
+         * The input size in bytes, with an optional K, M or G suffix.
+         */
+        @Param({"1K", "1M"})
+        public String size;
+
+        /**
+         * The text.
+         */
+        String text;
+        /**
+         * The text encoded by the codebook.
+         */
+        BinarySequence bits;
+        /**
+         * The compiled codebook.
+         */
+        CompiledCodeBook compiled;
+        /**
+         * The text encoded by the compiled codebook.
+         */
+        PackedBits packed;
+        /**
+         * The decode table of the tree.
+         */
+        HuffmanDecodeTable table;
+
+        /**
+         * Draws the text and encodes it, after the codebook and tree are built.
+         */
+        @Setup(Level.Trial)
+        public void drawText() {
+            long bytes = parseSize(size);
+            text = sample(frequencies, bytes / Character.BYTES, new Random(bytes));
+            bits = book.encode(text);
+            compiled = book.compile();
+            packed = compiled.encode(text);
+            table = new HuffmanDecodeTable(tree);
+        }
+    }
+
+    /**
+     * This class counts the letters and bytes handled, reported by JMH as a time per letter and per byte.
+     *
+     * @author Bilal Ahmed
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        /**
+         * The number of letters handled.
+         */
+        public long letters;
+        /**
+         * The number of bytes of UTF-16 text handled.
+         */
+        public long bytes;
+
+        /**
+         * Clears the counts before each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            letters = 0;
+            bytes = 0;
+        }
+
+        /**
+         * Counts one operation over a number of letters.
+         *
+         * @param count the number of letters.
+         */
+        void add(long count) {
+            letters += count;
+            bytes += count * Character.BYTES;
+        }
+    }
+
+    /**
+     * Measures building a codebook from letter counts.
+     *
+     * @param state the alphabet.
+     * @return the codebook.
+     */
+    @Benchmark
+    public HuffmanCodeBook codebookBuild(AlphabetState state) {
+        return state.builder.build();
+    }
+
+    /**
+     * Measures looking up the sequence of every letter.
+     *
+     * @param state the alphabet.
+     * @param sink  the blackhole keeping each sequence.
+     */
+    @Benchmark
+    public void getSequence(AlphabetState state, Blackhole sink) {
+        for (int i = 0; i < state.alphabet; i++) {
+            sink.consume(state.book.getSequence((char) (FIRST_LETTER + i)));
+        }
+    }
+
+    /**
+     * Measures building a tree from a codebook.
+     *
+     * @param state the alphabet.
+     * @return the tree.
+     */
+    @Benchmark
+    public HuffmanCodeTree treeBuild(AlphabetState state) {
+        return new HuffmanCodeTree(state.book);
+    }
+
+    /**
+     * Measures checking that a tree is valid.
+     *
+     * @param state the alphabet.
+     * @return whether the tree is valid.
+     */
+    @Benchmark
+    public boolean isValid(AlphabetState state) {
+        return state.tree.isValid();
+    }
+
+    /**
+     * Measures checking that the codebook holds every letter of the text.
+     *
+     * @param state   the text.
+     * @param counter the letter and byte counts.
+     * @return whether every letter was found.
+     */
+    @Benchmark
+    public boolean containsAll(TextState state, Throughput counter) {
+        counter.add(state.text.length());
+        return state.book.containsAll(state.text);
+    }
+
+    /**
+     * Measures encoding the text with the codebook.
+     *
+     * @param state   the text.
+     * @param counter the letter and byte counts.
+     * @return the encoded text.
+     */
+    @Benchmark
+    public BinarySequence encode(TextState state, Throughput counter) {
+        counter.add(state.text.length());
+        return state.book.encode(state.text);
+    }
+
+    /**
+     * Measures decoding the text with the tree.
+     *
+     * @param state   the text.
+     * @param counter the letter and byte counts.
+     * @return the decoded text.
+     */
+    @Benchmark
+    public String decode(TextState state, Throughput counter) {
+        counter.add(state.text.length());
+        return state.tree.decode(state.bits);
+    }
+
+    /**
+     * Measures encoding the text with the compiled codebook.
+     *
+     * @param state   the text.
+     * @param counter the letter and byte counts.
+     * @return the encoded text.
+     */
+    @Benchmark
+    public PackedBits compiledEncode(TextState state, Throughput counter) {
+        counter.add(state.text.length());
+        return state.compiled.encode(state.text);
+    }
+
+    /**
+     * Measures decoding the text with the decode table.
+     *
+     * @param state   the text.
+     * @param counter the letter and byte counts.
+     * @return the decoded text.
+     */
+    @Benchmark
+    public String tableDecode(TextState state, Throughput counter) {
+        counter.add(state.text.length());
+        return state.table.decode(state.packed);
+    }
+
+    /**
+     * Builds the letter counts of an alphabet.
+     *
+     * @param alphabet the number of letters.
+     * @param skewed   whether the i-th letter is i times less frequent than the first, instead of all being equal.
+     * @return a histogram indexed by letter.
+     */
+    static long[] frequencies(int alphabet, boolean skewed) {
+        long[] frequencies = new long[HuffmanCodeBuilder.ALPHABET_SIZE];
+        for (int i = 0; i < alphabet; i++) {
+            frequencies[FIRST_LETTER + i] = skewed ? Math.max(1, 1_000_000 / (i + 1)) : 1;
+        }
+        return frequencies;
+    }
+
+    /**
+     * Draws a random text following the given letter counts.
+     *
+     * @param frequencies the histogram indexed by letter.
+     * @param length      the number of letters to be drawn.
+     * @param random      the source of randomness.
+     * @return a String of the given length.
+     * @throws IllegalArgumentException when the length does not fit in a String.
+     */
+    static String sample(long[] frequencies, long length, Random random) {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Input of " + length + " letters does not fit in a String.");
+        }
+        long total = 0;
+        for (long f : frequencies) {
+            total += f;
+        }
+        //Spread the letters over 65536 slots in proportion to their counts, so drawing one is a single lookup.
+        char[] slots = new char[1 << 16];
+        long seen = 0;
+        int slot = 0;
+        for (int c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] == 0) {
+                continue;
+            }
+            seen += frequencies[c];
+            int stop = (int) Math.max(slot + 1, Math.min(slots.length, seen * slots.length / total));
+            for (; slot < stop && slot < slots.length; slot++) {
+                slots[slot] = (char) c;
+            }
+        }
+        char[] text = new char[(int) length];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = slots[random.nextInt(slot)];
+        }
+        return new String(text);
+    }
+
+    /**
+     * Reads a size in bytes with an optional K, M or G suffix.
+     *
+     * @param text the size.
+     * @return a long representing the size in bytes.
+     * @throws IllegalArgumentException when the size cannot be read.
+     */
+    static long parseSize(String text) {
+        String upper = text.trim().toUpperCase();
+        int shift = switch (upper.isEmpty() ? ' ' : upper.charAt(upper.length() - 1)) {
+            case 'K' -> 10;
+            case 'M' -> 20;
+            case 'G' -> 30;
+            default -> 0;
+        };
+        try {
+            long value = Long.parseLong(shift == 0 ? upper : upper.substring(0, upper.length() - 1));
+            if (value <= 0) {
+                throw new IllegalArgumentException("Size " + text + " must be positive.");
+            }
+            return value << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size " + text + ".", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class tests CodeBookSerializer.
+ *
+ * @author Bilal Ahmed
+ */
+class CodeBookSerializerTest {
+    /**
+     * Checks that a saved codebook loads with the same letters, codes and lengths.
+     */
+    @Test
+    void roundTrip() {
+        CompiledCodeBook book = new HuffmanCodeBuilder().addSample("the rain in spain, 中文").buildCompiled();
+        CompiledCodeBook loaded = CodeBookSerializer.read(CodeBookSerializer.write(book));
+        assertEquals(book.getSymbolCount(), loaded.getSymbolCount());
+        for (int i = 0; i < book.getSymbolCount(); i++) {
+            assertEquals(book.getSymbol(i), loaded.getSymbol(i));
+            assertEquals(book.getCodeAt(i), loaded.getCodeAt(i));
+            assertEquals(book.getLengthAt(i), loaded.getLengthAt(i));
+        }
+    }
+
+    /**
+     * Checks that a letter distance large enough to overflow an int is refused instead of wrapping around.
+     */
+    @Test
+    void rejectsOverflowingLetter() {
+        byte[] data = header(2, 'a', 1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 1);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> CodeBookSerializer.read(data));
+        assertEquals("Letter " + ('a' + 1L + Integer.MAX_VALUE) + " is out of range.", e.getMessage());
+    }
+
+    /**
+     * Checks that a varint with bits above the 31 an int holds is refused.
+     */
+    @Test
+    void rejectsOversizeVarint() {
+        byte[] data = header(0x80, 0x80, 0x80, 0x80, 0x10, 'a', 1);
+        assertThrows(IllegalArgumentException.class, () -> CodeBookSerializer.read(data));
+    }
+
+    /**
+     * Checks that every truncation of a valid codebook is refused.
+     */
+    @Test
+    void rejectsTruncatedBytes() {
+        byte[] data = CodeBookSerializer.write(new HuffmanCodeBuilder().addSample("abcabd").buildCompiled());
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> CodeBookSerializer.read(truncated));
+        }
+    }
+
+    /**
+     * Checks that code lengths with no room for prefix-free codes are refused.
+     */
+    @Test
+    void rejectsLengthsOverKraft() {
+        byte[] data = header(3, 'a', 1, 0, 1, 0, 1);
+        assertThrows(IllegalArgumentException.class, () -> CodeBookSerializer.read(data));
+    }
+
+    /**
+     * Builds a serialized codebook from the bytes following the magic and version.
+     *
+     * @param codes the bytes of the letters and lengths.
+     * @return a byte array starting with the magic and version.
+     */
+    private static byte[] header(int... codes) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 1 + codes.length);
+        buffer.putInt(CodeBookSerializer.MAGIC).put(CodeBookSerializer.VERSION);
+        for (int b : codes) {
+            buffer.put((byte) b);
+        }
+        return buffer.array();
+    }
+}
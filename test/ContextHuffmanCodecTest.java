@@ -0,0 +1,110 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests ContextHuffmanCodec.
+ *
+ * @author Bilal Ahmed
+ */
+class ContextHuffmanCodecTest {
+    /**
+     * The escape letter.
+     */
+    private static final char ESCAPE = '\uFFFF';
+    /**
+     * The text the codecs are trained on.
+     */
+    private static final String SAMPLE = "the theme of the thesis is that these three things thrive together";
+
+    /**
+     * Checks that texts of the sample's letters decode back.
+     */
+    @Test
+    void roundTrip() {
+        ContextHuffmanCodec codec = ContextHuffmanCodec.train(SAMPLE, ESCAPE);
+        assertRoundTrip(codec, SAMPLE);
+        assertRoundTrip(codec, "");
+        assertRoundTrip(codec, "the");
+    }
+
+    /**
+     * Checks letters that are in the fallback codebook but not in the codebook of their context, letters that
+     * are in neither and go out as literals, and the escape letter itself in the text.
+     */
+    @Test
+    void missingLettersAndEscape() {
+        ContextHuffmanCodec codec = ContextHuffmanCodec.train(SAMPLE, ESCAPE);
+        int context = codec.getContext('h');
+        assertFalse(codec.getCodeBook(context).contains('g'));
+        assertTrue(codec.getFallbackCodeBook().contains('g'));
+        assertRoundTrip(codec, "hg");
+        assertFalse(codec.getFallbackCodeBook().contains('Z'));
+        assertRoundTrip(codec, "the Zebra 中");
+        assertRoundTrip(codec, "th" + ESCAPE + "e" + ESCAPE);
+        assertRoundTrip(codec, String.valueOf(ESCAPE));
+    }
+
+    /**
+     * Checks a codec with a single context class, which gives every letter the same codebook.
+     */
+    @Test
+    void singleClass() {
+        ContextHuffmanCodec codec = ContextHuffmanCodec.train(SAMPLE, 1, ESCAPE);
+        assertEquals(1, codec.getContextCount());
+        assertEquals(0, codec.getContext('t'));
+        assertRoundTrip(codec, SAMPLE);
+        assertRoundTrip(codec, "xyz" + ESCAPE);
+        assertThrows(IllegalArgumentException.class, () -> ContextHuffmanCodec.train(SAMPLE, 0, ESCAPE));
+        assertThrows(IllegalArgumentException.class,
+                () -> ContextHuffmanCodec.train(SAMPLE, ContextHuffmanCodec.MAX_CONTEXT_CLASSES + 1, ESCAPE));
+    }
+
+    /**
+     * Checks that an empty sample gives a codec that writes every letter as a literal.
+     */
+    @Test
+    void emptySample() {
+        ContextHuffmanCodec codec = ContextHuffmanCodec.train("", ESCAPE);
+        assertEquals(1, codec.getContextCount());
+        assertRoundTrip(codec, "");
+        assertRoundTrip(codec, "abc" + ESCAPE);
+    }
+
+    /**
+     * Checks that a message cut inside a code is refused, and that decoding into a buffer gives the same letters.
+     */
+    @Test
+    void decodeIntoBufferAndCutMessages() {
+        ContextHuffmanCodec codec = ContextHuffmanCodec.train(SAMPLE, ESCAPE);
+        String text = "these Zs";
+        PackedBits bits = codec.encode(text);
+        CharBuffer out = CharBuffer.allocate(text.length());
+        assertEquals(text.length(), codec.decode(bits.getWords(), 0, bits.getBitLength(), out));
+        assertEquals(text, out.flip().toString());
+        //The literal of 'Z' takes 16 bits, so cutting its last bit ends the message inside a code.
+        long cut = codec.encodedLength("these Z") - 1;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bits.slice(0, cut)));
+    }
+
+    /**
+     * Checks that a text decodes back, and that encodedLength gives the length of its bits.
+     *
+     * @param codec the codec.
+     * @param text  the text.
+     */
+    private static void assertRoundTrip(ContextHuffmanCodec codec, String text) {
+        PackedBits bits = codec.encode(text);
+        assertEquals(codec.encodedLength(text), bits.getBitLength());
+        assertEquals(text, codec.decode(bits));
+    }
+}
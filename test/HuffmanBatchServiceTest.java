@@ -0,0 +1,176 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests HuffmanBatchService and the HuffmanBatchCodec it runs.
+ *
+ * @author Bilal Ahmed
+ */
+class HuffmanBatchServiceTest {
+    /**
+     * The letters every message is drawn from.
+     */
+    private static final String ALPHABET = "abcdefghij klmnop";
+    /**
+     * The codec of the alphabet.
+     */
+    private static final HuffmanCodec CODEC =
+            HuffmanCodec.of(new HuffmanCodeBuilder().addSample(ALPHABET + "aaaeee   ").build());
+
+    /**
+     * Checks that the messages of a batch are views of the same bits, and decode back one by one and together.
+     */
+    @Test
+    void batchViewsShareTheBits() {
+        HuffmanBatchCodec codec = new HuffmanBatchCodec(CODEC);
+        List<String> messages = List.of("abc", "", "hello", "ponk");
+        HuffmanBatchCodec.EncodedBatch batch = codec.encode(messages);
+        List<PackedBits> copies = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            HuffmanBatchCodec.EncodedMessage message = batch.view(i);
+            assertSame(batch, message.getBatch());
+            assertEquals(messages.get(i), codec.decode(message));
+            assertEquals(messages.get(i), CODEC.decode(message.toPackedBits()));
+            copies.add(message.toPackedBits());
+        }
+        assertArrayEquals(messages.toArray(new String[0]), codec.decode(batch));
+        assertArrayEquals(messages.toArray(new String[0]), codec.decode(copies));
+    }
+
+    /**
+     * Checks that many threads encoding and decoding at once through a small queue get their own messages back,
+     * and that every worker stops on close.
+     *
+     * @throws Exception when a thread fails.
+     */
+    @Test
+    void concurrentRoundTrip() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try (HuffmanBatchService service = new HuffmanBatchService(CODEC, 8, 32, 4, workers)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                results.add(clients.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String text = message(seed * 1000 + i);
+                        HuffmanBatchCodec.EncodedMessage encoded = service.encode(text).get();
+                        assertEquals(text, service.decode(encoded.toPackedBits()).get());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Checks that requests queued before close are all handled, whichever worker takes the poison request.
+     *
+     * @throws Exception when a request fails.
+     */
+    @Test
+    void closeHandlesQueuedRequests() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            ExecutorService workers = Executors.newFixedThreadPool(3);
+            List<CompletableFuture<HuffmanBatchCodec.EncodedMessage>> futures = new ArrayList<>();
+            HuffmanBatchService service = new HuffmanBatchService(CODEC, 64, 4, 3, workers);
+            for (int i = 0; i < 60; i++) {
+                futures.add(service.encode(message(i)));
+            }
+            service.close();
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(message(i), CODEC.decode(futures.get(i).get(10, TimeUnit.SECONDS).toPackedBits()));
+            }
+            workers.shutdown();
+            assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+            assertThrows(RejectedExecutionException.class, () -> service.encode("abc"));
+        }
+    }
+
+    /**
+     * Checks that a message that cannot be encoded fails alone, while the rest of its batch succeeds, and that a
+     * message cut inside a code decodes as it would alone.
+     *
+     * @throws Exception when a valid request fails.
+     */
+    @Test
+    void failuresStayWithTheirRequest() throws Exception {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try (HuffmanBatchService service = new HuffmanBatchService(CODEC, 16, 16, 1, workers)) {
+            CompletableFuture<HuffmanBatchCodec.EncodedMessage> good = service.encode("abc");
+            CompletableFuture<HuffmanBatchCodec.EncodedMessage> missing = service.encode("xyz");
+            CompletableFuture<String> valid = service.decode(CODEC.encode("ponk"));
+            PackedBits bits = CODEC.encode("ponk");
+            PackedBits cut = bits.slice(0, bits.getBitLength() - 1);
+            CompletableFuture<String> partial = service.decode(cut);
+            assertEquals("abc", CODEC.decode(good.get().toPackedBits()));
+            assertEquals("ponk", valid.get());
+            ExecutionException e = assertThrows(ExecutionException.class, missing::get);
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals(CODEC.decode(cut), partial.get());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Checks that a null message is refused when it is submitted, and the service still runs afterwards.
+     *
+     * @throws Exception when a valid request fails.
+     */
+    @Test
+    void nullRequestsAreRefused() throws Exception {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try (HuffmanBatchService service = new HuffmanBatchService(CODEC, 16, 16, 1, workers)) {
+            assertThrows(NullPointerException.class, () -> service.encode(null));
+            assertThrows(NullPointerException.class, () -> service.tryEncode(null, 1, TimeUnit.SECONDS));
+            assertThrows(NullPointerException.class, () -> service.decode(null));
+            assertThrows(NullPointerException.class, () -> service.tryDecode(null, 1, TimeUnit.SECONDS));
+            assertEquals(0, service.getQueuedCount());
+            assertEquals("abc", service.decode(CODEC.encode("abc")).get());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Builds a message from a number.
+     *
+     * @param n the number.
+     * @return a String of letters of the alphabet.
+     */
+    private static String message(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= n % 23; i++) {
+            sb.append(ALPHABET.charAt((n * 7 + i * 3) % ALPHABET.length()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,161 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests HuffmanCodecCache.
+ *
+ * @author Bilal Ahmed
+ */
+class HuffmanCodecCacheTest {
+    /**
+     * Checks that a codebook seen again gets the same codec, also from an equal codebook built separately.
+     */
+    @Test
+    void hitsShareTheCodec() {
+        HuffmanCodecCache cache = new HuffmanCodecCache();
+        HuffmanCodec first = cache.get(book("hello world"));
+        assertSame(first, cache.get(book("hello world")));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals("hello", first.decode(first.encode("hello")));
+    }
+
+    /**
+     * Checks that looking up a HuffmanCodeBook again reuses its compiled form until a letter is added.
+     */
+    @Test
+    void codeBookKeepsItsCompiledForm() {
+        HuffmanCodecCache cache = new HuffmanCodecCache();
+        HuffmanCodeBook book = new HuffmanCodeBuilder().addSample("hello world").build();
+        CompiledCodeBook compiled = book.compile();
+        HuffmanCodec first = cache.get(book);
+        assertSame(compiled, book.compile());
+        assertSame(first, cache.get(book));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(compiled.getFingerprint(), HuffmanCodecCache.fingerprint(book("hello world")));
+
+        book.addSequence('z', new HuffmanCodeBuilder().addSample("yz").build().getSequence('z'));
+        CompiledCodeBook changed = book.compile();
+        assertNotSame(compiled, changed);
+        assertEquals(compiled.getSymbolCount() + 1, changed.getSymbolCount());
+        assertTrue(changed.contains('z'));
+    }
+
+    /**
+     * Checks that the codecs used least recently are evicted first when the budget is exceeded.
+     *
+     * @throws InterruptedException when the test is interrupted.
+     */
+    @Test
+    void evictsLeastRecentlyUsed() throws InterruptedException {
+        long one = weightOf(book("ab"));
+        HuffmanCodecCache cache = new HuffmanCodecCache(2 * one);
+        HuffmanCodec ab = cache.get(book("ab"));
+        Thread.sleep(1);
+        cache.get(book("cd"));
+        Thread.sleep(1);
+        cache.get(book("ab"));
+        Thread.sleep(1);
+        cache.get(book("ef"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getWeight() <= cache.getMaxBytes());
+        assertSame(ab, cache.get(book("ab")));
+    }
+
+    /**
+     * Checks that a codec over the whole budget is returned without being kept or evicting the others.
+     */
+    @Test
+    void oversizeCodecIsNotKept() {
+        long small = weightOf(book("ab"));
+        HuffmanCodecCache cache = new HuffmanCodecCache(2 * small);
+        cache.get(book("ab"));
+        cache.get(book("cd"));
+        StringBuilder alphabet = new StringBuilder();
+        for (char c = 'a'; c < 'a' + 4096; c++) {
+            alphabet.append(c);
+        }
+        CompiledCodeBook large = book(alphabet.toString());
+        assertTrue(weightOf(large) > cache.getMaxBytes());
+        HuffmanCodec codec = cache.get(large);
+        assertEquals("abc", codec.decode(codec.encode("abc")));
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(2 * small, cache.getWeight());
+        assertNotSame(codec, cache.get(large));
+    }
+
+    /**
+     * Checks that threads asking for the same codebooks at once build each codec once and share it.
+     *
+     * @throws Exception when a thread fails.
+     */
+    @Test
+    void concurrentLookups() throws Exception {
+        HuffmanCodecCache cache = new HuffmanCodecCache();
+        int books = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HuffmanCodec[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    HuffmanCodec[] codecs = new HuffmanCodec[books];
+                    for (int round = 0; round < 100; round++) {
+                        for (int b = 0; b < books; b++) {
+                            codecs[b] = cache.get(book("xyz" + (char) ('a' + b)));
+                        }
+                    }
+                    return codecs;
+                }));
+            }
+            HuffmanCodec[] expected = results.get(0).get();
+            for (Future<HuffmanCodec[]> result : results) {
+                HuffmanCodec[] codecs = result.get();
+                for (int b = 0; b < books; b++) {
+                    assertSame(expected[b], codecs[b]);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(books, cache.getMissCount());
+        assertEquals(8 * 100 * books - books, cache.getHitCount());
+    }
+
+    /**
+     * Builds the compiled codebook of a sample.
+     *
+     * @param sample the text whose letter counts give the codes.
+     * @return a CompiledCodeBook.
+     */
+    private static CompiledCodeBook book(String sample) {
+        return new HuffmanCodeBuilder().addSample(sample).build().compile();
+    }
+
+    /**
+     * Measures the weight a cache gives a codebook.
+     *
+     * @param codeBook the codebook.
+     * @return a long representing the weight in bytes.
+     */
+    private static long weightOf(CompiledCodeBook codeBook) {
+        HuffmanCodecCache cache = new HuffmanCodecCache(Long.MAX_VALUE);
+        cache.get(codeBook);
+        return cache.getWeight();
+    }
+}
@@ -0,0 +1,66 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class tests HuffmanCodec.
+ *
+ * @author Bilal Ahmed
+ */
+class HuffmanCodecTest {
+    /**
+     * Checks that text comes back unchanged through packed bits and through bytes.
+     */
+    @Test
+    void roundTrip() {
+        String text = "abracadabra, the quick brown fox";
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(text).build());
+        assertEquals(text, codec.decode(codec.encode(text)));
+        assertEquals(text, codec.decode(PackedBits.fromByteArray(codec.encode(text).toByteArray())));
+    }
+
+    /**
+     * Checks that a text split at every bit position decodes the same as a whole.
+     */
+    @Test
+    void chunkedDecode() {
+        String text = "mississippi river";
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(text).build());
+        PackedBits bits = codec.encode(text);
+        for (long split = 0; split <= bits.getBitLength(); split++) {
+            CharBuffer out = CharBuffer.allocate(text.length());
+            long position = codec.decode(bits.getWords(), 0, split, out);
+            codec.decode(bits.getWords(), position, bits.getBitLength(), out);
+            assertEquals(text, out.flip().toString(), "split at bit " + split);
+        }
+    }
+
+    /**
+     * Checks that letters missing from the codebook go through the escape letter.
+     */
+    @Test
+    void escapedLetters() {
+        CompiledCodeBook book = new HuffmanCodeBuilder().addSample("aab\u0000").build().compile();
+        HuffmanCodec codec = new HuffmanCodec(book, HuffmanDecodeTable.DEFAULT_LOOKUP_BITS, '\u0000');
+        String text = "abé中\u0000a";
+        assertEquals(text, codec.decode(codec.encode(text)));
+    }
+
+    /**
+     * Checks that codes where one is a prefix of another are refused when the codec is built.
+     */
+    @Test
+    void rejectsCodesThatAreNotPrefixFree() {
+        CompiledCodeBook book = CompiledCodeBook.of(new char[]{'a', 'b', 'c'}, new long[]{0b0, 0b01, 0b1},
+                new int[]{1, 2, 1});
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanCodec(book));
+        assertThrows(IllegalArgumentException.class, () -> new HuffmanCodecCache(1 << 20).get(book));
+    }
+}
@@ -0,0 +1,137 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class tests HuffmanFileCodec.
+ *
+ * @author Bilal Ahmed
+ */
+class HuffmanFileCodecTest {
+    /**
+     * The directory holding the files of a test.
+     */
+    @TempDir
+    Path dir;
+
+    /**
+     * Checks that a file of every byte value comes back unchanged, and that the decompressed file has exactly
+     * the size of the source.
+     *
+     * @throws IOException when a file cannot be read or written.
+     */
+    @Test
+    void roundTrip() throws IOException {
+        byte[] data = new byte[100_000];
+        Random random = new Random(8);
+        for (int i = 0; i < data.length; i++) {
+            //Skewed so codes have different lengths.
+            data[i] = (byte) (random.nextInt(16) == 0 ? random.nextInt(256) : random.nextInt(8));
+        }
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(latin1(data)).build());
+        Path source = write("source", data);
+        Path compressed = dir.resolve("compressed");
+        Path restored = dir.resolve("restored");
+
+        long size = HuffmanFileCodec.compress(source, compressed, codec.getCodeBook());
+        assertEquals(Files.size(compressed), size);
+        assertEquals(data.length, HuffmanFileCodec.decompress(compressed, restored, codec.getDecodeTable()));
+        assertArrayEquals(data, Files.readAllBytes(restored));
+    }
+
+    /**
+     * Checks that an empty file comes back empty.
+     *
+     * @throws IOException when a file cannot be read or written.
+     */
+    @Test
+    void emptyFile() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample("ab").build());
+        Path compressed = dir.resolve("compressed");
+        Path restored = dir.resolve("restored");
+        HuffmanFileCodec.compress(write("source", new byte[0]), compressed, codec.getCodeBook());
+        assertEquals(0, HuffmanFileCodec.decompress(compressed, restored, codec.getDecodeTable()));
+        assertEquals(0, Files.size(restored));
+    }
+
+    /**
+     * Checks that decoding a letter above 255 fails and deletes the destination.
+     *
+     * @throws IOException when a file cannot be written.
+     */
+    @Test
+    void wideLetterDeletesTarget() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample("aĀ").build());
+        Path compressed = write("compressed", codec.encode("aĀa").toByteArray());
+        Path restored = write("restored", new byte[]{1, 2, 3});
+        assertThrows(IllegalArgumentException.class,
+                () -> HuffmanFileCodec.decompress(compressed, restored, codec.getDecodeTable()));
+        assertFalse(Files.exists(restored));
+    }
+
+    /**
+     * Checks that an invalid trailer byte fails and deletes the destination.
+     *
+     * @throws IOException when a file cannot be written.
+     */
+    @Test
+    void invalidTrailerDeletesTarget() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample("ab").build());
+        Path compressed = write("compressed", new byte[]{0x55, 9});
+        Path restored = dir.resolve("restored");
+        assertThrows(IllegalArgumentException.class,
+                () -> HuffmanFileCodec.decompress(compressed, restored, codec.getDecodeTable()));
+        assertFalse(Files.exists(restored));
+    }
+
+    /**
+     * Checks that a source byte missing from the codebook fails and deletes the destination.
+     *
+     * @throws IOException when a file cannot be written.
+     */
+    @Test
+    void missingLetterDeletesTarget() throws IOException {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample("ab").build());
+        Path source = write("source", new byte[]{'a', 'c'});
+        Path compressed = dir.resolve("compressed");
+        assertThrows(IllegalArgumentException.class,
+                () -> HuffmanFileCodec.compress(source, compressed, codec.getCodeBook()));
+        assertFalse(Files.exists(compressed));
+    }
+
+    /**
+     * Writes a file in the test directory.
+     *
+     * @param name the name of the file.
+     * @param data the bytes of the file.
+     * @return the path of the file.
+     * @throws IOException when the file cannot be written.
+     */
+    private Path write(String name, byte[] data) throws IOException {
+        return Files.write(dir.resolve(name), data);
+    }
+
+    /**
+     * Reads bytes as ISO-8859-1 letters.
+     *
+     * @param data the bytes.
+     * @return a String with one letter per byte.
+     */
+    private static String latin1(byte[] data) {
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,145 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests HuffmanPushDecoder.
+ *
+ * @author Bilal Ahmed
+ */
+class HuffmanPushDecoderTest {
+    /**
+     * The text every message is taken from.
+     */
+    private static final String TEXT = "it was the best of times, it was the worst of times; 中文 and é";
+    /**
+     * The codec of the text.
+     */
+    private static final HuffmanCodec CODEC = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(TEXT).build());
+
+    /**
+     * Checks that a message given in chunks of every size from 1 to 9 bytes, decoded into arrays of every size
+     * from 1 to 5 letters, comes back unchanged, with one decoder reused through reset.
+     */
+    @Test
+    void roundTripInChunks() {
+        byte[] data = CODEC.encode(TEXT).toByteArray();
+        HuffmanPushDecoder decoder = new HuffmanPushDecoder(CODEC);
+        for (int chunk = 1; chunk <= 9; chunk++) {
+            for (int room = 1; room <= 5; room++) {
+                decoder.reset();
+                assertEquals(TEXT, push(decoder, data, chunk, room), chunk + " bytes per chunk, room " + room);
+                assertTrue(decoder.finished());
+                assertEquals(data.length, decoder.getBytesRead());
+                assertEquals(TEXT.length(), decoder.getLettersWritten());
+            }
+        }
+    }
+
+    /**
+     * Checks that chunks given as ByteBuffers, heap and direct, are read from their position.
+     */
+    @Test
+    void byteBufferInput() {
+        byte[] data = CODEC.encode(TEXT).toByteArray();
+        for (boolean direct : new boolean[]{false, true}) {
+            HuffmanPushDecoder decoder = new HuffmanPushDecoder(CODEC);
+            StringBuilder sb = new StringBuilder();
+            char[] dst = new char[16];
+            for (int from = 0; from < data.length; from += 4) {
+                byte[] piece = Arrays.copyOfRange(data, from, Math.min(data.length, from + 4));
+                ByteBuffer chunk = direct ? ByteBuffer.allocateDirect(piece.length) : ByteBuffer.allocate(piece.length);
+                chunk.put(piece).flip();
+                decoder.setInput(chunk);
+                if (from + 4 >= data.length) {
+                    decoder.finish();
+                }
+                drain(decoder, dst, sb);
+            }
+            assertEquals(TEXT, sb.toString());
+        }
+    }
+
+    /**
+     * Checks that an empty message, holding only the trailer, decodes to nothing.
+     */
+    @Test
+    void emptyMessage() {
+        HuffmanPushDecoder decoder = new HuffmanPushDecoder(CODEC);
+        assertEquals("", push(decoder, CODEC.encode("").toByteArray(), 1, 4));
+        assertTrue(decoder.finished());
+    }
+
+    /**
+     * Checks that an invalid trailer and a message ending inside a code are refused.
+     */
+    @Test
+    void rejectsCorruptMessages() {
+        byte[] data = CODEC.encode(TEXT).toByteArray();
+        byte[] badTrailer = data.clone();
+        badTrailer[badTrailer.length - 1] = 8;
+        assertThrows(IllegalArgumentException.class, () -> push(new HuffmanPushDecoder(CODEC), badTrailer, 3, 8));
+
+        //Two bytes of a message whose first code is longer than the 9 bits they hold.
+        CompiledCodeBook book = CompiledCodeBook.of(new char[]{'a', 'b'}, new long[]{0, 1}, new int[]{12, 12});
+        HuffmanCodec longCodes = new HuffmanCodec(book);
+        assertThrows(IllegalArgumentException.class,
+                () -> push(new HuffmanPushDecoder(longCodes), new byte[]{0, 0, 7}, 1, 8));
+    }
+
+    /**
+     * Checks that a new chunk cannot be given before the previous one is used up.
+     */
+    @Test
+    void refusesInputBeforeTheChunkIsUsed() {
+        byte[] data = CODEC.encode(TEXT).toByteArray();
+        HuffmanPushDecoder decoder = new HuffmanPushDecoder(CODEC);
+        decoder.setInput(data, 0, data.length);
+        assertThrows(IllegalStateException.class, () -> decoder.setInput(data, 0, 1));
+    }
+
+    /**
+     * Pushes a message through a decoder in chunks.
+     *
+     * @param decoder the decoder.
+     * @param data    the encoded message, trailer included.
+     * @param chunk   the number of bytes per chunk.
+     * @param room    the number of letters each decode call has room for.
+     * @return the decoded message.
+     */
+    private static String push(HuffmanPushDecoder decoder, byte[] data, int chunk, int room) {
+        StringBuilder sb = new StringBuilder();
+        char[] dst = new char[room];
+        for (int from = 0; from < data.length; from += chunk) {
+            decoder.setInput(data, from, Math.min(chunk, data.length - from));
+            if (from + chunk >= data.length) {
+                decoder.finish();
+            }
+            drain(decoder, dst, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes until the decoder needs more input or the message is over.
+     *
+     * @param decoder the decoder.
+     * @param dst     the array the letters are decoded into.
+     * @param sb      the StringBuilder the letters are added to.
+     */
+    private static void drain(HuffmanPushDecoder decoder, char[] dst, StringBuilder sb) {
+        int n;
+        while ((n = decoder.decode(dst, 0, dst.length)) > 0) {
+            sb.append(dst, 0, n);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class tests InterleavedHuffmanCodec.
+ *
+ * @author Bilal Ahmed
+ */
+class InterleavedHuffmanCodecTest {
+    /**
+     * The numbers of streams tested.
+     */
+    private static final int[] STREAMS = {1, 3, 4, 32};
+    /**
+     * The letters of the codebooks.
+     */
+    private static final String SAMPLE = "the quick brown fox jumps over the lazy dog, THE END";
+    /**
+     * The escape letter.
+     */
+    private static final char ESCAPE = '\u0000';
+
+    /**
+     * Checks that texts shorter and longer than one round come back unchanged for every number of streams.
+     */
+    @Test
+    void roundTrip() {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(SAMPLE).build());
+        for (int n : STREAMS) {
+            InterleavedHuffmanCodec interleaved = new InterleavedHuffmanCodec(codec, n);
+            for (String text : texts(SAMPLE)) {
+                byte[] data = interleaved.encode(text);
+                assertEquals(interleaved.encodedSize(text), data.length);
+                assertEquals(text, interleaved.decode(data), n + " streams");
+            }
+        }
+    }
+
+    /**
+     * Checks that letters missing from the codebook, and the escape letter itself, go through literals.
+     */
+    @Test
+    void roundTripWithEscape() {
+        CompiledCodeBook book = new HuffmanCodeBuilder().addSample(SAMPLE + ESCAPE).setEscape(ESCAPE)
+                .buildCompiled();
+        HuffmanCodec codec = new HuffmanCodec(book, HuffmanDecodeTable.DEFAULT_LOOKUP_BITS, ESCAPE);
+        String extra = "é中😀" + ESCAPE;
+        for (int n : STREAMS) {
+            InterleavedHuffmanCodec interleaved = new InterleavedHuffmanCodec(codec, n);
+            for (String text : texts(SAMPLE + extra)) {
+                assertEquals(text, interleaved.decode(interleaved.encode(text)), n + " streams");
+            }
+        }
+    }
+
+    /**
+     * Checks that decoding into heap and direct buffers gives the same letters as decoding into a string.
+     */
+    @Test
+    void decodeIntoBuffers() {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(SAMPLE).build());
+        String text = SAMPLE.repeat(5);
+        for (int n : STREAMS) {
+            InterleavedHuffmanCodec interleaved = new InterleavedHuffmanCodec(codec, n);
+            byte[] data = interleaved.encode(text);
+            CharBuffer heap = CharBuffer.allocate(text.length());
+            CharBuffer direct = ByteBuffer.allocateDirect(text.length() * 2).asCharBuffer();
+            assertEquals(text.length(), interleaved.decode(ByteBuffer.wrap(data), heap));
+            assertEquals(text.length(), interleaved.decode(ByteBuffer.wrap(data), direct));
+            assertEquals(text, heap.flip().toString());
+            assertEquals(text, direct.flip().toString());
+        }
+    }
+
+    /**
+     * Checks that a message cut anywhere after its header is refused.
+     */
+    @Test
+    void rejectsTruncatedStreams() {
+        HuffmanCodec codec = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(SAMPLE).build());
+        String text = SAMPLE.repeat(3);
+        for (int n : STREAMS) {
+            InterleavedHuffmanCodec interleaved = new InterleavedHuffmanCodec(codec, n);
+            byte[] data = interleaved.encode(text);
+            for (int length = 0; length < data.length; length++) {
+                byte[] truncated = Arrays.copyOf(data, length);
+                assertThrows(IllegalArgumentException.class, () -> interleaved.decode(truncated),
+                        n + " streams, " + length + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Checks that invalid headers are refused before anything is sized from them.
+     */
+    @Test
+    void rejectsBadHeaders() {
+        InterleavedHuffmanCodec interleaved =
+                new InterleavedHuffmanCodec(HuffmanCodec.of(new HuffmanCodeBuilder().addSample(SAMPLE).build()));
+        byte[][] headers = {
+            {0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 1},
+            {0, 0, 0, 9, 1, 0x55},
+            {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 0},
+            {0, 0, 0, 1, 0, 0},
+            {0, 0, 0, 1, 33, 0},
+            {0, 0, 0, 1, 4, 0, 0, 0},
+            {0, 0, 0, 1, 2, 0, 0, 0, 9, 0},
+        };
+        for (byte[] header : headers) {
+            assertThrows(IllegalArgumentException.class, () -> interleaved.decode(header));
+            assertThrows(IllegalArgumentException.class, () -> interleaved.decode(ByteBuffer.wrap(header),
+                    ByteBuffer.allocateDirect(64).asCharBuffer()));
+        }
+    }
+
+    /**
+     * Builds texts of several lengths from a sample, from empty to several times the largest number of streams.
+     *
+     * @param sample the letters of the texts.
+     * @return an array of texts.
+     */
+    private static String[] texts(String sample) {
+        int[] lengths = {0, 1, 2, 3, 4, 5, 31, 32, 33, 200, 1000};
+        String[] texts = new String[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < lengths[i]; j++) {
+                sb.append(sample.charAt((j * 7 + i) % sample.length()));
+            }
+            texts[i] = sb.toString();
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,76 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests PrefixCodeAnalysis.
+ *
+ * @author Bilal Ahmed
+ */
+class PrefixCodeAnalysisTest {
+    /**
+     * Checks that the code of a single letter is valid but not complete, from the codebook, its compiled form and
+     * its tree alike.
+     */
+    @Test
+    void singleLetterIsValidAndIncomplete() {
+        HuffmanCodeBook book = new HuffmanCodeBuilder().addFrequency('a', 5).build();
+        PrefixCodeAnalysis[] analyses = {
+            PrefixCodeAnalysis.of(book),
+            PrefixCodeAnalysis.of(book.compile()),
+            PrefixCodeAnalysis.of(book.compile().toCodeTree()),
+        };
+        for (PrefixCodeAnalysis analysis : analyses) {
+            assertTrue(analysis.isValid(), analysis.getProblem());
+            assertFalse(analysis.isComplete());
+            assertEquals(1, analysis.getSymbolCount());
+            assertEquals(1, analysis.getCodeLength('a'));
+            assertEquals(0.5, analysis.getKraftSum());
+        }
+    }
+
+    /**
+     * Checks that a codebook of several letters gives the same analysis in every form, and is complete.
+     */
+    @Test
+    void formsAgree() {
+        HuffmanCodeBook book = new HuffmanCodeBuilder().addSample("abracadabra").build();
+        PrefixCodeAnalysis fromBook = PrefixCodeAnalysis.of(book);
+        PrefixCodeAnalysis fromTree = PrefixCodeAnalysis.of(book.compile().toCodeTree());
+        for (PrefixCodeAnalysis analysis : new PrefixCodeAnalysis[]{fromBook, fromTree}) {
+            assertTrue(analysis.isValid());
+            assertTrue(analysis.isComplete());
+            assertEquals(5, analysis.getSymbolCount());
+        }
+        for (char c : "abrcd".toCharArray()) {
+            assertEquals(fromBook.getCodeLength(c), fromTree.getCodeLength(c));
+        }
+        assertEquals(fromBook.getExpectedBitsPerSymbol(), fromTree.getExpectedBitsPerSymbol());
+    }
+
+    /**
+     * Checks that broken trees are refused: no code at all, an internal node without any child, an internal node
+     * holding a letter, and a letter held by two leaves.
+     */
+    @Test
+    void rejectsBrokenTrees() {
+        assertFalse(PrefixCodeAnalysis.of((HuffmanNode) null).isValid());
+        assertFalse(PrefixCodeAnalysis.of(new HuffmanNode('a')).isValid());
+        HuffmanNode childless = new HuffmanNode(new HuffmanNode('a'), new HuffmanNode());
+        assertEquals("An internal node at depth 1 does not have any child.",
+                PrefixCodeAnalysis.of(childless).getProblem());
+        HuffmanNode lettered = new HuffmanNode(new HuffmanNode('a'), new HuffmanNode('b'));
+        lettered.setData('c');
+        assertThrows(IllegalArgumentException.class,
+                () -> PrefixCodeAnalysis.of(new HuffmanNode(lettered, new HuffmanNode('d'))).checkValid());
+        HuffmanNode twice = new HuffmanNode(new HuffmanNode('a'), new HuffmanNode('a'));
+        assertFalse(PrefixCodeAnalysis.of(twice).isValid());
+    }
+}
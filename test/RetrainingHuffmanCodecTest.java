@@ -0,0 +1,278 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests RetrainingHuffmanCodec.
+ *
+ * @author Bilal Ahmed
+ */
+class RetrainingHuffmanCodecTest {
+    /**
+     * The escape letter.
+     */
+    private static final char ESCAPE = '\u0000';
+
+    /**
+     * Checks that a skewed text swaps in a shorter codebook, and that messages of the old version still decode.
+     *
+     * @throws InterruptedException when the test is interrupted.
+     */
+    @Test
+    void retrainSwapsAndKeepsOldVersions() throws InterruptedException {
+        RetrainingHuffmanCodec codec = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0.02, 1000, 2);
+        String text = "aaaaaaaaaaaaaaaabbbbbbbbcccd";
+        byte[] before = codec.encode(text);
+        assertFalse(codec.retrain());
+
+        //Counts of a thread that has ended are used too.
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                codec.encode(text);
+            }
+        });
+        other.start();
+        other.join();
+        assertTrue(codec.retrain());
+        assertEquals(1, codec.getVersion());
+        assertEquals(0, codec.getPendingCount());
+
+        byte[] after = codec.encode(text);
+        assertEquals(1, RetrainingHuffmanCodec.readVersion(after));
+        assertTrue(after.length < before.length);
+        assertEquals(text, codec.decode(before));
+        assertEquals(text, codec.decode(after));
+        assertEquals("zé中", codec.decode(codec.encode("zé中")));
+    }
+
+    /**
+     * Checks that versions older than the retained ones are refused.
+     */
+    @Test
+    void forgetsOldVersions() {
+        RetrainingHuffmanCodec codec = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0, 10, 1);
+        byte[] first = codec.encode("abc");
+        codec.encode("aaaaaaaaaaaaaaaaaaaaaaaaaaaaab");
+        assertTrue(codec.retrain());
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(first));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[]{0, 0}));
+    }
+
+    /**
+     * Checks that an added version never replaces a local one, that retraining skips it, and that it is kept
+     * while local versions are evicted.
+     */
+    @Test
+    void addedVersionsStayApartFromLocalOnes() {
+        RetrainingHuffmanCodec remote = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0, 10, 1);
+        retrainOn(remote, "aaaaaaaaaaaaaaaaaaaaaaaaaaaaab");
+        retrainOn(remote, "bbbbbbbbbbbbbbbbbbbbbbbbbbbbba");
+        byte[] foreign = remote.encode("abba");
+        assertEquals(2, RetrainingHuffmanCodec.readVersion(foreign));
+        CompiledCodeBook book = remote.getCodec().getCodeBook();
+
+        RetrainingHuffmanCodec codec = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> codec.addVersion(0, book));
+        codec.addVersion(2, book);
+        assertThrows(IllegalArgumentException.class, () -> codec.addVersion(2, book));
+        retrainOn(codec, "aaaaaaaaaaaaaaaaaaaaaaaaaaaaab");
+        assertThrows(IllegalArgumentException.class, () -> codec.addVersion(1, book));
+        retrainOn(codec, "bbbbbbbbbbbbbbbbbbbbbbbbbbbbba");
+        assertEquals(3, codec.getVersion());
+        retrainOn(codec, "cccccccccccccccccccccccccccccca");
+        assertEquals(4, codec.getVersion());
+
+        assertEquals("abba", codec.decode(foreign));
+        assertEquals("abc", codec.decode(codec.encode("abc")));
+        assertThrows(IllegalArgumentException.class, () -> codec.getCodec(3));
+        codec.addVersion(-1, book);
+        assertEquals("abba", codec.decode(foreign));
+    }
+
+    /**
+     * Encodes a text so it is counted, and checks that retraining on it swaps in a new codebook.
+     *
+     * @param codec the codec.
+     * @param text  the text.
+     */
+    private static void retrainOn(RetrainingHuffmanCodec codec, String text) {
+        codec.encode(text);
+        assertTrue(codec.retrain());
+    }
+
+    /**
+     * Checks that letters counted while retrain runs are kept for the next one: a message is paused halfway
+     * through being counted, retrain uses the first half, and the second half is still pending afterwards.
+     *
+     * @throws Exception when the encoding thread fails.
+     */
+    @Test
+    void lettersCountedDuringRetrainAreKept() throws Exception {
+        RetrainingHuffmanCodec codec = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0, 100, 4);
+        CountDownLatch paused = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        PausingText text = new PausingText(300, 200, paused, resume);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> encoded = pool.submit(() -> codec.encode(text));
+            assertTrue(paused.await(10, TimeUnit.SECONDS));
+            assertEquals(200, codec.getPendingCount());
+            codec.retrain();
+            resume.countDown();
+            assertEquals(text.toString(), codec.decode(encoded.get()));
+            assertEquals(100, codec.getPendingCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks that threads encoding while another retrains in a loop all get their messages back.
+     *
+     * @throws Exception when a thread fails.
+     */
+    @Test
+    void concurrentEncodeAndRetrain() throws Exception {
+        RetrainingHuffmanCodec codec = new RetrainingHuffmanCodec(uniform(), ESCAPE, 1, 0, 1, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < 4; t++) {
+                String text = "thread " + (char) ('a' + t) + " aaaabbc";
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        assertEquals(text, codec.decode(codec.encode(text)));
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 50; i++) {
+                codec.retrain();
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(codec.getVersion() > 0);
+    }
+
+    /**
+     * Builds a codebook giving every letter from a to z and the escape letter the same count.
+     *
+     * @return a CompiledCodeBook.
+     */
+    private static CompiledCodeBook uniform() {
+        HuffmanCodeBuilder builder = new HuffmanCodeBuilder().setEscape(ESCAPE);
+        for (char c = 'a'; c <= 'z'; c++) {
+            builder.addFrequency(c, 1);
+        }
+        return builder.addFrequency(ESCAPE, 1).buildCompiled();
+    }
+
+    /**
+     * This class is a text of one letter that stops the first time a given letter is read until it is released.
+     *
+     * @author Bilal Ahmed
+     */
+    private static final class PausingText implements CharSequence {
+        /**
+         * The number of letters.
+         */
+        private final int length;
+        /**
+         * The index whose first read pauses.
+         */
+        private final int pauseAt;
+        /**
+         * The latch counted down when the read pauses.
+         */
+        private final CountDownLatch paused;
+        /**
+         * The latch the read waits on.
+         */
+        private final CountDownLatch resume;
+
+        /**
+         * Constructor that initializes the PausingText object.
+         *
+         * @param length  the number of letters.
+         * @param pauseAt the index whose first read pauses.
+         * @param paused  the latch counted down when the read pauses.
+         * @param resume  the latch the read waits on.
+         */
+        private PausingText(int length, int pauseAt, CountDownLatch paused, CountDownLatch resume) {
+            this.length = length;
+            this.pauseAt = pauseAt;
+            this.paused = paused;
+            this.resume = resume;
+        }
+
+        /**
+         * Get the number of letters.
+         *
+         * @return an int representing the length.
+         */
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Get a letter, pausing the first time the pause index is read.
+         *
+         * @param index the index of the letter.
+         * @return the letter q.
+         */
+        @Override
+        public char charAt(int index) {
+            if (index == pauseAt && paused.getCount() > 0) {
+                paused.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 'q';
+        }
+
+        /**
+         * Get a range of the letters.
+         *
+         * @param start the index of the first letter.
+         * @param end   the index after the last letter.
+         * @return a String holding the letters.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        /**
+         * Get the letters without pausing.
+         *
+         * @return a String holding the letters.
+         */
+        @Override
+        public String toString() {
+            return "q".repeat(length);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+//Bilal Ahmed
+
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class tests Utf8HuffmanDecoder.
+ *
+ * @author Bilal Ahmed
+ */
+class Utf8HuffmanDecoderTest {
+    /**
+     * The letters of every test text, each surrogate half counted as a letter.
+     */
+    private static final String SAMPLE = "abcd éü中文 😀🎉 😀\uDC00\uD800x";
+    /**
+     * The codec of the sample.
+     */
+    private static final HuffmanCodec CODEC = HuffmanCodec.of(new HuffmanCodeBuilder().addSample(SAMPLE).build());
+    /**
+     * The decoder of the codec.
+     */
+    private static final Utf8HuffmanDecoder DECODER = new Utf8HuffmanDecoder(CODEC);
+
+    /**
+     * Checks that whole messages give the same bytes as String.getBytes, lone surrogates included.
+     */
+    @Test
+    void matchesStringGetBytes() {
+        String[] texts = {"", "abcd", "aé中😀d", "ab😀cd", "a\uDC00b", "a\uD800b", "ab\uD83D", "\uD83D😀"};
+        for (String text : texts) {
+            byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(expected, DECODER.decode(CODEC.encode(text)), text);
+            assertArrayEquals(expected, DECODER.decode(CODEC.encode(text).toByteArray()), text);
+        }
+    }
+
+    /**
+     * Checks that a message split into two chunks at any bit decodes the same as a whole, even when the split
+     * falls between the two halves of a surrogate pair.
+     */
+    @Test
+    void chunksSplitAnywhere() {
+        String text = "ab😀cd中😀";
+        PackedBits bits = CODEC.encode(text);
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        for (long split = 0; split <= bits.getBitLength(); split++) {
+            ByteBuffer out = ByteBuffer.allocate(64);
+            long position = DECODER.decode(bits.getWords(), 0, split, out);
+            position = DECODER.decode(bits.getWords(), position, bits.getBitLength(), out);
+            assertEquals(bits.getBitLength(), position, "split at bit " + split);
+            assertArrayEquals(expected, Arrays.copyOf(out.array(), out.position()), "split at bit " + split);
+        }
+    }
+
+    /**
+     * Checks that decoding into small and direct buffers, resuming at the returned position, gives every byte.
+     */
+    @Test
+    void smallAndDirectBuffers() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append(SAMPLE.charAt((i * 7) % 14)).append("😀");
+        }
+        String text = sb.toString();
+        PackedBits bits = CODEC.encode(text);
+        for (boolean direct : new boolean[]{false, true}) {
+            ByteArrayOutputStream collected = new ByteArrayOutputStream();
+            long position = 0;
+            while (position < bits.getBitLength()) {
+                ByteBuffer out = direct ? ByteBuffer.allocateDirect(5) : ByteBuffer.allocate(5);
+                position = DECODER.decode(bits.getWords(), position, bits.getBitLength(), out);
+                out.flip();
+                byte[] chunk = new byte[out.remaining()];
+                out.get(chunk);
+                collected.writeBytes(chunk);
+            }
+            assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), collected.toByteArray());
+        }
+    }
+
+    /**
+     * Checks that bits that do not lead to any letter are refused.
+     */
+    @Test
+    void rejectsInvalidBits() {
+        CompiledCodeBook book = CompiledCodeBook.of(new char[]{'a', 'b'}, new long[]{0b0, 0b10}, new int[]{1, 2});
+        Utf8HuffmanDecoder decoder = new Utf8HuffmanDecoder(new HuffmanCodec(book));
+        assertArrayEquals("ab".getBytes(StandardCharsets.UTF_8),
+                decoder.decode(new PackedBits(new long[]{0b010L << 61}, 3)));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(new PackedBits(new long[]{-1L}, 4)));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(new byte[]{0x55, 9}));
+    }
+}